@@ -0,0 +1,100 @@
+package excel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * xlsx流水线模式与普通模式在数值、日期为主的表上的吞吐量，每次操作为一行
+ * workers为0时为普通模式，否则为流水线模式转换单元格的线程数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class PipelineBenchmark {
+
+    @Param({"0", "1", "2", "4"})
+    public int workers;
+
+    @Param({"FORMATTED", "TYPED"})
+    public String valueMode;
+
+    @Param({"256"})
+    public int batchSize;
+
+    @Param({"8"})
+    public int queueDepth;
+
+    private File dir;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() throws Exception {
+        dir = new File(System.getProperty("benchmark.workbooks", "target/benchmark-workbooks"));
+        WorkbookShape.NUMERIC.file(dir, "xlsx");
+        WorkbookShape.DATES.file(dir, "xlsx");
+        executor = workers > 0 ? Executors.newFixedThreadPool(workers) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.NUMERIC_ROWS)
+    public void numeric(Blackhole bh) throws Exception {
+        read(WorkbookShape.NUMERIC, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.DATES_ROWS)
+    public void dates(Blackhole bh) throws Exception {
+        read(WorkbookShape.DATES, bh);
+    }
+
+    private void read(WorkbookShape shape, final Blackhole bh) throws Exception {
+        Excel2007Reader reader = new Excel2007Reader(1, shape.file(dir, "xlsx"));
+        reader.setValueMode(CellValueMode.valueOf(valueMode));
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                bh.consume(row);
+            }
+        });
+        try {
+            if (executor == null) {
+                reader.processAllSheets();
+            } else {
+                reader.processAllSheetsPipelined(executor, batchSize, queueDepth);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package excel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两种读取器在各种形状工作簿上的吞吐量，每次操作为一行，结果即每秒行数
+ * 配合-prof gc时gc.alloc.rate.norm为每行分配的字节数
+ * 每次迭代结束输出该迭代的堆峰值(各堆内存池峰值之和，是上限的近似值)
+ * 工作簿在构建时生成到target/benchmark-workbooks，不存在时在这里生成
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ReaderBenchmark {
+
+    @Param({"xlsx", "xls"})
+    public String format;
+
+    @Param({"FORMATTED", "TYPED"})
+    public String valueMode;
+
+    private File dir;
+
+    @Setup
+    public void setup() throws Exception {
+        dir = new File(System.getProperty("benchmark.workbooks", "target/benchmark-workbooks"));
+        for (WorkbookShape shape : WorkbookShape.values()) {
+            shape.file(dir, format);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.println("peak heap: " + peak / (1024 * 1024) + " MB");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.WIDE_ROWS)
+    public void wide(Blackhole bh) throws Exception {
+        read(WorkbookShape.WIDE, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.TALL_ROWS)
+    public void tall(Blackhole bh) throws Exception {
+        read(WorkbookShape.TALL, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.STRINGS_ROWS)
+    public void strings(Blackhole bh) throws Exception {
+        read(WorkbookShape.STRINGS, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.NUMERIC_ROWS)
+    public void numeric(Blackhole bh) throws Exception {
+        read(WorkbookShape.NUMERIC, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.DATES_ROWS)
+    public void dates(Blackhole bh) throws Exception {
+        read(WorkbookShape.DATES, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.SPARSE_OUTPUT_ROWS)
+    public void sparse(Blackhole bh) throws Exception {
+        read(WorkbookShape.SPARSE, bh);
+    }
+
+    private void read(WorkbookShape shape, final Blackhole bh) throws Exception {
+        String path = shape.file(dir, format).getPath();
+        AbstractExcelReader reader = "xls".equals(format) ? new Excel2003Reader(1, path) : new Excel2007Reader(1, path);
+        reader.setValueMode(CellValueMode.valueOf(valueMode));
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                bh.consume(row);
+            }
+        });
+        try {
+            reader.processAllSheets();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package excel.benchmark;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * xlsx表解析的单元格开销，每次操作为一个单元格
+ * 配合-prof gc查看gc.alloc.rate.norm即为每个单元格分配的字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SheetParseBenchmark {
+
+    private static final int ROWS = 20000;
+    private static final int COLUMNS = 10;
+
+    private File file;
+
+    @Setup
+    public void setup() throws Exception {
+        file = File.createTempFile("sheet-parse", ".xlsx");
+        SXSSFWorkbook wb = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < ROWS; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < COLUMNS; c++) {
+                    if (c % 2 == 0) {
+                        row.createCell(c).setCellValue(r * 31.5 + c);
+                    } else {
+                        row.createCell(c).setCellValue("text-" + (r % 1000) + "-" + c);
+                    }
+                }
+            }
+            OutputStream out = new FileOutputStream(file);
+            try {
+                wb.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            wb.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS * COLUMNS)
+    public void parseCells(final Blackhole bh) throws Exception {
+        Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                bh.consume(row);
+            }
+        });
+        try {
+            reader.processAllSheets();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package excel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowHandler;
+import vip.ipav.poi.excel.reader.SheetParserType;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * xlsx表数据的SAX解析与字节扫描器的吞吐量，每次操作为一行
+ * TYPED模式格式化开销小，更能体现解析本身的差别
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class SheetScannerBenchmark {
+
+    @Param({"SAX", "SCANNER"})
+    public String parser;
+
+    @Param({"TYPED"})
+    public String valueMode;
+
+    private File dir;
+
+    @Setup
+    public void setup() throws Exception {
+        dir = new File(System.getProperty("benchmark.workbooks", "target/benchmark-workbooks"));
+        WorkbookShape.TALL.file(dir, "xlsx");
+        WorkbookShape.WIDE.file(dir, "xlsx");
+        WorkbookShape.NUMERIC.file(dir, "xlsx");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.TALL_ROWS)
+    public void tall(Blackhole bh) throws Exception {
+        read(WorkbookShape.TALL, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.WIDE_ROWS)
+    public void wide(Blackhole bh) throws Exception {
+        read(WorkbookShape.WIDE, bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WorkbookShape.NUMERIC_ROWS)
+    public void numeric(Blackhole bh) throws Exception {
+        read(WorkbookShape.NUMERIC, bh);
+    }
+
+    private void read(WorkbookShape shape, final Blackhole bh) throws Exception {
+        Excel2007Reader reader = new Excel2007Reader(1, shape.file(dir, "xlsx"));
+        reader.setSheetParserType(SheetParserType.valueOf(parser));
+        reader.setValueMode(CellValueMode.valueOf(valueMode));
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                bh.consume(row);
+            }
+        });
+        try {
+            reader.processAllSheets();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package excel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.RowHandler;
+import vip.ipav.poi.excel.reader.WorkbookCache;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反复打开同一文件只读取开头几行(如读取模板表头)的耗时，每次操作为一次打开和读取
+ * STRINGS形状的xls共享字符串表大，不使用缓存时每次都要重新解析全局记录；
+ * xlsx由SXSSF写出，使用内联字符串，缓存只省去样式和表列表的解析
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class WorkbookCacheBenchmark {
+
+    @Param({"xlsx", "xls"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private File file;
+    private WorkbookCache cache;
+
+    @Setup
+    public void setup() throws Exception {
+        File dir = new File(System.getProperty("benchmark.workbooks", "target/benchmark-workbooks"));
+        file = WorkbookShape.STRINGS.file(dir, format);
+        cache = cached ? new WorkbookCache(4) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Benchmark
+    public void firstRows(final Blackhole bh) throws Exception {
+        try (ExcelReader reader = new ExcelReader(1, 10, file)) {
+            reader.setWorkbookCache(cache);
+            reader.read(new RowHandler() {
+                @Override
+                public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                    bh.consume(row);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package excel.benchmark;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * 基准测试使用的合成工作簿形状，行列数都在xls的限制(65536行、256列)以内，xls和xlsx内容相同
+ */
+public enum WorkbookShape {
+    /**
+     * 200列，数值、重复字符串、日期混合
+     */
+    WIDE(WorkbookShape.WIDE_ROWS, 200),
+    /**
+     * 5列，行数多
+     */
+    TALL(WorkbookShape.TALL_ROWS, 5),
+    /**
+     * 10列，几乎不重复的字符串，共享字符串表大
+     */
+    STRINGS(WorkbookShape.STRINGS_ROWS, 10),
+    /**
+     * 10列，全部为带小数的数值
+     */
+    NUMERIC(WorkbookShape.NUMERIC_ROWS, 10),
+    /**
+     * 10列，日期和日期时间交替
+     */
+    DATES(WorkbookShape.DATES_ROWS, 10),
+    /**
+     * 200列，每行只有3个单元格，每5行空1行
+     */
+    SPARSE(WorkbookShape.SPARSE_ROWS, 200);
+
+    // 各形状输出的行数，用于@OperationsPerInvocation，使结果按行计
+    static final int WIDE_ROWS = 2000;
+    static final int TALL_ROWS = 60000;
+    static final int STRINGS_ROWS = 20000;
+    static final int NUMERIC_ROWS = 20000;
+    static final int DATES_ROWS = 20000;
+    static final int SPARSE_ROWS = 20000;
+    // 稀疏形状中空行不会输出
+    static final int SPARSE_OUTPUT_ROWS = SPARSE_ROWS - (SPARSE_ROWS - 1) / 5;
+
+    private final int rows;
+    private final int columns;
+
+    WorkbookShape(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * 返回该形状的工作簿文件，不存在时生成
+     *
+     * @param dir    存放目录
+     * @param format xls或xlsx
+     * @return
+     * @throws IOException
+     */
+    public File file(File dir, String format) throws IOException {
+        File file = new File(dir, name().toLowerCase() + "." + format);
+        if (!file.exists()) {
+            dir.mkdirs();
+            File tmp = new File(dir, file.getName() + ".tmp");
+            write(tmp, "xls".equals(format));
+            if (!tmp.renameTo(file)) {
+                throw new IOException("无法生成" + file);
+            }
+        }
+        return file;
+    }
+
+    private void write(File file, boolean xls) throws IOException {
+        Workbook wb = xls ? new HSSFWorkbook() : new SXSSFWorkbook(100);
+        try {
+            CellStyle date = wb.createCellStyle();
+            date.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+            CellStyle dateTime = wb.createCellStyle();
+            dateTime.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+            Sheet sheet = wb.createSheet("data");
+            // 固定种子，每次生成的内容相同
+            Random random = new Random(rows * 31L + columns);
+            Row header = sheet.createRow(0);
+            for (int c = 0; c < columns; c++) {
+                header.createCell(c).setCellValue("col" + c);
+            }
+            // 表头也计入行数
+            for (int r = 1; r < rows; r++) {
+                if (this == SPARSE && r % 5 == 0) {
+                    continue;
+                }
+                Row row = sheet.createRow(r);
+                if (this == SPARSE) {
+                    for (int i = 0; i < 3; i++) {
+                        row.createCell((r * 7 + i * 61) % columns).setCellValue(random.nextInt(100000));
+                    }
+                    continue;
+                }
+                for (int c = 0; c < columns; c++) {
+                    switch (this) {
+                        case STRINGS:
+                            row.createCell(c).setCellValue(Long.toString(random.nextLong(), 36));
+                            break;
+                        case NUMERIC:
+                            row.createCell(c).setCellValue(random.nextInt(1000000) / 100.0);
+                            break;
+                        case DATES:
+                            if (c % 2 == 0) {
+                                row.createCell(c).setCellValue(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(9000)));
+                                row.getCell(c).setCellStyle(date);
+                            } else {
+                                row.createCell(c).setCellValue(LocalDateTime.of(2000, 1, 1, 0, 0).plusMinutes(random.nextInt(10000000)));
+                                row.getCell(c).setCellStyle(dateTime);
+                            }
+                            break;
+                        default:
+                            // WIDE、TALL：数值、重复字符串、日期交替
+                            if (c % 3 == 0) {
+                                row.createCell(c).setCellValue(random.nextInt(1000000) / 100.0);
+                            } else if (c % 3 == 1) {
+                                row.createCell(c).setCellValue("item-" + random.nextInt(500));
+                            } else {
+                                row.createCell(c).setCellValue(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(9000)));
+                                row.getCell(c).setCellStyle(date);
+                            }
+                    }
+                }
+            }
+            OutputStream out = new FileOutputStream(file);
+            try {
+                wb.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            wb.close();
+        }
+    }
+
+    /**
+     * 构建时生成所有形状的xls和xlsx文件
+     *
+     * @param args 存放目录
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "target/benchmark-workbooks");
+        for (WorkbookShape shape : values()) {
+            for (String format : new String[]{"xlsx", "xls"}) {
+                System.out.println("benchmark workbook: " + shape.file(dir, format));
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package excel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import vip.ipav.poi.excel.writer.AbstractExcelWriter;
+import vip.ipav.poi.excel.writer.Excel2007Writer;
+import vip.ipav.poi.excel.writer.StringStorage;
+import vip.ipav.poi.excel.writer.SxssfExcelWriter;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入1百万行(10列：数值、重复字符串、日期交替)的耗时，每次操作写一个完整的文件
+ * 结果中的gc.alloc.rate.norm为写一个文件分配的字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class WriterBenchmark {
+
+    private static final int COLUMNS = 10;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"RAW_SHARED", "RAW_INLINE", "SXSSF"})
+    public String writerType;
+
+    private File file;
+    private List<Object> row;
+
+    @Setup
+    public void setup() throws Exception {
+        file = File.createTempFile("writer", ".xlsx");
+        row = new ArrayList<>(COLUMNS);
+        for (int c = 0; c < COLUMNS; c++) {
+            row.add(null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long writeRows() throws Exception {
+        AbstractExcelWriter writer = createWriter();
+        try {
+            writer.startSheet("data");
+            LocalDate day = LocalDate.of(2020, 1, 1);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    if (c % 3 == 0) {
+                        row.set(c, r * 31.5 + c);
+                    } else if (c % 3 == 1) {
+                        row.set(c, "text-" + (r % 1000) + "-" + c);
+                    } else {
+                        row.set(c, day.plusDays(r % 3650));
+                    }
+                }
+                writer.writeRow(row);
+            }
+        } finally {
+            writer.close();
+        }
+        return file.length();
+    }
+
+    private AbstractExcelWriter createWriter() throws Exception {
+        if ("SXSSF".equals(writerType)) {
+            return new SxssfExcelWriter(file.getPath(), 100, StringStorage.INLINE);
+        }
+        Excel2007Writer writer = new Excel2007Writer(file.getPath());
+        writer.setStringStorage("RAW_INLINE".equals(writerType) ? StringStorage.INLINE : StringStorage.SHARED);
+        return writer;
+    }
+}
@@ -0,0 +1,172 @@
+package vip.ipav.poi.excel.jdbc;
+
+import vip.ipav.poi.excel.reader.BatchHandler;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 把按批读取的行写入数据库的批量回调，每批通过PreparedStatement的addBatch和executeBatch写入
+ * 写入在独立的线程上进行，写入第N批时读取器继续解析第N+1批，同一时间最多有一批在写入
+ * 连接不是自动提交时每批写入后提交，写入失败时回滚该批并在下一次回调或close()时抛出异常
+ * 读取结束后需要调用close()等待最后一批写入完成，close()不关闭连接
+ */
+public class JdbcBatchSink implements BatchHandler, Closeable {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ExecutorService writer;
+    private StatementBinder binder;
+    // 两个交替使用的批次缓冲，一个在写入时另一个接收下一批
+    private List<List<Object>> writing = new ArrayList<>();
+    private List<List<Object>> filling = new ArrayList<>();
+    private Future<?> pending;
+    private volatile long rowCount;
+    private boolean closed;
+
+    /**
+     * @param connection 数据库连接，由调用方关闭
+     * @param sql        插入语句，默认按顺序把行中的各列设置为参数
+     * @throws SQLException
+     */
+    public JdbcBatchSink(Connection connection, String sql) throws SQLException {
+        this.connection = connection;
+        this.statement = connection.prepareStatement(sql);
+        this.binder = new ColumnBinder(statement.getParameterMetaData().getParameterCount());
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "excel-jdbc-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 设置行到参数的绑定方式，默认第i列对应第i+1个参数，列数不足的参数设为null
+     *
+     * @param binder
+     */
+    public void setBinder(StatementBinder binder) {
+        this.binder = binder;
+    }
+
+    /**
+     * 已写入的行数
+     *
+     * @return
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void onBatch(int sheetIndex, List<List<Object>> rows) {
+        if (closed) {
+            throw new RuntimeException("JdbcBatchSink已关闭");
+        }
+        // 等待上一批写入完成后，上一批的缓冲可以接收下一批
+        await();
+        filling.clear();
+        filling.addAll(rows);
+        final List<List<Object>> batch = filling;
+        filling = writing;
+        writing = batch;
+        pending = writer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws SQLException {
+                write(batch);
+                return null;
+            }
+        });
+    }
+
+    private void write(List<List<Object>> batch) throws SQLException {
+        try {
+            for (List<Object> row : batch) {
+                binder.bind(statement, row);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            statement.clearBatch();
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            throw e;
+        }
+        rowCount += batch.size();
+    }
+
+    /**
+     * 等待正在写入的批次完成，写入失败时抛出异常
+     */
+    private void await() {
+        Future<?> future = pending;
+        if (future == null) {
+            return;
+        }
+        pending = null;
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待批量写入时被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("批量写入数据库失败", e.getCause());
+        }
+    }
+
+    /**
+     * 等待最后一批写入完成并关闭语句，不关闭连接
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            await();
+        } finally {
+            writer.shutdown();
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                throw new RuntimeException("关闭语句失败", e);
+            }
+        }
+    }
+
+    /**
+     * 按列的顺序设置参数
+     */
+    private static final class ColumnBinder implements StatementBinder {
+        private final int parameterCount;
+
+        private ColumnBinder(int parameterCount) {
+            this.parameterCount = parameterCount;
+        }
+
+        @Override
+        public void bind(PreparedStatement statement, List<Object> row) throws SQLException {
+            for (int i = 0; i < parameterCount; i++) {
+                statement.setObject(i + 1, i < row.size() ? row.get(i) : null);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package vip.ipav.poi.excel.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 把一行数据设置为PreparedStatement的参数
+ */
+public interface StatementBinder {
+
+    /**
+     * 设置一行的参数，之后由JdbcBatchSink调用addBatch
+     *
+     * @param statement 插入语句
+     * @param row       行数据
+     * @throws SQLException
+     */
+    void bind(PreparedStatement statement, List<Object> row) throws SQLException;
+}
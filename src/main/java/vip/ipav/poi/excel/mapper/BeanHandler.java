@@ -0,0 +1,18 @@
+package vip.ipav.poi.excel.mapper;
+
+/**
+ * 对象回调接口，每行转换为对象后立即回调
+ *
+ * @param <T> 行对应的类型
+ */
+public interface BeanHandler<T> {
+
+    /**
+     * 一行转换完成
+     *
+     * @param sheetIndex 表索引，从0开始
+     * @param rowNum     行号，从1开始
+     * @param bean       该行转换后的对象
+     */
+    void onBean(int sheetIndex, int rowNum, T bean);
+}
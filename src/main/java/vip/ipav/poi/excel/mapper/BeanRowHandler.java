@@ -0,0 +1,47 @@
+package vip.ipav.poi.excel.mapper;
+
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.util.List;
+
+/**
+ * 把读取器输出的行转换为对象的行回调，每个表根据各自的表头行确定字段对应的列
+ * 表头行及之前的行不转换
+ *
+ * @param <T> 行对应的类型
+ */
+public class BeanRowHandler<T> implements RowHandler {
+
+    private final RowMapper<T> mapper;
+    private final BeanHandler<T> handler;
+    private final boolean needsHeader;
+    // 当前表及其字段对应的列索引
+    private int sheetIndex = -1;
+    private int[] columns;
+
+    public BeanRowHandler(RowMapper<T> mapper, BeanHandler<T> handler) {
+        this.mapper = mapper;
+        this.handler = handler;
+        this.needsHeader = mapper.needsHeader();
+    }
+
+    @Override
+    public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+        if (sheetIndex != this.sheetIndex) {
+            this.sheetIndex = sheetIndex;
+            columns = needsHeader ? null : mapper.resolveColumns(sheetIndex, null);
+        }
+        if (rowNum == mapper.getHeaderRow() && needsHeader) {
+            columns = mapper.resolveColumns(sheetIndex, row);
+            return;
+        }
+        if (rowNum <= mapper.getHeaderRow()) {
+            return;
+        }
+        if (columns == null) {
+            throw new ExcelMappingException(sheetIndex, rowNum, -1,
+                    "未读取到第" + mapper.getHeaderRow() + "行的表头，读取器的beginRow不能大于表头行", null);
+        }
+        handler.onBean(sheetIndex, rowNum, mapper.map(sheetIndex, rowNum, row, columns));
+    }
+}
@@ -0,0 +1,29 @@
+package vip.ipav.poi.excel.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 字段与Excel列的绑定，按表头名称或列索引指定，两者都指定时使用列索引
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ExcelColumn {
+
+    /**
+     * 表头名称
+     */
+    String value() default "";
+
+    /**
+     * 列索引，从0开始
+     */
+    int index() default -1;
+
+    /**
+     * 字符串转换为日期时使用的格式，如yyyy年MM月dd日，默认识别yyyy-MM-dd和yyyy/MM/dd
+     */
+    String format() default "";
+}
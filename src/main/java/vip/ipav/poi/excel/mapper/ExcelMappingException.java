@@ -0,0 +1,49 @@
+package vip.ipav.poi.excel.mapper;
+
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * 行转换为对象失败，带有出错单元格所在的表、行和列
+ */
+public class ExcelMappingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int sheetIndex;
+    private final int rowNum;
+    private final int column;
+
+    /**
+     * @param sheetIndex 表索引，从0开始
+     * @param rowNum     行号，从1开始
+     * @param column     列索引，从0开始，与具体列无关时为-1
+     * @param message
+     * @param cause
+     */
+    public ExcelMappingException(int sheetIndex, int rowNum, int column, String message, Throwable cause) {
+        super(position(sheetIndex, rowNum, column) + message, cause);
+        this.sheetIndex = sheetIndex;
+        this.rowNum = rowNum;
+        this.column = column;
+    }
+
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    private static String position(int sheetIndex, int rowNum, int column) {
+        String position = "第" + (sheetIndex + 1) + "个表第" + rowNum + "行";
+        if (column >= 0) {
+            position += CellReference.convertNumToColString(column) + "列";
+        }
+        return position + ": ";
+    }
+}
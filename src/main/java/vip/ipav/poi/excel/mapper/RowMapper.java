@@ -0,0 +1,357 @@
+package vip.ipav.poi.excel.mapper;
+
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 行到对象的映射器，字段按表头名称或列索引绑定
+ * 构造器、字段写入的MethodHandle和各字段的转换器在创建映射器时确定，转换每行时不再反射查找
+ * 映射器不可变，可以在多个读取器之间共用
+ *
+ * @param <T> 行对应的类型，需要有无参构造器
+ */
+public final class RowMapper<T> {
+
+    // 按注解创建的字段绑定，按类缓存
+    private static final ConcurrentMap<Class<?>, Binding[]> ANNOTATED = new ConcurrentHashMap<>();
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Binding[] bindings;
+    private final int headerRow;
+
+    private RowMapper(Class<T> type, Binding[] bindings, int headerRow) {
+        this.type = type;
+        this.constructor = constructor(type);
+        this.bindings = bindings;
+        this.headerRow = headerRow;
+    }
+
+    /**
+     * 按字段上的ExcelColumn注解创建映射器，第一行为表头
+     *
+     * @param type
+     * @return
+     */
+    public static <T> RowMapper<T> of(Class<T> type) {
+        return of(type, 1);
+    }
+
+    /**
+     * 按字段上的ExcelColumn注解创建映射器
+     *
+     * @param type
+     * @param headerRow 表头所在行号，从1开始，该行及之前的行不转换；没有表头时传0
+     * @return
+     */
+    public static <T> RowMapper<T> of(Class<T> type, int headerRow) {
+        Binding[] bindings = ANNOTATED.get(type);
+        if (bindings == null) {
+            bindings = annotatedBindings(type);
+            ANNOTATED.putIfAbsent(type, bindings);
+        }
+        return new RowMapper<>(type, bindings, headerRow);
+    }
+
+    /**
+     * 不使用注解，通过构建器指定字段与列的绑定
+     *
+     * @param type
+     * @return
+     */
+    public static <T> Builder<T> builder(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public int getHeaderRow() {
+        return headerRow;
+    }
+
+    /**
+     * 使用映射器读取所有表，每行转换为对象后交给回调，会接管读取器的RowHandler
+     * 读取器的beginRow不能大于表头行，否则读不到表头
+     *
+     * @param reader
+     * @param handler
+     * @throws Exception
+     */
+    public void read(AbstractExcelReader reader, BeanHandler<T> handler) throws Exception {
+        reader.setRowHandler(new BeanRowHandler<>(this, handler));
+        reader.processAllSheets();
+    }
+
+    /**
+     * 使用映射器读取所有表，返回所有行转换后的对象
+     *
+     * @param reader
+     * @return
+     * @throws Exception
+     */
+    public List<T> readAll(AbstractExcelReader reader) throws Exception {
+        final List<T> beans = new ArrayList<>();
+        read(reader, new BeanHandler<T>() {
+            @Override
+            public void onBean(int sheetIndex, int rowNum, T bean) {
+                beans.add(bean);
+            }
+        });
+        return beans;
+    }
+
+    /**
+     * 是否有按表头名称绑定的字段
+     */
+    boolean needsHeader() {
+        for (Binding binding : bindings) {
+            if (binding.header != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 根据表头行确定各字段对应的列索引
+     *
+     * @param sheetIndex 表索引
+     * @param header     表头行的数据，没有表头时为null
+     * @return 下标与字段绑定一致
+     */
+    int[] resolveColumns(int sheetIndex, List<Object> header) {
+        int[] columns = new int[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            Binding binding = bindings[i];
+            if (binding.header == null) {
+                columns[i] = binding.index;
+                continue;
+            }
+            columns[i] = -1;
+            for (int column = 0; header != null && column < header.size(); column++) {
+                Object value = header.get(column);
+                if (value != null && binding.header.equals(value.toString().trim())) {
+                    columns[i] = column;
+                    break;
+                }
+            }
+            if (columns[i] < 0) {
+                throw new ExcelMappingException(sheetIndex, headerRow, -1, "未找到表头: " + binding.header, null);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 把一行转换为对象
+     *
+     * @param sheetIndex 表索引，用于出错时定位
+     * @param rowNum     行号，用于出错时定位
+     * @param row        行数据
+     * @param columns    resolveColumns确定的列索引
+     * @return
+     */
+    T map(int sheetIndex, int rowNum, List<Object> row, int[] columns) {
+        Object bean;
+        try {
+            bean = constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new ExcelMappingException(sheetIndex, rowNum, -1, "无法创建" + type.getName(), e);
+        }
+        for (int i = 0; i < bindings.length; i++) {
+            int column = columns[i];
+            Object value = column < row.size() ? row.get(column) : null;
+            if (value == null) {
+                continue;
+            }
+            Binding binding = bindings[i];
+            Object converted;
+            try {
+                converted = binding.converter.convert(value);
+            } catch (RuntimeException e) {
+                throw new ExcelMappingException(sheetIndex, rowNum, column,
+                        "无法将'" + value + "'转换为" + binding.fieldType.getSimpleName() + "(" + binding.fieldName + ")", e);
+            }
+            // 基本类型字段遇到空值时保留默认值
+            if (converted == null && binding.fieldType.isPrimitive()) {
+                continue;
+            }
+            try {
+                binding.setter.invokeExact(bean, converted);
+            } catch (Throwable e) {
+                throw new ExcelMappingException(sheetIndex, rowNum, column, "无法设置字段" + binding.fieldName, e);
+            }
+        }
+        return type.cast(bean);
+    }
+
+    private static Binding[] annotatedBindings(Class<?> type) {
+        List<Binding> bindings = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                ExcelColumn column = field.getAnnotation(ExcelColumn.class);
+                if (column == null) {
+                    continue;
+                }
+                String header = column.index() >= 0 ? null : column.value().trim();
+                if (header != null && header.isEmpty()) {
+                    throw new RuntimeException("字段" + field.getName() + "未指定表头名称或列索引");
+                }
+                bindings.add(new Binding(field, header, column.index(), column.format()));
+            }
+        }
+        if (bindings.isEmpty()) {
+            throw new RuntimeException(type.getName() + "没有ExcelColumn注解的字段");
+        }
+        return bindings.toArray(new Binding[0]);
+    }
+
+    private static MethodHandle constructor(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(type.getName() + "需要无参构造器", e);
+        }
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
+        }
+        throw new RuntimeException(type.getName() + "中没有字段" + name);
+    }
+
+    /**
+     * 字段与列的绑定
+     */
+    private static final class Binding {
+        private final String fieldName;
+        private final Class<?> fieldType;
+        // 表头名称，按列索引绑定时为null
+        private final String header;
+        private final int index;
+        private final ValueConverter converter;
+        private final MethodHandle setter;
+
+        private Binding(Field field, String header, int index, String format) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                throw new RuntimeException("字段" + field.getName() + "不能是static或final");
+            }
+            this.fieldName = field.getName();
+            this.fieldType = field.getType();
+            this.header = header;
+            this.index = index;
+            this.converter = ValueConverter.forType(field.getType(), format);
+            try {
+                field.setAccessible(true);
+                this.setter = MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("无法访问字段" + field.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * 映射器构建器
+     *
+     * @param <T>
+     */
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final List<Binding> bindings = new ArrayList<>();
+        private int headerRow = 1;
+
+        private Builder(Class<T> type) {
+            this.type = type;
+        }
+
+        /**
+         * 按表头名称绑定字段
+         *
+         * @param header 表头名称
+         * @param field  字段名
+         * @return
+         */
+        public Builder<T> column(String header, String field) {
+            return column(header, field, null);
+        }
+
+        /**
+         * 按表头名称绑定字段
+         *
+         * @param header 表头名称
+         * @param field  字段名
+         * @param format 字符串转换为日期时使用的格式
+         * @return
+         */
+        public Builder<T> column(String header, String field, String format) {
+            bindings.add(new Binding(findField(type, field), header.trim(), -1, format));
+            return this;
+        }
+
+        /**
+         * 按列索引绑定字段
+         *
+         * @param index 列索引，从0开始
+         * @param field 字段名
+         * @return
+         */
+        public Builder<T> column(int index, String field) {
+            return column(index, field, null);
+        }
+
+        /**
+         * 按列索引绑定字段
+         *
+         * @param index  列索引，从0开始
+         * @param field  字段名
+         * @param format 字符串转换为日期时使用的格式
+         * @return
+         */
+        public Builder<T> column(int index, String field, String format) {
+            if (index < 0) {
+                throw new RuntimeException("无效的列索引: " + index);
+            }
+            bindings.add(new Binding(findField(type, field), null, index, format));
+            return this;
+        }
+
+        /**
+         * 表头所在行号，从1开始，默认为1，该行及之前的行不转换；没有表头时传0
+         *
+         * @param headerRow
+         * @return
+         */
+        public Builder<T> headerRow(int headerRow) {
+            this.headerRow = headerRow;
+            return this;
+        }
+
+        public RowMapper<T> build() {
+            if (bindings.isEmpty()) {
+                throw new RuntimeException("没有绑定任何字段");
+            }
+            return new RowMapper<>(type, bindings.toArray(new Binding[0]), headerRow);
+        }
+    }
+}
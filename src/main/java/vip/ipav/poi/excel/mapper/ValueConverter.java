@@ -0,0 +1,205 @@
+package vip.ipav.poi.excel.mapper;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * 单元格值到字段类型的转换，创建映射器时按字段类型选定，转换时不再判断字段类型
+ * 单元格值可以是FORMATTED模式的字符串，也可以是TYPED模式的Double、Boolean、LocalDate、LocalDateTime
+ */
+abstract class ValueConverter {
+
+    /**
+     * 转换单元格值
+     *
+     * @param value 单元格值，不为null
+     * @return 空字符串返回null
+     */
+    abstract Object convert(Object value);
+
+    /**
+     * 按字段类型选定转换器
+     *
+     * @param type   字段类型
+     * @param format 日期格式，可以为空
+     * @return
+     */
+    static ValueConverter forType(final Class<?> type, String format) {
+        final DateTimeFormatter formatter = format == null || format.isEmpty() ? null : DateTimeFormatter.ofPattern(format);
+        if (type == String.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    if (value instanceof Double) {
+                        return BigDecimal.valueOf((Double) value).stripTrailingZeros().toPlainString();
+                    }
+                    return value.toString();
+                }
+            };
+        }
+        if (type == int.class || type == Integer.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    BigDecimal number = toBigDecimal(value);
+                    return number == null ? null : number.intValueExact();
+                }
+            };
+        }
+        if (type == long.class || type == Long.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    BigDecimal number = toBigDecimal(value);
+                    return number == null ? null : number.longValueExact();
+                }
+            };
+        }
+        if (type == double.class || type == Double.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    if (value instanceof Number) {
+                        return ((Number) value).doubleValue();
+                    }
+                    BigDecimal number = toBigDecimal(value);
+                    return number == null ? null : number.doubleValue();
+                }
+            };
+        }
+        if (type == BigDecimal.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    return toBigDecimal(value);
+                }
+            };
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    if (value instanceof Boolean) {
+                        return value;
+                    }
+                    String text = text(value);
+                    if (text == null) {
+                        return null;
+                    }
+                    if ("true".equalsIgnoreCase(text) || "1".equals(text)) {
+                        return Boolean.TRUE;
+                    }
+                    if ("false".equalsIgnoreCase(text) || "0".equals(text)) {
+                        return Boolean.FALSE;
+                    }
+                    throw new IllegalArgumentException("不是布尔值");
+                }
+            };
+        }
+        if (type == LocalDate.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    if (value instanceof LocalDate) {
+                        return value;
+                    }
+                    if (value instanceof LocalDateTime) {
+                        return ((LocalDateTime) value).toLocalDate();
+                    }
+                    if (value instanceof Number) {
+                        return DateUtil.getLocalDateTime(((Number) value).doubleValue()).toLocalDate();
+                    }
+                    String text = text(value);
+                    if (text == null) {
+                        return null;
+                    }
+                    return formatter != null ? LocalDate.parse(text, formatter)
+                            : LocalDate.parse(text.replace('/', '-'));
+                }
+            };
+        }
+        if (type == LocalDateTime.class || type == Date.class) {
+            final boolean legacy = type == Date.class;
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    LocalDateTime dateTime = toLocalDateTime(value, formatter);
+                    if (dateTime == null || !legacy) {
+                        return dateTime;
+                    }
+                    return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+                }
+            };
+        }
+        if (type.isEnum()) {
+            return new ValueConverter() {
+                @Override
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                Object convert(Object value) {
+                    String text = text(value);
+                    return text == null ? null : Enum.valueOf((Class) type, text);
+                }
+            };
+        }
+        if (type == Object.class) {
+            return new ValueConverter() {
+                @Override
+                Object convert(Object value) {
+                    return value;
+                }
+            };
+        }
+        throw new RuntimeException("不支持的字段类型: " + type.getName());
+    }
+
+    /**
+     * 去掉首尾空白的字符串，空字符串返回null
+     */
+    private static String text(Object value) {
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof Double) {
+            return BigDecimal.valueOf((Double) value);
+        }
+        if (value instanceof Number) {
+            return new BigDecimal(value.toString());
+        }
+        String text = text(value);
+        // 格式化后的数值可能带有千分位
+        return text == null ? null : new BigDecimal(text.replace(",", ""));
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value, DateTimeFormatter formatter) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).atStartOfDay();
+        }
+        if (value instanceof Number) {
+            return DateUtil.getLocalDateTime(((Number) value).doubleValue());
+        }
+        String text = text(value);
+        if (text == null) {
+            return null;
+        }
+        if (formatter != null) {
+            return LocalDateTime.parse(text, formatter);
+        }
+        text = text.replace('/', '-');
+        // 只有日期部分时取当天零点
+        if (text.length() <= 10) {
+            return LocalDate.parse(text).atStartOfDay();
+        }
+        return LocalDateTime.parse(text.replace(' ', 'T'));
+    }
+}
@@ -0,0 +1,553 @@
+package vip.ipav.poi.excel.reader;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Excel2003Reader和Excel2007Reader共用的行范围与行回调处理
+ * 读取器持有打开的文件，读取完毕后应调用close()
+ */
+public abstract class AbstractExcelReader implements Closeable {
+
+    // 开始读数据的行数
+    protected int beginRow;
+    // 结束读数据的行数
+    protected int endRow;
+    // 所有值列表，仅在未设置RowHandler时填充
+    protected List<List<Object>> allValueList = new ArrayList<>();
+    // 行回调，为null时把行数据追加到allValueList
+    private RowHandler rowHandler;
+    // 单元格值的输出方式
+    protected CellValueMode valueMode = CellValueMode.FORMATTED;
+    // 列投影，为null时输出所有列
+    private ColumnProjection columnProjection;
+    // 是否把空字符串输出为null
+    private boolean blankAsNull;
+    // 是否输出只保存有值单元格的稀疏行
+    private boolean sparseRows;
+    // 是否已请求停止解析
+    private volatile boolean stopped;
+    // 解析监听，为null时不统计指标
+    private ParseListener parseListener;
+    // 每输出多少行调用一次onProgress
+    private int progressInterval;
+    // 本次解析的指标，未设置监听时为null
+    private ParseMetrics metrics;
+    // 从该检查点之后开始读取，为null时从头读取
+    private Checkpoint resumeFrom;
+    // 读到该检查点(含)为止，为null时读到文件末尾
+    private Checkpoint resumeTo;
+    // 最近输出的一行的位置，checkpointSheet为-1时尚未输出
+    private int checkpointSheet = -1;
+    private int checkpointRow;
+    private long checkpointOffset;
+    private int checkpointColumns;
+    // 工作薄会话的缓存，为null时会话只在读取器内复用
+    private WorkbookCache workbookCache;
+    // 读取限制，默认不限制
+    private ReadLimits readLimits = new ReadLimits();
+    // 最近一次读取中与读取限制对应的最大值
+    private final ReadUsage readUsage = new ReadUsage();
+
+    public List<List<Object>> getAllValueList() {
+        return allValueList;
+    }
+
+    public RowHandler getRowHandler() {
+        return rowHandler;
+    }
+
+    /**
+     * 设置行回调，设置后每行数据直接交给回调处理，不再填充allValueList
+     *
+     * @param rowHandler 行回调，传null恢复为填充allValueList
+     */
+    public void setRowHandler(RowHandler rowHandler) {
+        this.rowHandler = rowHandler;
+    }
+
+    public CellValueMode getValueMode() {
+        return valueMode;
+    }
+
+    /**
+     * 设置单元格值的输出方式，默认FORMATTED输出格式化后的字符串
+     *
+     * @param valueMode
+     */
+    public void setValueMode(CellValueMode valueMode) {
+        this.valueMode = valueMode;
+    }
+
+    public boolean isBlankAsNull() {
+        return blankAsNull;
+    }
+
+    /**
+     * 默认不存在的单元格输出null，存在但没有内容(空白单元格、空字符串或只有空白字符)的单元格输出空字符串，
+     * 设置为true时后者也输出null
+     *
+     * @param blankAsNull
+     */
+    public void setBlankAsNull(boolean blankAsNull) {
+        this.blankAsNull = blankAsNull;
+    }
+
+    public boolean isSparseRows() {
+        return sparseRows;
+    }
+
+    /**
+     * 设置为true时输出SparseRow，只保存有值的单元格，适合大部分单元格为空的表
+     * 输出行的size()和get(i)与普通模式一致，但行是只读的；设置了列投影时仍输出普通的行
+     *
+     * @param sparseRows
+     */
+    public void setSparseRows(boolean sparseRows) {
+        this.sparseRows = sparseRows;
+    }
+
+    /**
+     * 只读取指定的列，输出行只包含这些列并按指定的顺序排列，其余单元格不解析
+     *
+     * @param indexes 列索引，从0开始，传null恢复为读取所有列
+     */
+    public void setColumnIndexes(int... indexes) {
+        this.columnProjection = indexes == null ? null : ColumnProjection.ofIndexes(indexes);
+    }
+
+    /**
+     * 只读取指定的列，同setColumnIndexes
+     *
+     * @param letters 列名，如A、AC，传null恢复为读取所有列
+     */
+    public void setColumnLetters(String... letters) {
+        this.columnProjection = letters == null ? null : ColumnProjection.ofLetters(letters);
+    }
+
+    /**
+     * 按表头名称只读取指定的列，每个表根据各自的表头行确定列，找不到表头时抛出异常
+     * 表头行之前的行没有可输出的列，输出的各列均为null
+     *
+     * @param headerRow 表头所在行号，从1开始
+     * @param headers   表头名称，传null恢复为读取所有列
+     */
+    public void setColumnHeaders(int headerRow, String... headers) {
+        this.columnProjection = headers == null ? null : ColumnProjection.ofHeaders(headers, headerRow);
+    }
+
+    public WorkbookCache getWorkbookCache() {
+        return workbookCache;
+    }
+
+    /**
+     * 设置工作薄会话的缓存，按文件或路径打开的读取器从缓存中取出已解析的样式、共享字符串和表的位置
+     * 未设置时只在同一读取器的多次读取之间复用，重新open或close时释放
+     *
+     * @param workbookCache 多个读取器共享的缓存，传null不使用缓存
+     */
+    public void setWorkbookCache(WorkbookCache workbookCache) {
+        this.workbookCache = workbookCache;
+    }
+
+    public ReadLimits getReadLimits() {
+        return readLimits;
+    }
+
+    /**
+     * 设置读取限制，读取不可信的文件时使用，超出时抛出ReadLimitExceededException
+     *
+     * @param readLimits 传null恢复为不限制
+     */
+    public void setReadLimits(ReadLimits readLimits) {
+        this.readLimits = readLimits == null ? new ReadLimits() : readLimits;
+    }
+
+    /**
+     * 最近一次读取中与读取限制各项对应的最大值，读取过程中可以在其他线程上查看
+     *
+     * @return
+     */
+    public ReadUsage getReadUsage() {
+        return readUsage;
+    }
+
+    ColumnProjection getColumnProjection() {
+        return columnProjection;
+    }
+
+    void setColumnProjection(ColumnProjection columnProjection) {
+        this.columnProjection = columnProjection;
+    }
+
+    /**
+     * 停止当前的解析，可以在行回调中调用，当前行输出后不再解析后续的行和表
+     * 每次开始解析时重置
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * 开始解析前重置停止标志和检查点
+     */
+    protected void resetStop() {
+        this.stopped = false;
+        this.checkpointSheet = -1;
+    }
+
+    /**
+     * 只读取两个检查点之间的行，即from之后到to(含)为止，from之前的表不解析
+     * 与beginRow、endRow同时生效
+     *
+     * @param from 开始的检查点，为null时从头读取
+     * @param to   结束的检查点，为null时读到文件末尾
+     */
+    public void setResume(Checkpoint from, Checkpoint to) {
+        this.resumeFrom = from;
+        this.resumeTo = to;
+    }
+
+    public Checkpoint getResumeFrom() {
+        return resumeFrom;
+    }
+
+    public Checkpoint getResumeTo() {
+        return resumeTo;
+    }
+
+    /**
+     * 最近输出的一行的检查点，在行回调中调用时即为当前行，保存后可通过setResume从该行之后继续读取
+     * 应在行回调中或解析结束后调用
+     *
+     * @return 尚未输出任何行时为null
+     */
+    public Checkpoint getCheckpoint() {
+        if (checkpointSheet < 0) {
+            return null;
+        }
+        return new Checkpoint(checkpointSheet, checkpointRow, checkpointOffset, checkpointColumns);
+    }
+
+    /**
+     * 按行数把文件切分为多段，返回各段结束位置的检查点，不解析单元格内容
+     * 第i段为setResume(第i-1个检查点, 第i个检查点)，第一段从头开始，最后一段为setResume(最后一个检查点, null)
+     * 各段可以在不同线程上用各自的读取器同时读取
+     *
+     * @param rowsPerChunk 每段的行数
+     * @return
+     * @throws Exception
+     */
+    public abstract List<Checkpoint> split(int rowsPerChunk) throws Exception;
+
+    public ParseListener getParseListener() {
+        return parseListener;
+    }
+
+    /**
+     * 设置解析监听，统计行数、单元格数、读取字节数和各阶段耗时，未设置时不统计
+     *
+     * @param parseListener    解析监听，传null不再统计
+     * @param progressInterval 每输出多少行调用一次onProgress，小于等于0时不调用
+     */
+    public void setParseListener(ParseListener parseListener, int progressInterval) {
+        this.parseListener = parseListener;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * 最近一次解析的指标，未设置解析监听时为null
+     *
+     * @return
+     */
+    public ParseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 开始解析时创建本次解析的指标，并清零读取限制的统计
+     */
+    protected void beginMetrics() {
+        readUsage.reset();
+        this.metrics = parseListener == null ? null : new ParseMetrics(-1);
+    }
+
+    /**
+     * 解析结束，通知监听
+     */
+    protected void finishMetrics() {
+        if (metrics != null) {
+            metrics.finish();
+            parseListener.onFinish(metrics);
+        }
+    }
+
+    /**
+     * 开始解析一个表，并行解析时在解析该表的线程上调用
+     *
+     * @param sheetIndex 表索引，从0开始
+     * @return 该表的指标，未设置监听时为null
+     */
+    protected ParseMetrics beginSheetMetrics(int sheetIndex) {
+        if (metrics == null) {
+            return null;
+        }
+        parseListener.onSheetStart(sheetIndex);
+        return new ParseMetrics(sheetIndex);
+    }
+
+    /**
+     * 一个表解析结束，把该表的指标累加到本次解析的指标并通知监听
+     *
+     * @param sheet beginSheetMetrics返回的指标，可以为null
+     */
+    protected void finishSheetMetrics(ParseMetrics sheet) {
+        if (sheet == null) {
+            return;
+        }
+        sheet.finish();
+        metrics.merge(sheet);
+        parseListener.onSheetEnd(sheet.getSheetIndex(), sheet);
+    }
+
+    /**
+     * 行号是否已超过endRow，表中的行按行号递增，超过后该表不再有需要读取的行
+     *
+     * @param rowNum 行号，从1开始
+     * @return
+     */
+    protected boolean isPastEnd(int rowNum) {
+        return endRow > 0 && rowNum > endRow;
+    }
+
+    /**
+     * 行是否已超过setResume的结束检查点，超过后该表和之后的表都不再读取
+     *
+     * @param sheetIndex 表索引
+     * @param rowNum     行号，从1开始
+     * @return
+     */
+    protected boolean isPastCheckpoint(int sheetIndex, int rowNum) {
+        return resumeTo != null && !resumeTo.covers(sheetIndex, rowNum);
+    }
+
+    /**
+     * 表是否在setResume的范围内，范围之外的表不解析
+     *
+     * @param sheetIndex 表索引
+     * @return
+     */
+    protected boolean isSheetInRange(int sheetIndex) {
+        return (resumeFrom == null || sheetIndex >= resumeFrom.getSheetIndex())
+                && (resumeTo == null || sheetIndex <= resumeTo.getSheetIndex());
+    }
+
+    /**
+     * 读取文件里面的所有数据
+     *
+     * @throws Exception
+     */
+    public abstract void processAllSheets() throws Exception;
+
+    /**
+     * 读取第rId个表的数据，同readSheet(rId - 1)
+     * 参数是表在工作薄中的序号，不是xlsx的关系id，xlsx中rIdN不一定对应第N个表
+     *
+     * @param rId 1,2对应工作薄中的第一个和第二个表
+     * @throws Exception
+     */
+    public abstract void processOneSheet(Integer rId) throws Exception;
+
+    /**
+     * 按工作薄中的顺序列出所有表的表名，不读取表数据
+     *
+     * @return
+     * @throws Exception
+     */
+    public abstract List<String> getSheetNames() throws Exception;
+
+    /**
+     * 表目录，按工作薄中的顺序列出所有表的表名和数据范围
+     * 第一次调用时只读取各表开头记录的数据范围，不解析单元格，之后复用
+     *
+     * @return
+     * @throws Exception
+     */
+    public abstract List<SheetInfo> getSheets() throws Exception;
+
+    /**
+     * 只读取一个表，直接定位到该表的数据，不解析其他表
+     *
+     * @param index 表在工作薄中的索引，从0开始
+     * @throws Exception
+     */
+    public abstract void readSheet(int index) throws Exception;
+
+    /**
+     * 按表名只读取一个表
+     *
+     * @param name 表名
+     * @throws Exception 找不到该表时抛出RuntimeException
+     */
+    public void readSheet(String name) throws Exception {
+        int index = getSheetNames().indexOf(name);
+        if (index < 0) {
+            throw new RuntimeException("找不到表: " + name);
+        }
+        readSheet(index);
+    }
+
+    /**
+     * 检查表索引是否有效
+     *
+     * @param index      表索引
+     * @param sheetCount 表的数量
+     */
+    protected static void checkSheetIndex(int index, int sheetCount) {
+        if (index < 0 || index >= sheetCount) {
+            throw new RuntimeException("表索引超出范围: " + index + "，共" + sheetCount + "个表");
+        }
+    }
+
+    /**
+     * 以拉取方式读取，解析在后台线程进行，调用方读取第一行时解析可能仍在进行
+     * 该方法会接管读取器的RowHandler，读取完毕或不再需要时应关闭迭代器
+     *
+     * @param rId      读取的表序号，同processOneSheet，为null时读取所有表
+     * @param capacity 缓冲的最大行数，队列满时解析线程等待
+     * @return
+     */
+    public RowIterator iterator(final Integer rId, int capacity) {
+        return iterator(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (rId == null) {
+                    processAllSheets();
+                } else {
+                    processOneSheet(rId);
+                }
+                return null;
+            }
+        }, capacity);
+    }
+
+    /**
+     * 以Stream方式读取，参数同iterator，关闭Stream时结束后台解析
+     *
+     * @param rId      读取的表序号，同processOneSheet，为null时读取所有表
+     * @param capacity 缓冲的最大行数
+     * @return
+     */
+    public Stream<List<Object>> stream(Integer rId, int capacity) {
+        return stream(iterator(rId, capacity));
+    }
+
+    /**
+     * 接管RowHandler，在后台线程上执行读取任务
+     *
+     * @param task     读取任务，输出的行交给迭代器
+     * @param capacity 缓冲的最大行数
+     * @return
+     */
+    RowIterator iterator(Callable<Void> task, int capacity) {
+        RowIterator iterator = new RowIterator(capacity);
+        setRowHandler(iterator);
+        iterator.start(task);
+        return iterator;
+    }
+
+    /**
+     * 把迭代器包装为Stream，关闭Stream时关闭迭代器
+     */
+    static Stream<List<Object>> stream(final RowIterator iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        iterator.close();
+                    }
+                });
+    }
+
+    /**
+     * 判断行号是否在beginRow和endRow之间
+     *
+     * @param rowNum 行号，从1开始
+     * @return
+     */
+    protected boolean isInRange(int rowNum) {
+        return rowNum >= beginRow && (endRow <= 0 || rowNum <= endRow);
+    }
+
+    /**
+     * 判断行号是否在beginRow和endRow之间，且在setResume的开始检查点之后
+     *
+     * @param sheetIndex 表索引
+     * @param rowNum     行号，从1开始
+     * @return
+     */
+    protected boolean isInRange(int sheetIndex, int rowNum) {
+        return isInRange(rowNum) && (resumeFrom == null || !resumeFrom.covers(sheetIndex, rowNum));
+    }
+
+    /**
+     * 输出一行数据
+     *
+     * @param sheetIndex 表索引，从0开始
+     * @param rowNum     行号，从1开始
+     * @param row        行数据
+     */
+    protected void emitRow(int sheetIndex, int rowNum, List<Object> row) {
+        emitRow(sheetIndex, rowNum, row, -1, -1);
+    }
+
+    /**
+     * 输出一行数据并记录该行的检查点
+     *
+     * @param sheetIndex 表索引，从0开始
+     * @param rowNum     行号，从1开始
+     * @param row        行数据
+     * @param byteOffset 该行之后在xlsx表数据中的字节偏移，未知时为-1
+     * @param columns    xlsx补全行尾使用的行宽，未知时为-1
+     */
+    protected void emitRow(int sheetIndex, int rowNum, List<Object> row, long byteOffset, int columns) {
+        checkpointSheet = sheetIndex;
+        checkpointRow = rowNum;
+        checkpointOffset = byteOffset;
+        checkpointColumns = columns;
+        if (blankAsNull && row instanceof SparseRow) {
+            ((SparseRow) row).removeBlanks();
+        } else if (blankAsNull) {
+            for (int i = 0; i < row.size(); i++) {
+                if ("".equals(row.get(i))) {
+                    row.set(i, null);
+                }
+            }
+        }
+        ParseMetrics total = metrics;
+        long start = total == null ? 0 : System.nanoTime();
+        if (rowHandler == null) {
+            allValueList.add(row);
+        } else {
+            rowHandler.onRow(sheetIndex, rowNum, row);
+        }
+        if (total != null) {
+            total.callbackNanos += System.nanoTime() - start;
+            total.rows++;
+            if (progressInterval > 0 && total.rows % progressInterval == 0) {
+                parseListener.onProgress(total);
+            }
+        }
+    }
+}
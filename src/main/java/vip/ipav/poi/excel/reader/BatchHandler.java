@@ -0,0 +1,18 @@
+package vip.ipav.poi.excel.reader;
+
+import java.util.List;
+
+/**
+ * 批量回调接口，读取的行按批交给回调，适合批量写入数据库等场景
+ * 一批中的行都属于同一个表，换表时先输出上一个表剩余的行
+ */
+public interface BatchHandler {
+
+    /**
+     * 一批行读取完成
+     *
+     * @param sheetIndex 表索引，从0开始
+     * @param rows       该批的行，列表在回调结束后会被清空复用，需要保留时应复制
+     */
+    void onBatch(int sheetIndex, List<List<Object>> rows);
+}
@@ -0,0 +1,101 @@
+package vip.ipav.poi.excel.reader;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把逐行回调合并为批量回调的行回调，行数达到batchSize或估算的内存占用达到maxBytes时输出一批
+ * 输出批次的列表在回调后清空复用，读取结束后需要调用flush()输出最后一批
+ */
+public class BatchRowHandler implements RowHandler {
+
+    // 单个对象的估算开销
+    private static final int OBJECT_BYTES = 16;
+
+    private final BatchHandler handler;
+    private final int batchSize;
+    private final long maxBytes;
+    private final List<List<Object>> batch;
+    private long batchBytes;
+    private int sheetIndex = -1;
+
+    /**
+     * @param handler   批量回调
+     * @param batchSize 每批的最大行数
+     * @param maxBytes  每批估算的最大内存占用，小于等于0时只按行数分批
+     */
+    public BatchRowHandler(BatchHandler handler, int batchSize, long maxBytes) {
+        if (batchSize <= 0) {
+            throw new RuntimeException("无效的批量大小: " + batchSize);
+        }
+        this.handler = handler;
+        this.batchSize = batchSize;
+        this.maxBytes = maxBytes;
+        this.batch = new ArrayList<>(Math.min(batchSize, 4096));
+    }
+
+    @Override
+    public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+        if (sheetIndex != this.sheetIndex) {
+            flush();
+            this.sheetIndex = sheetIndex;
+        }
+        batch.add(row);
+        if (maxBytes > 0) {
+            batchBytes += estimateBytes(row);
+        }
+        if (batch.size() >= batchSize || maxBytes > 0 && batchBytes >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * 输出尚未输出的行
+     */
+    public void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            handler.onBatch(sheetIndex, batch);
+        } finally {
+            batch.clear();
+            batchBytes = 0;
+        }
+    }
+
+    /**
+     * 估算一行的内存占用
+     *
+     * @param row
+     * @return
+     */
+    static long estimateBytes(List<Object> row) {
+        if (row instanceof SparseRow) {
+            // 稀疏行只占用有值单元格的列索引和引用
+            SparseRow sparse = (SparseRow) row;
+            long bytes = OBJECT_BYTES * 3 + 12L * sparse.getCellCount();
+            for (int k = 0; k < sparse.getCellCount(); k++) {
+                bytes += estimateValueBytes(sparse.getValueAt(k));
+            }
+            return bytes;
+        }
+        long bytes = OBJECT_BYTES + 8L * row.size();
+        for (int i = 0; i < row.size(); i++) {
+            bytes += estimateValueBytes(row.get(i));
+        }
+        return bytes;
+    }
+
+    private static long estimateValueBytes(Object value) {
+        if (value instanceof String) {
+            return OBJECT_BYTES * 2 + 2L * ((String) value).length();
+        } else if (value instanceof Temporal) {
+            return OBJECT_BYTES * 3;
+        } else if (value != null) {
+            return OBJECT_BYTES;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,128 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+
+/**
+ * xlsx单元格内容到输出值的转换，按CellValueMode输出格式化后的字符串或带类型的值
+ * 内部的DataFormatter不是线程安全的，每个线程使用各自的实例
+ */
+final class CellDecoder {
+
+    private final DataFormatter formatter = new DataFormatter();
+    private final CellValueMode valueMode;
+
+    CellDecoder(CellValueMode valueMode) {
+        this.valueMode = valueMode;
+    }
+
+    /**
+     * 转换流水线模式下记录的单元格
+     *
+     * @param cell
+     * @param sst  共享字符串表
+     * @return
+     */
+    Object decode(RawCell cell, SharedStringsStore sst) {
+        if (cell.type == Excel2007Reader.CellDataType.SSTINDEX) {
+            return decode(cell.type, cell.style, sst.get(NumberParser.parseInt(cell.raw)));
+        }
+        return decode(cell.type, cell.style, cell.raw);
+    }
+
+    /**
+     * 转换单元格内容
+     *
+     * @param type  数据类型
+     * @param style 样式对应的数据格式，可以为null
+     * @param value 单元格内容，可以直接传入内容缓冲区
+     * @return
+     */
+    Object decode(Excel2007Reader.CellDataType type, StyleFormat style, CharSequence value) {
+        return valueMode == CellValueMode.TYPED ? getTypedValue(type, style, value) : getDataValue(type, style, value);
+    }
+
+    /**
+     * 根据数据类型获取带类型的数据，TYPED模式使用
+     *
+     * @return 空内容返回空字符串，与FORMATTED模式一致
+     */
+    private Object getTypedValue(Excel2007Reader.CellDataType type, StyleFormat style, CharSequence value) {
+        int start = 0;
+        int len = value.length();
+        while (start < len && value.charAt(start) <= ' ') {
+            start++;
+        }
+        if (start == len) {
+            return "";
+        }
+        switch (type) {
+            case BOOL:
+                return value.charAt(start) != '0';
+            case NUMBER:
+                // 文本格式的数值单元格按显示的文本输出，如设置为文本格式的编号
+                if (style != null && style.kind == StyleFormat.Kind.TEXT) {
+                    return formatter.formatRawCellContents(NumberParser.parseDouble(value), style.formatIndex, style.formatString);
+                }
+                return NumberParser.parseDouble(value);
+            case DATE:
+                return CellValues.toDate(NumberParser.parseDouble(value), style.withTime);
+            case INLINESTR:
+                return SharedStringsParser.utfDecode(value).trim();
+            default:
+                return trim(value);
+        }
+    }
+
+    /**
+     * 根据数据类型获取数据，首尾空白不计入
+     */
+    private String getDataValue(Excel2007Reader.CellDataType type, StyleFormat style, CharSequence value) {
+        int start = 0;
+        int len = value.length();
+        while (start < len && value.charAt(start) <= ' ') {
+            start++;
+        }
+        if (start == len) {
+            return "";
+        }
+        String thisStr;
+        switch (type) {
+            //这几个的顺序不能随便交换，交换了很可能会导致数据错误
+            case BOOL:
+                thisStr = value.charAt(start) == '0' ? "FALSE" : "TRUE";
+                break;
+            case ERROR:
+                thisStr = "\"ERROR:" + trim(value) + '"';
+                break;
+            case FORMULA:
+                thisStr = '"' + trim(value) + '"';
+                break;
+            case INLINESTR:
+                // 内联字符串与共享字符串一样以_xHHHH_转义，共享字符串在解析共享字符串表时已还原
+                thisStr = SharedStringsParser.utfDecode(value).trim();
+                break;
+            case SSTINDEX:
+                thisStr = trim(value);
+                break;
+            case NUMBER:
+                if (style != null && style.formatString != null) {
+                    thisStr = formatter.formatRawCellContents(NumberParser.parseDouble(value), style.formatIndex, style.formatString).trim();
+                } else {
+                    thisStr = trim(value);
+                }
+                thisStr = thisStr.replace("_", "").trim();
+                break;
+            case DATE:
+                thisStr = formatter.formatRawCellContents(NumberParser.parseDouble(value), style.formatIndex, style.formatString).trim();
+                break;
+            default:
+                thisStr = "";
+                break;
+        }
+        return thisStr;
+    }
+
+    private static String trim(CharSequence value) {
+        return value.toString().trim();
+    }
+}
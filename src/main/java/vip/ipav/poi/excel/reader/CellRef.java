@@ -0,0 +1,59 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 单元格位置(如A1、XFD1048576)的解析，逐字符扫描，不创建任何对象
+ * excel2007最大行数是1048576，最大列数是16384，最后一列列名是XFD
+ */
+final class CellRef {
+
+    private CellRef() {
+    }
+
+    /**
+     * 解析列索引
+     *
+     * @param ref 单元格位置，如B3，也可以只有列名，如B
+     * @return 列索引，从0开始，没有列名时返回-1
+     */
+    static int column(CharSequence ref) {
+        if (ref == null) {
+            return -1;
+        }
+        int column = 0;
+        for (int i = 0, len = ref.length(); i < len; i++) {
+            char c = ref.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                column = column * 26 + (c - 'A' + 1);
+            } else if (c >= 'a' && c <= 'z') {
+                column = column * 26 + (c - 'a' + 1);
+            } else if (c != '$') {
+                break;
+            }
+        }
+        return column - 1;
+    }
+
+    /**
+     * 解析行号
+     *
+     * @param ref 单元格位置，如B3，也可以只有行号，如3
+     * @return 行号，从1开始，没有行号时返回-1
+     */
+    static int row(CharSequence ref) {
+        if (ref == null) {
+            return -1;
+        }
+        int row = 0;
+        boolean found = false;
+        for (int i = 0, len = ref.length(); i < len; i++) {
+            char c = ref.charAt(i);
+            if (c >= '0' && c <= '9') {
+                row = row * 10 + (c - '0');
+                found = true;
+            } else if (found) {
+                break;
+            }
+        }
+        return found ? row : -1;
+    }
+}
@@ -0,0 +1,16 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 单元格值的输出方式
+ */
+public enum CellValueMode {
+    /**
+     * 按单元格格式格式化后的显示字符串，默认方式
+     */
+    FORMATTED,
+    /**
+     * 按类型输出：数值为Double，日期为LocalDate或带时间的LocalDateTime，布尔为Boolean，
+     * 文本和错误值为String，不做格式化，省去格式化开销也避免字符串来回转换的精度损失
+     */
+    TYPED
+}
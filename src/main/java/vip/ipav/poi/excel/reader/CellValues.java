@@ -0,0 +1,95 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * TYPED模式下数值单元格的类型转换，两种读取器共用
+ */
+final class CellValues {
+
+    private CellValues() {
+    }
+
+    /**
+     * 数值单元格按格式转换为日期或Double
+     *
+     * @param value        单元格的原始数值
+     * @param formatIndex  格式索引
+     * @param formatString 格式字符串，可以为null
+     * @return 日期格式返回LocalDate或LocalDateTime，否则返回Double
+     */
+    static Object typedNumber(double value, int formatIndex, String formatString) {
+        if (formatString != null && DateUtil.isADateFormat(formatIndex, formatString)) {
+            return toDate(value, hasTimePart(formatString));
+        }
+        return value;
+    }
+
+    /**
+     * 日期数值转换为LocalDate，格式带时间或数值不是整天时转换为LocalDateTime
+     * 格式不显示时间时也保留数值中的时间，不因显示格式丢失
+     *
+     * @param value
+     * @param withTime 格式是否包含时间部分
+     * @return
+     */
+    static Object toDate(double value, boolean withTime) {
+        if (!DateUtil.isValidExcelDate(value)) {
+            return value;
+        }
+        LocalDateTime dateTime = DateUtil.getLocalDateTime(value);
+        return withTime || !LocalTime.MIDNIGHT.equals(dateTime.toLocalTime()) ? dateTime : dateTime.toLocalDate();
+    }
+
+    /**
+     * 判断日期格式是否包含时间部分，忽略引号内的文本和[Red]、[$-804]等方括号内容
+     *
+     * @param formatString
+     * @return
+     */
+    static boolean hasTimePart(String formatString) {
+        boolean quoted = false;
+        for (int i = 0, len = formatString.length(); i < len; i++) {
+            char c = formatString.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (quoted) {
+                continue;
+            } else if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                int end = formatString.indexOf(']', i);
+                if (end < 0) {
+                    break;
+                }
+                // [h]、[mm]、[ss]为经过的时间，其余方括号为颜色、区域等
+                if (isElapsedTime(formatString, i + 1, end)) {
+                    return true;
+                }
+                i = end;
+            } else if (c == 'h' || c == 'H' || c == 's' || c == 'S') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isElapsedTime(String formatString, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        char first = Character.toLowerCase(formatString.charAt(start));
+        if (first != 'h' && first != 'm' && first != 's') {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            if (Character.toLowerCase(formatString.charAt(i)) != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package vip.ipav.poi.excel.reader;
+
+import java.io.Serializable;
+
+/**
+ * 读取位置的检查点，表示某个表的某一行(含)之前已处理完毕
+ * 可以序列化保存，之后通过setResume从该位置继续读取，也可以用split的结果把大文件按行切分给多个线程各自读取
+ * xlsx文件以SCANNER方式依次解析时还记录该行之后在表数据中的字节偏移，继续读取时直接跳到该位置，不再扫描之前的行
+ */
+public final class Checkpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int sheetIndex;
+    private final int rowNum;
+    private final long byteOffset;
+    private final int columns;
+
+    /**
+     * @param sheetIndex 表索引，从0开始
+     * @param rowNum     已处理的最后一行的行号，从1开始
+     * @param byteOffset 该行之后在xlsx表数据中的字节偏移，未知时为-1
+     * @param columns    xlsx补全行尾空单元格使用的行宽，未知时为-1
+     */
+    public Checkpoint(int sheetIndex, int rowNum, long byteOffset, int columns) {
+        this.sheetIndex = sheetIndex;
+        this.rowNum = rowNum;
+        this.byteOffset = byteOffset;
+        this.columns = columns;
+    }
+
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * 该位置是否在检查点之前(含)，即已处理过
+     *
+     * @param sheetIndex 表索引
+     * @param rowNum     行号
+     * @return
+     */
+    boolean covers(int sheetIndex, int rowNum) {
+        return sheetIndex < this.sheetIndex || sheetIndex == this.sheetIndex && rowNum <= this.rowNum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Checkpoint)) {
+            return false;
+        }
+        Checkpoint that = (Checkpoint) o;
+        return sheetIndex == that.sheetIndex && rowNum == that.rowNum
+                && byteOffset == that.byteOffset && columns == that.columns;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = sheetIndex;
+        result = 31 * result + rowNum;
+        result = 31 * result + (int) (byteOffset ^ byteOffset >>> 32);
+        return 31 * result + columns;
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{sheetIndex=" + sheetIndex + ", rowNum=" + rowNum
+                + ", byteOffset=" + byteOffset + ", columns=" + columns + "}";
+    }
+}
@@ -0,0 +1,159 @@
+package vip.ipav.poi.excel.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 列投影，只解析和输出指定的列，输出行按指定的顺序排列
+ * 按表头名称指定时需要先读到表头行才能确定列索引，每个表单独确定
+ */
+final class ColumnProjection {
+
+    // 输出位置对应的列索引，按表头名称指定且未读到表头时为null
+    private final int[] columns;
+    // 列索引对应的输出位置，-1表示不输出
+    private final int[] slots;
+    private final String[] headers;
+    private final int headerRow;
+
+    private ColumnProjection(int[] columns, String[] headers, int headerRow) {
+        this.columns = columns;
+        this.headers = headers;
+        this.headerRow = headerRow;
+        if (columns == null) {
+            this.slots = new int[0];
+            return;
+        }
+        int max = -1;
+        for (int column : columns) {
+            if (column < 0) {
+                throw new RuntimeException("无效的列索引: " + column);
+            }
+            max = Math.max(max, column);
+        }
+        this.slots = new int[max + 1];
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < columns.length; i++) {
+            if (slots[columns[i]] >= 0) {
+                throw new RuntimeException("重复的列: " + columns[i]);
+            }
+            slots[columns[i]] = i;
+        }
+    }
+
+    /**
+     * @param indexes 列索引，从0开始
+     */
+    static ColumnProjection ofIndexes(int[] indexes) {
+        return new ColumnProjection(indexes.clone(), null, 0);
+    }
+
+    /**
+     * @param letters 列名，如A、AC
+     */
+    static ColumnProjection ofLetters(String[] letters) {
+        int[] columns = new int[letters.length];
+        for (int i = 0; i < letters.length; i++) {
+            String letter = letters[i] == null ? "" : letters[i].trim();
+            if (letter.isEmpty()) {
+                throw new RuntimeException("无效的列名: " + letters[i]);
+            }
+            for (int j = 0; j < letter.length(); j++) {
+                char c = letter.charAt(j);
+                if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) {
+                    throw new RuntimeException("无效的列名: " + letters[i]);
+                }
+            }
+            columns[i] = CellRef.column(letter);
+        }
+        return new ColumnProjection(columns, null, 0);
+    }
+
+    /**
+     * @param headers   表头名称
+     * @param headerRow 表头所在行号，从1开始
+     */
+    static ColumnProjection ofHeaders(String[] headers, int headerRow) {
+        return new ColumnProjection(null, headers.clone(), headerRow);
+    }
+
+    /**
+     * 是否已确定列索引，按表头名称指定时读到表头行后才确定
+     */
+    boolean isResolved() {
+        return columns != null;
+    }
+
+    /**
+     * 该行是否是需要读取的表头行
+     *
+     * @param rowNum 行号，从1开始
+     */
+    boolean isHeaderRow(int rowNum) {
+        return columns == null && rowNum == headerRow;
+    }
+
+    /**
+     * @param column 列索引，从0开始
+     * @return 该列的输出位置，不输出或未确定列索引时返回-1
+     */
+    int slot(int column) {
+        return column >= 0 && column < slots.length ? slots[column] : -1;
+    }
+
+    int size() {
+        return headers != null ? headers.length : columns.length;
+    }
+
+    /**
+     * 创建已按输出列数填充null的行
+     */
+    List<Object> newRow() {
+        int size = size();
+        List<Object> row = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            row.add(null);
+        }
+        return row;
+    }
+
+    /**
+     * 从完整的行中取出投影的列
+     */
+    List<Object> project(List<Object> row) {
+        List<Object> projected = newRow();
+        if (columns != null) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i] < row.size()) {
+                    projected.set(i, row.get(columns[i]));
+                }
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * 根据表头行确定各表头名称对应的列索引
+     *
+     * @param headerValues 表头行的完整数据
+     * @return 已确定列索引的投影
+     */
+    ColumnProjection resolve(List<Object> headerValues) {
+        int[] resolved = new int[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            resolved[i] = -1;
+            for (int column = 0; column < headerValues.size(); column++) {
+                Object value = headerValues.get(column);
+                if (value != null && String.valueOf(value).trim().equals(headers[i])) {
+                    resolved[i] = column;
+                    break;
+                }
+            }
+            if (resolved[i] < 0) {
+                throw new RuntimeException("第" + headerRow + "行中未找到表头: " + headers[i]);
+            }
+        }
+        return new ColumnProjection(resolved, headers, headerRow);
+    }
+}
@@ -0,0 +1,59 @@
+package vip.ipav.poi.excel.reader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 堆内紧凑存储的共享字符串表，所有字符串的UTF-8字节存放在同一个数组中
+ * 相比每条字符串一个对象，内存约为原来的一半且几乎没有对象头开销
+ */
+final class CompactSharedStrings implements SharedStringsStore {
+
+    private byte[] data;
+    // offsets[i]为第i条字符串的起始位置，offsets[size]为数据结束位置
+    private int[] offsets;
+    private int size;
+
+    CompactSharedStrings(int expected) {
+        this.offsets = new int[Math.max(expected, 16) + 1];
+        this.data = new byte[Math.max(expected, 16) * 16];
+    }
+
+    void add(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int end = offsets[size];
+        if (end + bytes.length > data.length) {
+            long grown = Math.max((long) data.length * 2, (long) end + bytes.length);
+            if (grown > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("共享字符串表超过2GB，请使用SharedStringsType.MAPPED");
+            }
+            data = Arrays.copyOf(data, (int) grown);
+        }
+        System.arraycopy(bytes, 0, data, end, bytes.length);
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[++size] = end + bytes.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("共享字符串索引越界: " + index);
+        }
+        int start = offsets[index];
+        return new String(data, start, offsets[index + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        data = null;
+        offsets = null;
+        size = 0;
+    }
+}
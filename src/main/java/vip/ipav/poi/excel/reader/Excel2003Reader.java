@@ -9,24 +9,48 @@ import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
 import org.apache.poi.hssf.eventusermodel.dummyrecord.MissingCellDummyRecord;
 import org.apache.poi.hssf.model.HSSFFormulaParser;
 import org.apache.poi.hssf.record.*;
+import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaError;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * 抽象Excel2003读取器，通过实现HSSFListener监听器，采用事件驱动模式解析excel2003
  * 中的内容，遇到特定事件才会触发，大大减少了内存的使用
  * 空单元格以null表示,填写后再删除的单元格用空字符表示
+ * 设置RowHandler后每行解析完立即回调，不再填充allValueList
+ * 全局记录(SST、格式等)和各表的位置在第一次读取时解析为工作薄会话，之后只解析需要读取的表，见setWorkbookCache
+ * 解析状态都保存在实例中并在每次解析开始时重置，不同实例可以在多个线程上同时读取不同文件，
+ * 同一个实例同一时间只能进行一次解析
+ * 按文件或路径打开时只读映射文件，按流打开时整个文件读入内存，大文件可用open(in, true)先写入临时文件
+ * 读取完毕后应调用close()释放文件
  */
-public class Excel2003Reader implements HSSFListener {
+public class Excel2003Reader extends AbstractExcelReader implements HSSFListener {
     private int minColumns = -1;
     private POIFSFileSystem fs;
+    // 输入流写入的临时文件，关闭时删除
+    private SpilledFile spilledFile;
+    // 按文件打开时的文件，用作会话缓存的键，按流打开时为null
+    private File source;
+    // 工作薄会话，第一次读取时加载，加密的文件为null
+    private XlsSession session;
+    private boolean sessionLoaded;
+    // 加密的文件没有会话，表目录完整扫描一次后保存在这里
+    private List<SheetInfo> scannedSheets;
     private int lastRowNumber;
     private int lastColumnNumber;
 
@@ -50,7 +74,7 @@ public class Excel2003Reader implements HSSFListener {
     private int sheetIndex = -1;
     private Integer readSheetIndex = null;
     private BoundSheetRecord[] orderedBSRs;
-    private ArrayList boundSheetRecords = new ArrayList();
+    private List<BoundSheetRecord> boundSheetRecords = new ArrayList<>();
 
     //日期格式处理
     private final DataFormatter formatter = new DataFormatter();
@@ -61,86 +85,592 @@ public class Excel2003Reader implements HSSFListener {
     private boolean outputNextStringRecord;
     //当前行
     private int curRow = 0;
-    // 开始读数据的行数
-    private int beginRow;
-    // 结束读数据的行数
-    private int endRow;
     //存储行记录的容器
     private List<Object> rowList = new ArrayList<Object>();
 
     private String sheetName;
-
-    private List<List<Object>> allValueList = new ArrayList<>();
-
-    public List<List<Object>> getAllValueList() {
-        return allValueList;
-    }
+    // 当前表的列投影，按表头名称指定时读到表头行后替换为已确定列索引的投影
+    private ColumnProjection projection;
+    // 当前表的读取范围已结束，忽略该表剩余的记录
+    private boolean sheetDone;
+    // 并行解析时的单表读取器，读取范围结束即可结束整个流
+    private boolean singleSheet;
+    // 检查是否已请求停止的读取器，单表读取器检查父读取器
+    private AbstractExcelReader owner = this;
+    // 统计读取字节数的工作薄流和当前表的指标，未设置解析监听时为null
+    private CountingInputStream counting;
+    private ParseMetrics sheetMetrics;
+    // 当前行最长的单元格文本
+    private int cellLength;
+    // 当前表开始时已读取的字节数
+    private long sheetStartBytes;
 
     public Excel2003Reader(int beginRow, String path) throws IOException {
         this.beginRow = beginRow;
-        this.fs = new POIFSFileSystem(new FileInputStream(path));
+        this.open(path);
     }
 
     public Excel2003Reader(int beginRow, int rows, String path) throws IOException {
         this.beginRow = beginRow;
         this.endRow = this.beginRow + rows - 1;
-        this.fs = new POIFSFileSystem(new FileInputStream(path));
+        this.open(path);
     }
 
     public Excel2003Reader(int beginRow, InputStream in) throws IOException {
         this.beginRow = beginRow;
-        this.fs = new POIFSFileSystem(in);
+        this.open(in);
     }
 
     public Excel2003Reader(int beginRow, int rows, InputStream in) throws IOException {
         this.beginRow = beginRow;
         this.endRow = this.beginRow + rows - 1;
+        this.open(in);
+    }
+
+    public Excel2003Reader(int beginRow, File file) throws IOException {
+        this.beginRow = beginRow;
+        this.open(file);
+    }
+
+    public Excel2003Reader(int beginRow, int rows, File file) throws IOException {
+        this.beginRow = beginRow;
+        this.endRow = this.beginRow + rows - 1;
+        this.open(file);
+    }
+
+    public Excel2003Reader(int beginRow, FileChannel channel) throws IOException {
+        this.beginRow = beginRow;
+        this.open(channel);
+    }
+
+    /**
+     * 尚未打开数据源的读取器，由ExcelReader在判断格式后调用open
+     *
+     * @param beginRow 开始读数据的行号，从1开始
+     * @param rows     读取的行数，小于等于0时读到表尾
+     */
+    Excel2003Reader(int beginRow, int rows) {
+        this.beginRow = beginRow;
+        if (rows > 0) {
+            this.endRow = this.beginRow + rows - 1;
+        }
+    }
+
+    public void open(String path) throws IOException {
+        this.open(new File(path));
+    }
+
+    public void open(Path path) throws IOException {
+        this.open(path.toFile());
+    }
+
+    /**
+     * 以只读方式映射文件，不把整个文件读入内存
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void open(File file) throws IOException {
+        close();
+        this.fs = new POIFSFileSystem(file, true);
+        this.source = file;
+    }
+
+    /**
+     * 以只读方式读取文件通道，关闭读取器时关闭通道
+     *
+     * @param channel
+     * @throws IOException
+     */
+    public void open(FileChannel channel) throws IOException {
+        close();
+        this.fs = new POIFSFileSystem(channel, true);
+    }
+
+    /**
+     * 从输入流打开，整个文件读入内存，输入流读完后关闭；已设置读取限制时先写入临时文件，见ReadLimits
+     *
+     * @param in
+     * @throws IOException
+     */
+    public void open(InputStream in) throws IOException {
+        if (getReadLimits().isLimited()) {
+            try {
+                open(in, true);
+            } finally {
+                in.close();
+            }
+            return;
+        }
+        close();
         this.fs = new POIFSFileSystem(in);
     }
 
+    /**
+     * 从输入流打开
+     *
+     * @param in    输入流
+     * @param spill 为true时先把流写入临时文件再按文件打开，不关闭输入流，关闭读取器时删除临时文件
+     * @throws IOException
+     */
+    public void open(InputStream in, boolean spill) throws IOException {
+        if (!spill) {
+            open(in);
+            return;
+        }
+        SpilledFile spilled = new SpilledFile(in);
+        try {
+            open(spilled.getFile());
+        } catch (IOException | RuntimeException e) {
+            spilled.close();
+            throw e;
+        }
+        // 临时文件每次不同，不参与会话缓存
+        this.source = null;
+        this.spilledFile = spilled;
+    }
+
+    /**
+     * 关闭数据源，按流打开时写入的临时文件一并删除
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (session != null) {
+            session.release();
+            session = null;
+        }
+        sessionLoaded = false;
+        scannedSheets = null;
+        source = null;
+        try {
+            if (fs != null) {
+                fs.close();
+                fs = null;
+            }
+        } finally {
+            if (spilledFile != null) {
+                spilledFile.close();
+                spilledFile = null;
+            }
+        }
+    }
+
+    /**
+     * 并行解析时单个表使用的读取器，复用父读取器的配置
+     *
+     * @param parent
+     * @param sheetIndex 该表的索引
+     */
+    private Excel2003Reader(Excel2003Reader parent, int sheetIndex) {
+        this.beginRow = parent.beginRow;
+        this.endRow = parent.endRow;
+        this.outputFormulaValues = parent.outputFormulaValues;
+        this.valueMode = parent.valueMode;
+        setColumnProjection(parent.getColumnProjection());
+        setSparseRows(parent.isSparseRows());
+        setResume(parent.getResumeFrom(), parent.getResumeTo());
+        this.singleSheet = true;
+        this.owner = parent;
+        // 遇到该表的BOFRecord时自增为sheetIndex
+        this.sheetIndex = sheetIndex - 1;
+        // 字段初始化时还未设置稀疏模式，按复制的配置重新创建
+        this.rowList = newRow();
+    }
+
     /**
      * 遍历excel下所有的sheet
      *
      * @throws IOException
      */
     public void processAllSheets() throws IOException {
+        checkOpen();
+        resetStop();
+        resetParseState();
+        beginMetrics();
+        XlsSession session = session();
+        InputStream in = openWorkbookStream(session);
+        if (in != null) {
+            counting = getMetrics() == null ? null : new CountingInputStream(in);
+            try {
+                processEvents(session, counting == null ? in : counting);
+            } catch (StopParsingException e) {
+                // 读取范围已结束或已调用stop()
+            } finally {
+                in.close();
+            }
+            finishSheet();
+            if (counting != null) {
+                // 实际读取的字节数，有会话时不含全局记录和跳过的表
+                getMetrics().bytes = counting.getCount();
+                counting = null;
+            }
+        }
+        finishMetrics();
+    }
+
+    /**
+     * 并行遍历excel下所有的sheet，工作薄流在各表的BOFRecord处切分，每个表在executor上单独解析
+     * 各表的记录段在开始解析该表时才读入内存，行数据仍按表的顺序在调用线程上输出，尚未轮到输出的表会先缓存在内存中
+     * 加密的文件无法切分，退化为processAllSheets()
+     *
+     * @param executor 解析各表使用的线程池，由调用方管理生命周期
+     * @throws Exception
+     */
+    public void processAllSheets(ExecutorService executor) throws Exception {
+        checkOpen();
+        resetStop();
+        beginMetrics();
+        final XlsSession session = session();
+        if (session == null) {
+            processAllSheets();
+            return;
+        }
+        final POIFSFileSystem source = fs;
+        List<Future<SheetRowBuffer>> futures = new ArrayList<>();
+        long bytes = 0;
+        for (int i = 0; i < session.getSheetCount(); i++) {
+            if (!isSheetInRange(i)) {
+                continue;
+            }
+            final int index = i;
+            bytes += session.getSheetLength(index);
+            futures.add(executor.submit(new Callable<SheetRowBuffer>() {
+                @Override
+                public SheetRowBuffer call() throws Exception {
+                    SheetRowBuffer buffer = new SheetRowBuffer();
+                    Excel2003Reader sheetReader = new Excel2003Reader(Excel2003Reader.this, index);
+                    sheetReader.setRowHandler(buffer);
+                    // 开始解析时才读出该表的记录段，同时在内存中的记录段不超过线程池的线程数
+                    // POIFSFileSystem不是线程安全的，各解析线程依次读取
+                    InputStream in;
+                    synchronized (source) {
+                        in = session.sheetStream(source, index);
+                    }
+                    if (getMetrics() != null) {
+                        in = sheetReader.counting = new CountingInputStream(in);
+                    }
+                    try {
+                        sheetReader.processEvents(session, in);
+                    } catch (StopParsingException e) {
+                        // 该表的读取范围已结束或已调用stop()
+                    }
+                    sheetReader.finishSheet();
+                    return buffer;
+                }
+            }));
+        }
+        SheetRowBuffer.drainInOrder(futures, this);
+        if (getMetrics() != null) {
+            getMetrics().bytes = bytes;
+        }
+        finishMetrics();
+    }
+
+    /**
+     * 取出工作薄会话，同一读取器只加载一次，设置了WorkbookCache时先从缓存中取
+     *
+     * @return 加密的文件无法按偏移切分，返回null
+     */
+    private XlsSession session() throws IOException {
+        // 工作薄流的大小在目录中记录，加载会话之前检查
+        long bytes = XlsSession.size(fs);
+        getReadUsage().partBytes(bytes);
+        getReadLimits().checkPartBytes(bytes);
+        if (sessionLoaded) {
+            return session;
+        }
+        WorkbookCache cache = getWorkbookCache();
+        if (cache != null && source != null) {
+            session = (XlsSession) cache.acquire(source, "xls");
+        }
+        if (session == null) {
+            session = XlsSession.load(fs);
+            if (session != null && cache != null && source != null) {
+                cache.put(source, "xls", session);
+            }
+        }
+        sessionLoaded = true;
+        return session;
+    }
+
+    /**
+     * 打开需要解析的工作薄流，有会话时从第一个需要读取的表的BOFRecord开始，
+     * 跳过全局记录(由会话重放)、processOneSheet指定的表和检查点之前的表
+     * 没有会话时从头解析，之前的表只跳过单元格
+     *
+     * @return 没有需要读取的表时为null
+     */
+    private InputStream openWorkbookStream(XlsSession session) throws IOException {
+        if (session == null) {
+            return XlsSession.open(fs);
+        }
+        int first = readSheetIndex != null && readSheetIndex > 0 ? readSheetIndex - 1 : 0;
+        Checkpoint from = getResumeFrom();
+        if (from != null) {
+            first = Math.max(first, from.getSheetIndex());
+        }
+        if (first >= session.getSheetCount()) {
+            return null;
+        }
+        // 遇到该表的BOFRecord时自增为first
+        sheetIndex = first - 1;
+        return session.streamFrom(fs, first);
+    }
+
+    /**
+     * 解析工作薄流，有会话时先把会话中的全局记录重放给监听器，流中只有表的记录
+     */
+    private void processEvents(XlsSession session, InputStream in) {
+        HSSFListener listener = createListener();
+        if (session != null) {
+            for (Record record : session.getGlobals()) {
+                listener.processRecord(record);
+            }
+        }
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(listener);
+        new HSSFEventFactory().processEvents(request, in);
+    }
+
+    /**
+     * 按行数切分，只读取各表的RowRecord，不处理单元格
+     *
+     * @param rowsPerChunk 每段的行数
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public List<Checkpoint> split(final int rowsPerChunk) throws Exception {
+        if (rowsPerChunk <= 0) {
+            throw new RuntimeException("无效的分段行数: " + rowsPerChunk);
+        }
+        checkOpen();
+        final List<Checkpoint> checkpoints = new ArrayList<>();
+        HSSFListener listener = new HSSFListener() {
+            private int sheet = -1;
+            private int rows;
+
+            @Override
+            public void processRecord(Record record) {
+                if (record instanceof BOFRecord) {
+                    if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                        sheet++;
+                    }
+                    return;
+                }
+                int rowNum = ((RowRecord) record).getRowNumber() + 1;
+                if (isInRange(rowNum) && ++rows % rowsPerChunk == 0) {
+                    checkpoints.add(new Checkpoint(sheet, rowNum, -1, -1));
+                }
+            }
+        };
+        HSSFRequest request = new HSSFRequest();
+        request.addListener(listener, BOFRecord.sid);
+        request.addListener(listener, RowRecord.sid);
+        InputStream in = XlsSession.open(fs);
+        try {
+            new HSSFEventFactory().processEvents(request, in);
+        } finally {
+            in.close();
+        }
+        return checkpoints;
+    }
+
+    private void checkOpen() {
+        if (this.fs == null) {
+            throw new RuntimeException("未设置数据源，请使用open设置对应的数据源");
+        }
+    }
+
+    /**
+     * 重置上一次解析留下的状态，同一实例可以重复解析
+     */
+    private void resetParseState() {
+        sheetIndex = -1;
+        sheetDone = false;
+        boundSheetRecords = new ArrayList<>();
+        orderedBSRs = null;
+        sstRecord = null;
+        stubWorkbook = null;
+        lastRowNumber = 0;
+        lastColumnNumber = 0;
+        curRow = 0;
+        rowList = newRow();
+        sheetMetrics = null;
+    }
+
+    /**
+     * 当前表的指标统计结束
+     */
+    private void finishSheet() {
+        if (sheetMetrics != null) {
+            finishSheet(counting.getCount());
+        }
+    }
+
+    /**
+     * 当前表的指标统计结束
+     *
+     * @param endBytes 该表结束时已读取的字节数
+     */
+    private void finishSheet(long endBytes) {
+        if (sheetMetrics != null) {
+            sheetMetrics.bytes = endBytes - sheetStartBytes;
+            owner.finishSheetMetrics(sheetMetrics);
+            sheetMetrics = null;
+        }
+    }
+
+    /**
+     * 输出一行并统计该表的行数和回调耗时
+     */
+    private void outputRow(int rowNum, List<Object> row) {
+        if (sheetMetrics == null) {
+            emitRow(sheetIndex, rowNum, row);
+            return;
+        }
+        long start = System.nanoTime();
+        emitRow(sheetIndex, rowNum, row);
+        sheetMetrics.rows++;
+        sheetMetrics.callbackNanos += System.nanoTime() - start;
+    }
+
+    private HSSFListener createListener() {
         MissingRecordAwareHSSFListener listener = new MissingRecordAwareHSSFListener(
                 this);
         formatListener = new FormatTrackingHSSFListener(listener);
-        HSSFEventFactory factory = new HSSFEventFactory();
-        HSSFRequest request = new HSSFRequest();
         if (outputFormulaValues) {
-            request.addListenerForAllRecords(formatListener);
-        } else {
-            workbookBuildingListener = new EventWorkbookBuilder.SheetRecordCollectingListener(
-                    formatListener);
-            request.addListenerForAllRecords(workbookBuildingListener);
+            return formatListener;
         }
-        factory.processWorkbookEvents(request, fs);
+        workbookBuildingListener = new EventWorkbookBuilder.SheetRecordCollectingListener(
+                formatListener);
+        return workbookBuildingListener;
     }
 
     /**
-     * 读取指定表id的数据
+     * 读取第rId个表的数据，同readSheet(rId - 1)
      *
-     * @param rId rId1,rId2对应sheet1和sheet2
+     * @param rId 1,2对应工作薄中的第一个和第二个表，为null或小于1时读取所有表
      * @throws Exception
      */
     public void processOneSheet(Integer rId) throws Exception {
-        this.readSheetIndex = rId;
-        this.processAllSheets();
+        if (rId == null || rId <= 0) {
+            processAllSheets();
+            return;
+        }
+        readSheet(rId - 1);
+    }
+
+    /**
+     * 只读取一个表，有会话时从该表BoundSheetRecord记录的BOF偏移开始解析，读到下一个表的BOFRecord结束
+     * 加密的文件从头解析，之前的表只跳过单元格
+     *
+     * @param index 表在工作薄中的索引，从0开始
+     * @throws Exception
+     */
+    @Override
+    public void readSheet(int index) throws Exception {
+        checkSheetIndex(index, getSheetNames().size());
+        this.readSheetIndex = index + 1;
+        try {
+            this.processAllSheets();
+        } finally {
+            this.readSheetIndex = null;
+        }
+    }
+
+    @Override
+    public List<String> getSheetNames() throws Exception {
+        checkOpen();
+        XlsSession session = session();
+        if (session != null) {
+            return session.getSheetNames();
+        }
+        List<String> names = new ArrayList<>();
+        for (SheetInfo sheet : scanSheets()) {
+            names.add(sheet.getName());
+        }
+        return names;
+    }
+
+    @Override
+    public List<SheetInfo> getSheets() throws Exception {
+        checkOpen();
+        XlsSession session = session();
+        if (session != null) {
+            return session.getSheets(fs);
+        }
+        return scanSheets();
+    }
+
+    /**
+     * 加密的文件无法按偏移定位，完整解析一次工作薄流，只处理BoundSheetRecord、BOFRecord和DimensionsRecord
+     */
+    private List<SheetInfo> scanSheets() throws IOException {
+        if (scannedSheets != null) {
+            return scannedSheets;
+        }
+        final List<BoundSheetRecord> boundSheets = new ArrayList<>();
+        final List<SheetInfo> sheets = new ArrayList<>();
+        HSSFListener listener = new HSSFListener() {
+            private String[] names;
+
+            @Override
+            public void processRecord(Record record) {
+                if (record instanceof BoundSheetRecord) {
+                    boundSheets.add((BoundSheetRecord) record);
+                } else if (record instanceof BOFRecord) {
+                    if (((BOFRecord) record).getType() != BOFRecord.TYPE_WORKSHEET) {
+                        return;
+                    }
+                    if (names == null) {
+                        BoundSheetRecord[] ordered = BoundSheetRecord.orderByBofPosition(boundSheets);
+                        names = new String[ordered.length];
+                        for (int i = 0; i < ordered.length; i++) {
+                            names[i] = ordered[i].getSheetname();
+                        }
+                    }
+                    int index = sheets.size();
+                    sheets.add(new SheetInfo(index, names[index], -1, -1, -1, -1));
+                } else if (!sheets.isEmpty()) {
+                    int index = sheets.size() - 1;
+                    if (!sheets.get(index).hasDimension()) {
+                        sheets.set(index, XlsSession.sheetInfo(index, sheets.get(index).getName(),
+                                (DimensionsRecord) record));
+                    }
+                }
+            }
+        };
+        HSSFRequest request = new HSSFRequest();
+        request.addListener(listener, BoundSheetRecord.sid);
+        request.addListener(listener, BOFRecord.sid);
+        request.addListener(listener, DimensionsRecord.sid);
+        InputStream in = XlsSession.open(fs);
+        try {
+            new HSSFEventFactory().processEvents(request, in);
+        } finally {
+            in.close();
+        }
+        scannedSheets = Collections.unmodifiableList(sheets);
+        return scannedSheets;
     }
 
     /**
      * HSSFListener 监听方法，处理 Record
      */
     public void processRecord(Record record) {
-        int thisRow = -1;
-        int thisColumn = -1;
-        String thisStr = null;
-        String value = null;
+        // 读取范围已结束的表只等待下一个表开始
+        if (sheetDone && record.getSid() != BOFRecord.sid) {
+            return;
+        }
 
         // 行结束时的操作
         if (record instanceof LastCellOfRowDummyRecord) {
+            if (owner.isStopped()) {
+                throw new StopParsingException();
+            }
             if (minColumns > 0) {
                 // 列值重新置空
                 if (lastColumnNumber == -1) {
@@ -148,28 +678,78 @@ public class Excel2003Reader implements HSSFListener {
                 }
             }
             lastColumnNumber = -1;
-            // 每行结束时,执行的数据，临时解决办法
-            if (curRow + 1 < beginRow || (endRow > 0 && curRow + 1 > endRow)) {
-                //不保存数据，临时解决办法
-                rowList.clear();
+            LastCellOfRowDummyRecord lastCell = (LastCellOfRowDummyRecord) record;
+            int rowNum = lastCell.getRow() + 1;
+            owner.getReadUsage().row(rowNum, lastCell.getLastColumnNumber() + 1, cellLength);
+            cellLength = 0;
+            boolean readSheet = isReadSheet();
+            if (readSheet && isPastCheckpoint(sheetIndex, rowNum)) {
+                clearRow();
+                throw new StopParsingException();
+            }
+            if (readSheet && projection != null && projection.isHeaderRow(rowNum)) {
+                projection = projection.resolve(rowList);
+            }
+            if (!isInRange(sheetIndex, rowNum) || !readSheet) {
+                //不在读取范围内，不保存数据
+                clearRow();
+            } else if (projection != null) {
+                outputRow(rowNum, projection.project(rowList));
+                clearRow();
             } else {
-                if (readSheetIndex != null && readSheetIndex > 0) {
-                    if (readSheetIndex - 1 == sheetIndex) {
-                        this.allValueList.add(rowList);
-                        this.rowList = new ArrayList<>();
-                    }
-                    rowList.clear();
-                } else {
-                    this.allValueList.add(rowList);
-                    this.rowList = new ArrayList<>();
-                }
+                outputRow(rowNum, rowList);
+                this.rowList = newRow();
             }
             return;
         }
 
+        if (record instanceof CellValueRecordInterface) {
+            CellValueRecordInterface cell = (CellValueRecordInterface) record;
+            ReadLimits limits = owner.getReadLimits();
+            limits.checkRow(cell.getRow() + 1);
+            limits.checkColumn(cell.getColumn());
+            // 行按行号递增，超过endRow时之前的行都已输出
+            if (isPastEnd(cell.getRow() + 1) && isReadSheet()) {
+                endSheet();
+                return;
+            }
+            // 超过结束检查点后不再解析
+            if (isPastCheckpoint(sheetIndex, cell.getRow() + 1) && isReadSheet()) {
+                throw new StopParsingException();
+            }
+            // 不在读取范围或投影中的单元格不解析，只用null占位
+            if (skipCell(cell)) {
+                addCell(cell.getColumn(), null);
+                lastRowNumber = cell.getRow();
+                lastColumnNumber = cell.getColumn();
+                return;
+            }
+            if (sheetMetrics != null) {
+                // 单元格记录的解码和格式化计入格式化耗时
+                long start = System.nanoTime();
+                processCell(record);
+                sheetMetrics.cells++;
+                sheetMetrics.formatNanos += System.nanoTime() - start;
+                return;
+            }
+        }
+        processCell(record);
+    }
+
+    /**
+     * 处理单元格及其他需要的记录
+     *
+     * @param record
+     */
+    private void processCell(Record record) {
+        int thisRow = -1;
+        int thisColumn = -1;
+        String thisStr = null;
+        String value = null;
+
         switch (record.getSid()) {
             case BoundSheetRecord.sid:
-                boundSheetRecords.add(record);
+                boundSheetRecords.add((BoundSheetRecord) record);
                 break;
 
             case BOFRecord.sid:
@@ -181,16 +761,40 @@ public class Excel2003Reader implements HSSFListener {
                                 .getStubHSSFWorkbook();
                     }
                     sheetIndex++;
+                    sheetDone = false;
+                    clearRow();
+                    // 结束检查点之后的表不再解析
+                    if (isPastCheckpoint(sheetIndex, 0)) {
+                        throw new StopParsingException();
+                    }
+                    // 只读取一个表时，该表之后的表不再解析
+                    if (readSheetIndex != null && readSheetIndex > 0 && sheetIndex > readSheetIndex - 1) {
+                        throw new StopParsingException();
+                    }
+                    // 表的字节数从该BOFRecord开始计算，流中已预读了之后的记录头，上一个表到此结束
+                    long bofBytes = counting == null ? 0 : Math.max(0, counting.getCount() - br.getRecordSize());
+                    finishSheet(bofBytes);
+                    if (counting != null && isReadSheet()) {
+                        sheetMetrics = owner.beginSheetMetrics(sheetIndex);
+                        sheetStartBytes = bofBytes;
+                    }
                     if (orderedBSRs == null) {
                         orderedBSRs = BoundSheetRecord
                                 .orderByBofPosition(boundSheetRecords);
                     }
                     sheetName = orderedBSRs[sheetIndex].getSheetname();
+                    projection = getColumnProjection();
                 }
                 break;
 
             case SSTRecord.sid:
                 sstRecord = (SSTRecord) record;
+                ParseMetrics metrics = owner.getMetrics();
+                if (metrics != null) {
+                    metrics.sharedStrings = sstRecord.getNumUniqueStrings();
+                }
+                owner.getReadUsage().sharedStrings(sstRecord.getNumUniqueStrings());
+                owner.getReadLimits().checkSharedStrings(sstRecord.getNumUniqueStrings());
                 break;
 
             case BlankRecord.sid:
@@ -198,21 +802,30 @@ public class Excel2003Reader implements HSSFListener {
                 thisRow = brec.getRow();
                 thisColumn = brec.getColumn();
                 thisStr = "";
-                rowList.add(thisColumn, thisStr);
+                addCell(thisColumn, thisStr);
                 break;
 
             case BoolErrRecord.sid: //单元格为布尔类型
                 BoolErrRecord berec = (BoolErrRecord) record;
                 thisRow = berec.getRow();
                 thisColumn = berec.getColumn();
+                if (valueMode == CellValueMode.TYPED) {
+                    addCell(thisColumn, berec.isBoolean() ? (Object) berec.getBooleanValue()
+                            : FormulaError.forInt(berec.getErrorValue()).getString());
+                    break;
+                }
                 thisStr = berec.getBooleanValue() + "";
-                rowList.add(thisColumn, thisStr);
+                addCell(thisColumn, thisStr);
                 break;
 
             case FormulaRecord.sid: //单元格为公式类型
                 FormulaRecord frec = (FormulaRecord) record;
                 thisRow = frec.getRow();
                 thisColumn = frec.getColumn();
+                if (outputFormulaValues && valueMode == CellValueMode.TYPED) {
+                    addCell(thisColumn, typedFormulaValue(frec));
+                    break;
+                }
                 if (outputFormulaValues) {
                     if (Double.isNaN(frec.getValue())) {
                         // Formula result is a string
@@ -227,37 +840,39 @@ public class Excel2003Reader implements HSSFListener {
                     thisStr = '"' + HSSFFormulaParser.toFormulaString(stubWorkbook,
                             frec.getParsedExpression()) + '"';
                 }
-                rowList.add(thisColumn, thisStr);
+                addCell(thisColumn, thisStr);
                 break;
             case StringRecord.sid://单元格中公式的字符串
                 if (outputNextStringRecord) {
                     // String for formula
                     StringRecord srec = (StringRecord) record;
-                    thisStr = srec.getString();
+                    thisStr = checkText(srec.getString());
                     thisRow = nextRow;
                     thisColumn = nextColumn;
                     outputNextStringRecord = false;
+                    // 公式单元格已占位，用公式的字符串结果替换
+                    if (thisColumn < rowList.size()) {
+                        setCell(thisColumn, thisStr);
+                    }
                 }
                 break;
             case LabelRecord.sid:
                 LabelRecord lrec = (LabelRecord) record;
                 curRow = thisRow = lrec.getRow();
                 thisColumn = lrec.getColumn();
-                value = lrec.getValue().trim();
-                value = value.equals("") ? null : value;
-                this.rowList.add(thisColumn, value);
+                value = checkText(lrec.getValue()).trim();
+                addCell(thisColumn, value);
                 break;
             case LabelSSTRecord.sid:  //单元格为字符串类型
                 LabelSSTRecord lsrec = (LabelSSTRecord) record;
                 curRow = thisRow = lsrec.getRow();
                 thisColumn = lsrec.getColumn();
                 if (sstRecord == null) {
-                    rowList.add(thisColumn, null);
+                    addCell(thisColumn, null);
                 } else {
-                    value = sstRecord
-                            .getString(lsrec.getSSTIndex()).toString().trim();
-                    value = value.equals("") ? null : value;
-                    rowList.add(thisColumn, value);
+                    value = checkText(sstRecord
+                            .getString(lsrec.getSSTIndex()).toString()).trim();
+                    addCell(thisColumn, value);
                 }
                 break;
             case NumberRecord.sid:  //单元格为数字类型(含日期类型)
@@ -265,6 +880,11 @@ public class Excel2003Reader implements HSSFListener {
                 curRow = thisRow = numrec.getRow();
                 thisColumn = numrec.getColumn();
                 //HSSFDateUtil.isCellDateFormatted(numrec);
+                if (valueMode == CellValueMode.TYPED) {
+                    addCell(thisColumn, CellValues.typedNumber(numrec.getValue(),
+                            formatListener.getFormatIndex(numrec), formatListener.getFormatString(numrec)));
+                    break;
+                }
                 if("m/d/yy" == formatListener.getFormatString(numrec)){
                     //full format is "yyyy-MM-dd hh:mm:ss.SSS";
                     value = formatter.formatRawCellContents(numrec.getValue(),
@@ -274,7 +894,7 @@ public class Excel2003Reader implements HSSFListener {
                     value = value.equals("")?"":value;
                 }
                 // 向容器加入列
-                rowList.add(thisColumn, value);
+                addCell(thisColumn, value);
                 break;
             default:
                 break;
@@ -290,7 +910,7 @@ public class Excel2003Reader implements HSSFListener {
             MissingCellDummyRecord mc = (MissingCellDummyRecord) record;
             curRow = thisRow = mc.getRow();
             thisColumn = mc.getColumn();
-            rowList.add(thisColumn, null);
+            addCell(thisColumn, null);
         }
 
         // 更新行和列的值
@@ -299,4 +919,124 @@ public class Excel2003Reader implements HSSFListener {
         if (thisColumn > -1)
             lastColumnNumber = thisColumn;
     }
-}
\ No newline at end of file
+
+    /**
+     * 检查单元格文本的长度，记录该行最长的文本
+     */
+    private String checkText(String text) {
+        if (text.length() > cellLength) {
+            cellLength = text.length();
+            owner.getReadLimits().checkCellLength(cellLength);
+        }
+        return text;
+    }
+
+    private List<Object> newRow() {
+        return isSparseRows() ? new SparseRow() : new ArrayList<Object>();
+    }
+
+    /**
+     * 清空当前行，稀疏行是只读的，重新创建
+     */
+    private void clearRow() {
+        if (rowList instanceof SparseRow) {
+            rowList = new SparseRow();
+        } else {
+            rowList.clear();
+        }
+    }
+
+    /**
+     * 当前行加入一个单元格，MissingRecordAwareHSSFListener保证单元格按列顺序到来，空列以null占位
+     *
+     * @param column
+     * @param value
+     */
+    private void addCell(int column, Object value) {
+        if (rowList instanceof SparseRow) {
+            ((SparseRow) rowList).put(column, value);
+        } else {
+            rowList.add(column, value);
+        }
+    }
+
+    /**
+     * 替换当前行已有的单元格
+     */
+    private void setCell(int column, Object value) {
+        if (rowList instanceof SparseRow) {
+            ((SparseRow) rowList).put(column, value);
+        } else {
+            rowList.set(column, value);
+        }
+    }
+
+    /**
+     * 当前表是否需要读取，processOneSheet时只读取指定的表
+     */
+    private boolean isReadSheet() {
+        return (readSheetIndex == null || readSheetIndex <= 0 || readSheetIndex - 1 == sheetIndex)
+                && isSheetInRange(sheetIndex);
+    }
+
+    /**
+     * 当前表的读取范围已结束，后面没有需要读取的表时结束整个解析
+     */
+    private void endSheet() {
+        clearRow();
+        boolean lastSheet = readSheetIndex != null && readSheetIndex > 0
+                || orderedBSRs == null || sheetIndex >= orderedBSRs.length - 1;
+        if (singleSheet || lastSheet) {
+            throw new StopParsingException();
+        }
+        sheetDone = true;
+    }
+
+    /**
+     * 单元格是否不需要解析，读取范围之外的行不解析，
+     * 有列投影时只解析投影的列，按表头名称投影时在读到表头行前只解析表头行
+     *
+     * @param cell
+     * @return
+     */
+    private boolean skipCell(CellValueRecordInterface cell) {
+        int rowNum = cell.getRow() + 1;
+        if (!isReadSheet()) {
+            return true;
+        }
+        if (projection != null && projection.isHeaderRow(rowNum)) {
+            return false;
+        }
+        if (!isInRange(sheetIndex, rowNum)) {
+            return true;
+        }
+        if (projection == null) {
+            return false;
+        }
+        return !projection.isResolved() || projection.slot(cell.getColumn()) < 0;
+    }
+
+    /**
+     * TYPED模式下公式单元格的缓存结果，字符串结果在随后的StringRecord中
+     *
+     * @param frec
+     * @return
+     */
+    private Object typedFormulaValue(FormulaRecord frec) {
+        CellType type = frec.getCachedResultTypeEnum();
+        if (type == CellType.STRING) {
+            outputNextStringRecord = true;
+            nextRow = frec.getRow();
+            nextColumn = frec.getColumn();
+            return null;
+        }
+        if (type == CellType.BOOLEAN) {
+            return frec.getCachedBooleanValue();
+        }
+        if (type == CellType.ERROR) {
+            return FormulaError.forInt(frec.getCachedErrorValue()).getString();
+        }
+        return CellValues.typedNumber(frec.getValue(), formatListener.getFormatIndex(frec),
+                formatListener.getFormatString(frec));
+    }
+}
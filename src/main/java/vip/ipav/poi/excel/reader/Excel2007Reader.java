@@ -4,47 +4,57 @@ package vip.ipav.poi.excel.reader;
  * Created by doobo@foxmail.com on 2017/11/2.
  */
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackageAccess;
-import org.apache.poi.ss.usermodel.BuiltinFormats;
-import org.apache.poi.ss.usermodel.DataFormatter;
-import org.apache.poi.xssf.eventusermodel.XSSFReader;
-import org.apache.poi.xssf.model.SharedStringsTable;
-import org.apache.poi.xssf.model.StylesTable;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
-import org.xml.sax.helpers.XMLReaderFactory;
 
 /**
  * 事件驱动模式处理Excel，针对xlsx文件
  * 只匹配普通非图表类的电子表格
  * 空单元格以null表示,填写后再删除的单元格用空字符表示
+ * 设置RowHandler后每行解析完立即回调，不再填充allValueList
+ * 样式表、共享字符串表和表的列表在第一次读取时解析为工作薄会话，同一实例多次读取时复用，见setWorkbookCache
+ * 其余解析状态都属于单次解析，不同实例可以在多个线程上同时读取不同文件，
+ * 同一个实例同一时间只能进行一次解析
+ * 按文件或路径打开时随机访问zip中的各个part，按流打开时整个文件读入内存，大文件可用open(in, true)先写入临时文件
+ * 读取完毕后应调用close()释放文件
  */
-public class Excel2007Reader {
+public class Excel2007Reader extends AbstractExcelReader {
 
-    //获取数据源，可支持path，InputStream
+    //获取数据源，可支持path，File，InputStream
     private OPCPackage pkg = null;
-
-    private static StylesTable stylesTable;
-    // 开始读数据的行数
-    private int beginRow;
-    // 结束读数据的行数
-    private int endRow;
-    // 所有值列表
-    private final static String RID = "rId";
-    private List<List<Object>> allValueList = new ArrayList<>();
+    // 输入流写入的临时文件，关闭时删除
+    private SpilledFile spilledFile;
+    // 按文件打开时的文件，用作会话缓存的键，按流打开时为null
+    private File source;
+    // 工作薄会话，第一次读取时加载，重新open或close时释放
+    private XlsxSession session;
+
+    // 共享字符串表的存储方式
+    private SharedStringsType sharedStringsType = SharedStringsType.COMPACT;
+    // 表数据的解析方式
+    private SheetParserType sheetParserType = SheetParserType.SAX;
 
     //用一个enum表示单元格可能的数据类型
     enum CellDataType {
@@ -73,121 +83,549 @@ public class Excel2007Reader {
         this.open(in);
     }
 
+    public Excel2007Reader(int beginRow, File file) throws InvalidFormatException {
+        this.beginRow = beginRow;
+        this.open(file);
+    }
+
+    public Excel2007Reader(int beginRow, int rows, File file) throws InvalidFormatException {
+        this.beginRow = beginRow;
+        this.endRow = this.beginRow + rows - 1;
+        this.open(file);
+    }
+
+    /**
+     * 尚未打开数据源的读取器，由ExcelReader在判断格式后调用open
+     *
+     * @param beginRow 开始读数据的行号，从1开始
+     * @param rows     读取的行数，小于等于0时读到表尾
+     */
+    Excel2007Reader(int beginRow, int rows) {
+        this.beginRow = beginRow;
+        if (rows > 0) {
+            this.endRow = this.beginRow + rows - 1;
+        }
+    }
+
     public void open(String path) throws InvalidFormatException {
-        this.pkg = OPCPackage.open(path, PackageAccess.READ);
+        this.open(new File(path));
+    }
+
+    public void open(Path path) throws InvalidFormatException {
+        this.open(path.toFile());
     }
 
+    /**
+     * 以只读方式打开文件，各个part按需从文件中读取
+     *
+     * @param file
+     * @throws InvalidFormatException
+     */
+    public void open(File file) throws InvalidFormatException {
+        release();
+        this.pkg = OPCPackage.open(file, PackageAccess.READ);
+        this.source = file;
+    }
+
+    /**
+     * 从输入流打开，整个文件读入内存；已设置读取限制时先写入临时文件，见ReadLimits
+     *
+     * @param in
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
     public void open(InputStream in) throws InvalidFormatException, java.io.IOException {
+        if (getReadLimits().isLimited()) {
+            open(in, true);
+            return;
+        }
+        release();
         this.pkg = OPCPackage.open(in);
     }
 
     /**
-     * 读取指定表id的数据
+     * 从输入流打开，不关闭输入流
      *
-     * @param rId rId1,rId2对应sheet1和sheet2
+     * @param in    输入流
+     * @param spill 为true时先把流写入临时文件再按文件打开，关闭读取器时删除临时文件
+     * @throws InvalidFormatException
+     * @throws IOException
+     */
+    public void open(InputStream in, boolean spill) throws InvalidFormatException, IOException {
+        if (!spill) {
+            open(in);
+            return;
+        }
+        SpilledFile spilled = new SpilledFile(in);
+        try {
+            open(spilled.getFile());
+        } catch (InvalidFormatException | RuntimeException e) {
+            spilled.close();
+            throw e;
+        }
+        // 临时文件每次不同，不参与会话缓存
+        this.source = null;
+        this.spilledFile = spilled;
+    }
+
+    /**
+     * 关闭数据源，不保存任何修改，按流打开时写入的临时文件一并删除
+     */
+    @Override
+    public void close() throws IOException {
+        release();
+    }
+
+    private void release() {
+        if (session != null) {
+            session.release();
+            session = null;
+        }
+        source = null;
+        if (pkg != null) {
+            pkg.revert();
+            pkg = null;
+        }
+        if (spilledFile != null) {
+            spilledFile.close();
+            spilledFile = null;
+        }
+    }
+
+    public SharedStringsType getSharedStringsType() {
+        return sharedStringsType;
+    }
+
+    /**
+     * 设置共享字符串表的存储方式，默认COMPACT，字符串极多的文件可使用MAPPED
+     *
+     * @param sharedStringsType
+     */
+    public void setSharedStringsType(SharedStringsType sharedStringsType) {
+        this.sharedStringsType = sharedStringsType;
+    }
+
+    public SheetParserType getSheetParserType() {
+        return sheetParserType;
+    }
+
+    /**
+     * 设置表数据的解析方式，默认SAX，SCANNER使用专用的字节扫描器，大表解析更快
+     *
+     * @param sheetParserType
+     */
+    public void setSheetParserType(SheetParserType sheetParserType) {
+        this.sheetParserType = sheetParserType;
+    }
+
+    /**
+     * 读取第rId个表的数据，同readSheet(rId - 1)
+     *
+     * @param rId 1,2对应工作薄中的第一个和第二个表，为null时读取第一个表
      * @throws Exception
      */
     public void processOneSheet(Integer rId) throws Exception {
-        InputStream sheet = null;
-        rId = rId == null ? 1 : rId;
+        readSheet((rId == null ? 1 : rId) - 1);
+    }
+
+    /**
+     * 只读取一个表，按workbook.xml中的顺序直接打开该表的数据part
+     *
+     * @param index 表在工作薄中的索引，从0开始
+     * @throws Exception
+     */
+    @Override
+    public void readSheet(int index) throws Exception {
+        checkOpen();
+        resetStop();
+        beginMetrics();
+        XlsxSession session = session();
+        checkSheetIndex(index, session.getSheetCount());
+        if (isSheetInRange(index)) {
+            parseSheet(session.getSheetPart(pkg, index), session.getSharedStrings(),
+                    session.getStyles(), index, null);
+        }
+        finishMetrics();
+    }
+
+    @Override
+    public List<String> getSheetNames() throws Exception {
+        checkOpen();
+        return session().getSheetNames();
+    }
+
+    @Override
+    public List<SheetInfo> getSheets() throws Exception {
+        checkOpen();
+        return session().getSheets(pkg);
+    }
+
+    /**
+     * 读取文件里面的所有数据
+     *
+     * @throws Exception
+     */
+    public void processAllSheets() throws Exception {
+        checkOpen();
+        resetStop();
+        beginMetrics();
+        XlsxSession session = session();
+        for (int sheetIndex = 0; sheetIndex < session.getSheetCount() && !isStopped(); sheetIndex++) {
+            if (isSheetInRange(sheetIndex)) {
+                // 每个表使用独立的SheetHandler，避免表头宽度等状态串表
+                parseSheet(session.getSheetPart(pkg, sheetIndex), session.getSharedStrings(),
+                        session.getStyles(), sheetIndex, null);
+            }
+        }
+        finishMetrics();
+    }
+
+    /**
+     * 并行读取文件里面的所有数据，每个表在executor上使用各自的解析器和SheetHandler，
+     * 共享只读的SharedStringsStore和样式格式表
+     * 行数据仍按表的顺序在调用线程上输出，尚未轮到输出的表会先缓存在内存中
+     *
+     * @param executor 解析各表使用的线程池，由调用方管理生命周期
+     * @throws Exception
+     */
+    public void processAllSheets(ExecutorService executor) throws Exception {
+        checkOpen();
+        resetStop();
+        beginMetrics();
+        XlsxSession session = session();
+        final StyleFormat[] styles = session.getStyles();
+        final SharedStringsStore sst = session.getSharedStrings();
+        List<Future<SheetRowBuffer>> futures = new ArrayList<>();
+        for (int sheetIndex = 0; sheetIndex < session.getSheetCount(); sheetIndex++) {
+            if (!isSheetInRange(sheetIndex)) {
+                continue;
+            }
+            // 只取出表对应的part，数据流在解析线程上打开
+            final PackagePart part = session.getSheetPart(pkg, sheetIndex);
+            final int index = sheetIndex;
+            futures.add(executor.submit(new Callable<SheetRowBuffer>() {
+                @Override
+                public SheetRowBuffer call() throws Exception {
+                    SheetRowBuffer buffer = new SheetRowBuffer();
+                    parseSheet(part, sst, styles, index, buffer);
+                    return buffer;
+                }
+            }));
+        }
+        SheetRowBuffer.drainInOrder(futures, this);
+        finishMetrics();
+    }
+
+    /**
+     * 以流水线方式读取文件里面的所有数据：解析线程只解析xml并记录单元格的原始内容，
+     * 共享字符串查找和格式化在executor上按批进行，行数据按顺序在调用线程上输出
+     * 适合数值、日期较多，格式化占比高的表
+     * 流水线只在解析线程之外还有空闲的核时才可能更快，单核或核数很少时，记录原始内容和批次交接的额外开销
+     * 使其比processAllSheets()更慢，尚无多核机器上的测量结果，使用前应在目标机器上运行PipelineBenchmark比较
+     *
+     * @param executor   转换各批数据使用的线程池，线程数即转换的并行度，由调用方管理生命周期
+     * @param batchSize  每批的行数
+     * @param queueDepth 等待输出的最大批数，超过时解析线程等待
+     * @throws Exception
+     */
+    public void processAllSheetsPipelined(ExecutorService executor, int batchSize, int queueDepth) throws Exception {
+        checkOpen();
+        resetStop();
+        beginMetrics();
+        final XlsxSession session = session();
+        final StyleFormat[] styles = session.getStyles();
+        final SharedStringsStore sst = session.getSharedStrings();
+        final RowPipeline pipeline = new RowPipeline(executor, batchSize, queueDepth, sst, valueMode, getMetrics());
+        Thread tokenizer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int sheetIndex = 0; sheetIndex < session.getSheetCount() && !isStopped(); sheetIndex++) {
+                        if (isSheetInRange(sheetIndex)) {
+                            parseSheet(session.getSheetPart(pkg, sheetIndex), sst, styles,
+                                    sheetIndex, pipeline);
+                        }
+                    }
+                    pipeline.finish();
+                } catch (StopParsingException e) {
+                    // 调用线程已结束输出
+                } catch (Throwable e) {
+                    pipeline.fail(e);
+                    try {
+                        pipeline.finish();
+                    } catch (StopParsingException ignored) {
+                        // 调用线程已结束输出
+                    }
+                }
+            }
+        }, "excel-pipeline-tokenizer");
+        tokenizer.setDaemon(true);
+        tokenizer.start();
+        pipeline.drainTo(this, tokenizer);
+        finishMetrics();
+    }
+
+    /**
+     * 按行数切分，各表依次扫描，只读取行号和单元格位置，记录每段最后一行之后的字节偏移
+     *
+     * @param rowsPerChunk 每段的行数
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public List<Checkpoint> split(int rowsPerChunk) throws Exception {
+        if (rowsPerChunk <= 0) {
+            throw new RuntimeException("无效的分段行数: " + rowsPerChunk);
+        }
+        checkOpen();
+        XlsxSession session = session();
+        ChunkHandler handler = new ChunkHandler(rowsPerChunk);
+        for (int sheetIndex = 0; sheetIndex < session.getSheetCount(); sheetIndex++) {
+            InputStream sheet = session.getSheetPart(pkg, sheetIndex).getInputStream();
+            handler.beginSheet(sheetIndex);
+            try {
+                SheetScanner scanner = new SheetScanner(sheet, handler);
+                handler.scanner = scanner;
+                if (!scanner.parse()) {
+                    // 不是UTF-8编码，改用SAX解析，不记录字节偏移
+                    handler.scanner = null;
+                    fetchSheetParser(handler).parse(new InputSource(scanner.remaining()));
+                }
+            } catch (StopParsingException e) {
+                // 该表的读取范围已结束
+            } finally {
+                sheet.close();
+            }
+        }
+        return handler.checkpoints;
+    }
+
+    private void checkOpen() {
         if (this.pkg == null) {
             throw new RuntimeException("未设置数据源，请使用open设置对应的数据源");
         }
-        try {
-            XSSFReader r = new XSSFReader(pkg);
-            stylesTable = r.getStylesTable();
-            SharedStringsTable sst = r.getSharedStringsTable();
-            XMLReader parser = fetchSheetParser(sst);
-            sheet = r.getSheet(RID + rId);
-            InputSource sheetSource = new InputSource(sheet);
-            parser.parse(sheetSource);
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            if (sheet != null) {
-                sheet.close();
+    }
+
+    /**
+     * 取出工作薄会话，同一读取器只加载一次，设置了WorkbookCache时先从缓存中取
+     * 共享字符串表的存储方式改变后重新加载
+     */
+    private XlsxSession session() throws Exception {
+        if (session != null && session.getSharedStringsType() != sharedStringsType) {
+            session.release();
+            session = null;
+        }
+        if (session == null) {
+            WorkbookCache cache = getWorkbookCache();
+            String variant = "xlsx|" + sharedStringsType;
+            if (cache != null && source != null) {
+                session = (XlsxSession) cache.acquire(source, variant);
             }
+            if (session == null) {
+                session = XlsxSession.load(pkg, sharedStringsType, getReadLimits(), getReadUsage());
+                if (cache != null && source != null) {
+                    cache.put(source, variant, session);
+                }
+            }
+        }
+        int sharedStrings = session.getSharedStrings().size();
+        ParseMetrics metrics = getMetrics();
+        if (metrics != null) {
+            metrics.sharedStrings = sharedStrings;
         }
+        // 缓存中的会话加载时可能没有限制，只能在取出后检查
+        getReadUsage().sharedStrings(sharedStrings);
+        getReadLimits().checkSharedStrings(sharedStrings);
+        return session;
     }
 
     /**
-     * 读取文件里面的所有数据
+     * 解析一个表，读取范围结束或已调用stop()时正常返回
      *
+     * @param part       表数据的part，读取时按maxPartBytes限制解压的字节数
+     * @param sst        共享字符串表
+     * @param styles     样式格式表
+     * @param sheetIndex 表索引
+     * @param output     并行解析时各表的缓存，为null时直接由读取器输出
      * @throws Exception
      */
-    public void processAllSheets() throws Exception {
-        XSSFReader r = new XSSFReader(pkg);
-        stylesTable = r.getStylesTable();
-        SharedStringsTable sst = r.getSharedStringsTable();
-        XMLReader parser = fetchSheetParser(sst);
-        Iterator<InputStream> sheets = r.getSheetsData();
-        while (sheets.hasNext()) {
-            InputStream sheet = sheets.next();
-            InputSource sheetSource = new InputSource(sheet);
-            parser.parse(sheetSource);
+    private void parseSheet(PackagePart part, SharedStringsStore sst, StyleFormat[] styles, int sheetIndex, RowHandler output) throws Exception {
+        InputStream sheet = LimitedInputStream.open(part, getReadLimits(), getReadUsage());
+        ParseMetrics sheetMetrics = beginSheetMetrics(sheetIndex);
+        CountingInputStream counting = sheetMetrics == null ? null : new CountingInputStream(sheet);
+        InputStream in = counting == null ? sheet : counting;
+        try {
+            SheetHandler handler = new SheetHandler(sst, styles, sheetIndex, output, sheetMetrics);
+            if (sheetParserType == SheetParserType.SCANNER) {
+                Checkpoint from = getResumeFrom();
+                SheetScanner scanner;
+                if (canSeek(from, sheetIndex)) {
+                    // 直接跳到检查点之后的行，不再扫描之前的内容
+                    if (IOUtils.skipFully(in, from.getByteOffset()) != from.getByteOffset()) {
+                        throw new IOException("检查点的字节偏移超出表数据的长度: " + from);
+                    }
+                    scanner = new SheetScanner(in, handler, from.getByteOffset());
+                } else {
+                    scanner = new SheetScanner(in, handler);
+                }
+                handler.scanner = scanner;
+                if (!scanner.parse()) {
+                    // 不是UTF-8编码，改用SAX解析
+                    fetchSheetParser(handler).parse(new InputSource(scanner.remaining()));
+                }
+            } else {
+                fetchSheetParser(handler).parse(new InputSource(in));
+            }
+        } catch (StopParsingException e) {
+            // 该表的读取范围已结束或已调用stop()
+        } finally {
             sheet.close();
         }
+        if (sheetMetrics != null) {
+            sheetMetrics.bytes = counting.getCount();
+            finishSheetMetrics(sheetMetrics);
+        }
     }
 
-    private XMLReader fetchSheetParser(SharedStringsTable sst) throws SAXException {
-        XMLReader parser = XMLReaderFactory.createXMLReader("org.apache.xerces.parsers.SAXParser");
-        ContentHandler handler = new SheetHandler(sst);
-        parser.setContentHandler(handler);
-        return parser;
+    /**
+     * 是否可以按检查点的字节偏移直接跳到该表的某一行
+     * 按表头名称投影时表头行可能在检查点之前，需要从头解析
+     */
+    private boolean canSeek(Checkpoint from, int sheetIndex) {
+        if (from == null || from.getSheetIndex() != sheetIndex || from.getByteOffset() <= 0 || from.getColumns() < 0) {
+            return false;
+        }
+        ColumnProjection projection = getColumnProjection();
+        return projection == null || projection.isResolved();
     }
 
-    public List<List<Object>> getAllValueList() {
-        return allValueList;
+    private XMLReader fetchSheetParser(ContentHandler handler) throws SAXException, ParserConfigurationException {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(handler);
+        return parser;
     }
 
     private class SheetHandler extends DefaultHandler {
-        private SharedStringsTable sst;
-        private String lastContents, cs;
+        private SharedStringsStore sst;
+        // 按样式索引预先计算的数据格式
+        private final StyleFormat[] styles;
+        // 复用的单元格内容缓冲区，只有输出值时才生成String
+        private final StringBuilder lastContents = new StringBuilder(64);
         private boolean isString;
         private boolean validRow;
+        // 当前行是否在读取范围内，行结束时据此输出整行
+        private boolean rowInRange;
+        // 当前行是否需要解析，读取范围内的行和尚未读取的表头行
+        private boolean decodeRow;
+        // 列投影，按表头名称指定时读到表头行后替换为已确定列索引的投影
+        private ColumnProjection projection;
+        // 当前行是否是用来确定投影列的表头行，表头行完整解析
+        private boolean headerRow;
+        // 当前单元格的列索引和在投影中的输出位置
+        private int curColumn;
+        private int curSlot;
         private int curRow = 0;
-        // 定义前一个元素和当前元素的位置，用来计算其中空的单元格数量，如A6和A8等
-        private String preRef = null, ref = null;
+        private int curRowNum;
+        private final int sheetIndex;
+        // 并行解析时行先输出到各表的缓存，为null时直接由读取器输出
+        private final RowHandler output;
+        // 该表的指标，未设置解析监听时为null
+        private final ParseMetrics metrics;
+        // 流水线模式下单元格只记录原始内容，由工作线程转换，用来确定投影列的表头行除外
+        private final boolean rawCells;
+        // 是否输出稀疏行，只在没有列投影时使用
+        private final boolean sparse;
         // 定义该文档一行最大的单元格数，用来补全一行最后可能缺失的单元格
-        private String maxRef = null;
+        private int maxColumns = 0;
+        // 当前行在开始检查点之前，只用来确定行宽，不输出
+        private boolean resumedRow;
+        // 以SCANNER方式解析时的扫描器，用来记录检查点的字节偏移
+        private SheetScanner scanner;
+        // 读取限制和统计
+        private final ReadLimits limits = getReadLimits();
+        private final ReadUsage usage = getReadUsage();
+        // 当前行最长的单元格内容
+        private int cellLength;
 
         // 一行的所有数据
         private List<Object> rowValueList;
 
-        private SheetHandler(SharedStringsTable sst) {
+        private SheetHandler(SharedStringsStore sst, StyleFormat[] styles, int sheetIndex, RowHandler output,
+                             ParseMetrics metrics) {
             this.sst = sst;
+            this.metrics = metrics;
+            this.rawCells = output instanceof RowPipeline;
+            this.styles = styles;
+            this.sheetIndex = sheetIndex;
+            this.output = output;
+            this.projection = getColumnProjection();
+            this.sparse = isSparseRows() && projection == null;
+            Checkpoint from = getResumeFrom();
+            if (from != null && from.getSheetIndex() == sheetIndex && from.getColumns() >= 0) {
+                // 从检查点继续时行宽已知
+                maxColumns = from.getColumns();
+                curRow = 1;
+            }
         }
 
         public void startElement(String uri, String localName, String name, Attributes attributes) throws SAXException {
-            if (name.equals("row") || name.equals("c")) {
-                if (preRef == null) {
-                    preRef = attributes.getValue("r");
-                } else {
-                    preRef = ref;
+            if (name.equals("row")) {
+                // r属性可以省略，省略时为上一行的下一行
+                int rowNum = CellRef.row(attributes.getValue("r"));
+                curRowNum = rowNum < 0 ? curRowNum + 1 : rowNum;
+                limits.checkRow(curRowNum);
+                // 行按行号递增，超过endRow后不再解析该表剩余的内容
+                if (isPastEnd(curRowNum) || isPastCheckpoint(sheetIndex, curRowNum) || isStopped()) {
+                    throw new StopParsingException();
                 }
-                // 当前单元格的位置
-                ref = attributes.getValue("r");
-                this.setNextDataType(attributes);
-
-                int column = getColumn(attributes);
-                if (column < beginRow || (endRow > 0 && column > endRow)) {
-                    validRow = false;
-                } else {
-                    validRow = true;
-                    if (name.equals("row")) {
-                        rowValueList = new ArrayList<>();
-                        allValueList.add(rowValueList);
-                        lastName = null;
-                    }
-                    String cellType = attributes.getValue("t");
-                    if (cellType != null && cellType.equals("s")) {
-                        isString = true;
+                rowInRange = isInRange(curRowNum);
+                // 开始检查点之前的行不输出，行宽未知时仍解析第一行以确定行宽
+                resumedRow = rowInRange && !isInRange(sheetIndex, curRowNum);
+                if (resumedRow && (curRow > 0 || projection != null)) {
+                    rowInRange = false;
+                    resumedRow = false;
+                }
+                headerRow = projection != null && projection.isHeaderRow(curRowNum);
+                decodeRow = rowInRange || headerRow;
+                validRow = decodeRow;
+                curColumn = -1;
+                cellLength = 0;
+                if (!decodeRow) {
+                    usage.row(curRowNum, 0, 0);
+                }
+                if (decodeRow) {
+                    if (sparse) {
+                        rowValueList = new SparseRow();
                     } else {
-                        isString = false;
+                        rowValueList = projection == null || headerRow ? new ArrayList<>() : projection.newRow();
                     }
+                    lastName = null;
+                }
+            } else if (name.equals("c")) {
+                validRow = decodeRow;
+                if (validRow) {
+                    // r属性省略时为上一个单元格的下一列
+                    int column = CellRef.column(attributes.getValue("r"));
+                    curColumn = column < 0 ? curColumn + 1 : column;
+                    // 在补全空单元格之前检查，避免XFD这样的列先补全上万个单元格
+                    limits.checkColumn(curColumn);
+                    if (projection != null && !headerRow) {
+                        // 不在投影中的单元格不解析，也不查找共享字符串
+                        curSlot = projection.slot(curColumn);
+                        validRow = curSlot >= 0;
+                    } else if (!sparse) {
+                        // 补全单元格之间的空单元格，如A6和A8之间的B6
+                        for (int i = rowValueList.size(); i < column; i++) {
+                            rowValueList.add(null);
+                        }
+                    }
+                }
+                if (validRow) {
+                    this.setNextDataType(attributes);
+                    isString = "s".equals(attributes.getValue("t"));
                 }
             }
-            lastContents = "";
+            lastContents.setLength(0);
         }
 
         private String lastName;
@@ -195,57 +633,94 @@ public class Excel2007Reader {
         public void endElement(String uri, String localName, String name) throws SAXException {
             if (validRow) {
                 if (lastName != null && lastName.equals("c") && name.equals("c")) {
-                    rowValueList.add("");
+                    putValue("");
                 } else if (isString) {
-                    int idx = Integer.parseInt(lastContents);
-                    lastContents = new XSSFRichTextString(sst.getEntryAt(idx)).toString();
                     isString = false;
                     validRow = false;
                     if (name.equals("v")) {//匹配字符串
-                        rowValueList.add(this.getDataValue(lastContents.trim(), ""));
+                        if (rawCells && !headerRow) {
+                            // 流水线模式下由工作线程查找共享字符串
+                            putValue(new RawCell(CellDataType.SSTINDEX, styleFormat, lastContents.toString()));
+                        } else {
+                            String value = sst.get(NumberParser.parseInt(lastContents));
+                            putValue(this.getValue(value));
+                        }
                     }
                 } else {
                     if (name.equals("c")) {//匹配非字符串(数字、空)或合并的非空单元格
-                        rowValueList.add(this.getDataValue(lastContents.trim(), ""));
+                        putValue(rawCells && !headerRow ? new RawCell(nextDataType, styleFormat, lastContents.toString())
+                                : this.getValue(lastContents));
                     }
                 }
-
-                // 补全单元格之间的空单元格
-                if ("v".equals(name) || "t".equals(name)) {
-                    if (!ref.equals(preRef)) {
-                        int len = countNullCell(ref, preRef);
-                        for (int i = 0; i < len; i++) {
-                            rowValueList.add(null);
-                        }
+            }
+            // 如果标签名称为 row，这说明已到行尾，输出整行
+            if (decodeRow && name.equals("row")) {
+                decodeRow = false;
+                validRow = false;
+                usage.row(curRowNum, curColumn + 1, cellLength);
+                if (headerRow) {
+                    headerRow = false;
+                    projection = projection.resolve(rowValueList);
+                    rowValueList = projection.project(rowValueList);
+                } else if (projection == null) {
+                    // 默认第一行为表头，以该行单元格数目为最大数目
+                    if (curRow == 0) {
+                        maxColumns = rowValueList.size();
                     }
-                } else {
-                    // 如果标签名称为 row，这说明已到行尾，调用 optRows() 方法
-                    if (name.equals("row")) {
-                        String value = "";
-                        // 默认第一行为表头，以该行单元格数目为最大数目
-                        if (curRow == 0) {
-                            maxRef = ref;
-                        }
-                        // 补全一行尾部可能缺失的单元格
-                        if (maxRef != null) {
-                            int len = countNullCell(maxRef, ref);
-                            for (int i = 0; i <= len; i++) {
-                                rowValueList.add(null);
-                            }
-                        }
-                        curRow++;
-                        preRef = null;
-                        ref = null;
+                    // 补全一行尾部可能缺失的单元格
+                    if (sparse) {
+                        ((SparseRow) rowValueList).padTo(maxColumns);
+                    }
+                    for (int i = rowValueList.size(); i < maxColumns; i++) {
+                        rowValueList.add(null);
                     }
                 }
+                if (!rowInRange) {
+                    lastName = name;
+                    return;
+                }
+                curRow++;
+                rowInRange = false;
+                if (resumedRow) {
+                    lastName = name;
+                    return;
+                }
+                long start = metrics == null ? 0 : System.nanoTime();
+                if (output == null) {
+                    emitRow(sheetIndex, curRowNum, rowValueList, scanner == null ? -1 : scanner.position(),
+                            projection == null ? maxColumns : -1);
+                } else {
+                    output.onRow(sheetIndex, curRowNum, rowValueList);
+                }
+                if (metrics != null) {
+                    metrics.rows++;
+                    metrics.callbackNanos += System.nanoTime() - start;
+                }
             }
             lastName = name;
         }
 
+        /**
+         * 当前单元格的值放入行中，有列投影时放到该列的输出位置
+         *
+         * @param value
+         */
+        private void putValue(Object value) {
+            if (metrics != null) {
+                metrics.cells++;
+            }
+            if (sparse) {
+                ((SparseRow) rowValueList).put(curColumn, value);
+            } else if (projection != null && !headerRow) {
+                rowValueList.set(curSlot, value);
+            } else {
+                rowValueList.add(value);
+            }
+        }
+
         private CellDataType nextDataType = CellDataType.SSTINDEX;
-        private final DataFormatter formatter = new DataFormatter();
-        private short formatIndex;
-        private String formatString;
+        private final CellDecoder decoder = new CellDecoder(valueMode);
+        private StyleFormat styleFormat;
 
         /**
          * 根据element属性设置数据类型
@@ -255,8 +730,7 @@ public class Excel2007Reader {
         public void setNextDataType(Attributes attributes) {
 
             nextDataType = CellDataType.NUMBER;
-            formatIndex = -1;
-            formatString = null;
+            styleFormat = null;
             String cellType = attributes.getValue("t");
             String cellStyleStr = attributes.getValue("s");
             if ("b".equals(cellType)) {
@@ -271,139 +745,91 @@ public class Excel2007Reader {
                 nextDataType = CellDataType.FORMULA;
             }
             if (cellStyleStr != null) {
-                int styleIndex = Integer.parseInt(cellStyleStr);
-                XSSFCellStyle style = stylesTable.getStyleAt(styleIndex);
-                formatIndex = style.getDataFormat();
-                formatString = style.getDataFormatString();
-                if ("m/d/yy" == formatString) {
-                    nextDataType = CellDataType.DATE;
-                    //full format is "yyyy-MM-dd hh:mm:ss.SSS";
-                    formatString = "yyyy-MM-dd";
-                }
-                if (formatString == null) {
-                    nextDataType = CellDataType.NULL;
-                    formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+                int styleIndex = NumberParser.parseInt(cellStyleStr);
+                if (styleIndex < styles.length) {
+                    styleFormat = styles[styleIndex];
+                    if (nextDataType == CellDataType.NUMBER && styleFormat.kind == StyleFormat.Kind.DATE) {
+                        nextDataType = CellDataType.DATE;
+                    }
                 }
             }
         }
 
-        /**
-         * 根据数据类型获取数据
-         *
-         * @param value
-         * @param thisStr
-         * @return
-         */
-        public String getDataValue(String value, String thisStr) {
-            if(value == null || value.isEmpty()){
-                return "";
+        private Object getValue(CharSequence value) {
+            if (metrics == null) {
+                return decoder.decode(nextDataType, styleFormat, value);
             }
-            switch (nextDataType) {
-                //这几个的顺序不能随便交换，交换了很可能会导致数据错误
-                case BOOL:
-                    char first = value.charAt(0);
-                    thisStr = first == '0' ? "FALSE" : "TRUE";
-                    break;
-                case ERROR:
-                    thisStr = "\"ERROR:" + value.toString() + '"';
-                    break;
-                case FORMULA:
-                    thisStr = '"' + value.toString() + '"';
-                    break;
-                case INLINESTR:
-                    XSSFRichTextString rtsi = new XSSFRichTextString(value.toString());
-                    thisStr = rtsi.toString();
-                    rtsi = null;
-                    break;
-                case SSTINDEX:
-                    String sstIndex = value.toString();
-                    thisStr = value.toString();
-                    break;
-                case NUMBER:
-                    if (formatString != null) {
-                        thisStr = formatter.formatRawCellContents(Double.parseDouble(value), formatIndex, formatString).trim();
-                    } else {
-                        thisStr = value;
-                    }
-                    thisStr = thisStr.replace("_", "").trim();
-                    break;
-                case DATE:
-                    try {
-                        thisStr = formatter.formatRawCellContents(Double.parseDouble(value), formatIndex, formatString);
-                    } catch (NumberFormatException ex) {
-                        thisStr = value.toString();
-                    }
-                    thisStr = thisStr.replace(" ", "");
-                    break;
-                default:
-                    thisStr = "";
-                    break;
+            long start = System.nanoTime();
+            Object result = decoder.decode(nextDataType, styleFormat, value);
+            metrics.formatNanos += System.nanoTime() - start;
+            return result;
+        }
+
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (validRow) {
+                lastContents.append(ch, start, length);
+                if (lastContents.length() > cellLength) {
+                    cellLength = lastContents.length();
+                    limits.checkCellLength(cellLength);
+                }
             }
-            return thisStr;
+        }
+    }
+    /**
+     * 切分时使用，只记录行号和第一行的行宽，不解析单元格内容
+     */
+    private class ChunkHandler extends DefaultHandler {
+        private final int rowsPerChunk;
+        private final List<Checkpoint> checkpoints = new ArrayList<>();
+        // 已计入的行数，跨表累计
+        private int rows;
+        private int sheetIndex;
+        private SheetScanner scanner;
+        private int curRowNum;
+        private int curColumn;
+        private boolean rowInRange;
+        // 该表第一行的行宽，与SheetHandler的maxColumns一致，未确定时为-1
+        private int columns;
+        private int rowColumns;
+
+        private ChunkHandler(int rowsPerChunk) {
+            this.rowsPerChunk = rowsPerChunk;
         }
 
-        /**
-         * 计算两个单元格之间的单元格数目(同一行)
-         *
-         * @param ref
-         * @param preRef
-         * @return
-         */
-        public int countNullCell(String ref, String preRef) {
-            // excel2007最大行数是1048576，最大列数是16384，最后一列列名是XFD
-            String xfd = ref.replaceAll("\\d+", "");
-            String xfd_1 = preRef.replaceAll("\\d+", "");
-
-            xfd = fillChar(xfd, 3, '@', true);
-            xfd_1 = fillChar(xfd_1, 3, '@', true);
-
-            char[] letter = xfd.toCharArray();
-            char[] letter_1 = xfd_1.toCharArray();
-            int res = (letter[0] - letter_1[0]) * 26 * 26
-                    + (letter[1] - letter_1[1]) * 26
-                    + (letter[2] - letter_1[2]);
-            return res - 1;
+        private void beginSheet(int sheetIndex) {
+            this.sheetIndex = sheetIndex;
+            this.curRowNum = 0;
+            this.columns = -1;
         }
 
-        /**
-         * 字符串的填充
-         *
-         * @param str
-         * @param len
-         * @param let
-         * @param isPre
-         * @return
-         */
-        String fillChar(String str, int len, char let, boolean isPre) {
-            int len_1 = str.length();
-            if (len_1 < len) {
-                if (isPre) {
-                    for (int i = 0; i < (len - len_1); i++) {
-                        str = let + str;
-                    }
-                } else {
-                    for (int i = 0; i < (len - len_1); i++) {
-                        str = str + let;
-                    }
+        public void startElement(String uri, String localName, String name, Attributes attributes) {
+            if (name.equals("row")) {
+                int rowNum = CellRef.row(attributes.getValue("r"));
+                curRowNum = rowNum < 0 ? curRowNum + 1 : rowNum;
+                if (isPastEnd(curRowNum)) {
+                    throw new StopParsingException();
                 }
+                rowInRange = isInRange(curRowNum);
+                curColumn = -1;
+                rowColumns = 0;
+            } else if (name.equals("c") && rowInRange && columns < 0) {
+                int column = CellRef.column(attributes.getValue("r"));
+                curColumn = column < 0 ? curColumn + 1 : column;
+                rowColumns = curColumn + 1;
             }
-            return str;
-        }
-
-        public void characters(char[] ch, int start, int length) throws SAXException {
-            lastContents += new String(ch, start, length);
         }
 
-        private int getColumn(Attributes attributes) {
-            String row = attributes.getValue("r");
-            int firstDigit = -1;
-            for (int c = 0; c < row.length(); ++c) {
-                if (Character.isDigit(row.charAt(c))) {
-                    firstDigit = c;
-                    break;
+        public void endElement(String uri, String localName, String name) {
+            if (rowInRange && name.equals("row")) {
+                rowInRange = false;
+                if (columns < 0) {
+                    columns = rowColumns;
+                }
+                if (++rows % rowsPerChunk == 0) {
+                    checkpoints.add(new Checkpoint(sheetIndex, curRowNum, scanner == null ? -1 : scanner.position(),
+                            columns));
                 }
             }
-            return Integer.valueOf(row.substring(firstDigit, row.length()));
         }
     }
 }
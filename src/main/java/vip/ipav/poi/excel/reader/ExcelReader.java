@@ -0,0 +1,420 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.poifs.filesystem.FileMagic;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * 统一的读取入口，根据文件头判断是xls(OLE2)还是xlsx(zip)，交给Excel2003Reader或Excel2007Reader读取
+ * 默认以TYPED模式输出单元格值，两种格式的空值规则一致：不存在的单元格为null，
+ * 存在但没有内容的单元格为空字符串，setBlankAsNull(true)后也为null
+ * 两种格式的文本单元格都去掉首尾的空白字符(String.trim()，包括换行和控制字符)，中间的空白保留
+ * 列投影、并行解析、解析监听等选项都在这里设置，读取完毕后应调用close()
+ */
+public class ExcelReader implements Closeable {
+
+    /**
+     * 文件格式
+     */
+    public enum Format {
+        XLS, XLSX
+    }
+
+    private final Format format;
+    private final AbstractExcelReader reader;
+    // 并行解析各表使用的线程池，为null时在调用线程上依次解析
+    private ExecutorService executor;
+    // 流水线模式转换单元格使用的线程池，为null时不使用流水线
+    private ExecutorService pipelineExecutor;
+    private int pipelineBatchSize;
+    private int pipelineQueueDepth;
+
+    public ExcelReader(int beginRow, String path) throws IOException {
+        this(beginRow, 0, new File(path));
+    }
+
+    public ExcelReader(int beginRow, Path path) throws IOException {
+        this(beginRow, 0, path.toFile());
+    }
+
+    public ExcelReader(int beginRow, File file) throws IOException {
+        this(beginRow, 0, file);
+    }
+
+    /**
+     * @param beginRow 开始读数据的行号，从1开始
+     * @param rows     读取的行数，小于等于0时读到表尾
+     * @param file     xls或xlsx文件，按文件头判断格式，与后缀无关
+     * @throws IOException
+     */
+    public ExcelReader(int beginRow, int rows, File file) throws IOException {
+        this.format = detect(FileMagic.valueOf(file));
+        this.reader = open(format, beginRow, rows, file);
+        this.reader.setValueMode(CellValueMode.TYPED);
+    }
+
+    /**
+     * 从输入流读取，不关闭输入流
+     *
+     * @param beginRow 开始读数据的行号，从1开始
+     * @param rows     读取的行数，小于等于0时读到表尾
+     * @param in       输入流
+     * @param spill    为true时先把流写入临时文件再按文件读取，否则整个文件读入内存
+     * @throws IOException
+     */
+    public ExcelReader(int beginRow, int rows, InputStream in, boolean spill) throws IOException {
+        InputStream stream = FileMagic.prepareToCheckMagic(in);
+        this.format = detect(FileMagic.valueOf(stream));
+        if (format == Format.XLS) {
+            Excel2003Reader xls = new Excel2003Reader(beginRow, rows);
+            xls.open(stream, spill);
+            this.reader = xls;
+        } else {
+            Excel2007Reader xlsx = new Excel2007Reader(beginRow, rows);
+            try {
+                xlsx.open(stream, spill);
+            } catch (InvalidFormatException e) {
+                throw new IOException("无法打开xlsx文件", e);
+            }
+            this.reader = xlsx;
+        }
+        this.reader.setValueMode(CellValueMode.TYPED);
+    }
+
+    /**
+     * 判断文件格式
+     *
+     * @param file
+     * @return
+     * @throws IOException 不是xls或xlsx文件
+     */
+    public static Format detect(File file) throws IOException {
+        return detect(FileMagic.valueOf(file));
+    }
+
+    private static Format detect(FileMagic magic) throws IOException {
+        switch (magic) {
+            case OLE2:
+                return Format.XLS;
+            case OOXML:
+                return Format.XLSX;
+            default:
+                throw new IOException("不支持的文件格式: " + magic);
+        }
+    }
+
+    private static AbstractExcelReader open(Format format, int beginRow, int rows, File file) throws IOException {
+        try {
+            if (format == Format.XLS) {
+                return rows > 0 ? new Excel2003Reader(beginRow, rows, file) : new Excel2003Reader(beginRow, file);
+            }
+            return rows > 0 ? new Excel2007Reader(beginRow, rows, file) : new Excel2007Reader(beginRow, file);
+        } catch (InvalidFormatException e) {
+            throw new IOException("无法打开xlsx文件: " + file, e);
+        }
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * 实际读取的Excel2003Reader或Excel2007Reader，用于设置特定格式的选项
+     *
+     * @return
+     */
+    public AbstractExcelReader getReader() {
+        return reader;
+    }
+
+    /**
+     * 设置单元格值的输出方式，默认TYPED
+     *
+     * @param valueMode
+     */
+    public void setValueMode(CellValueMode valueMode) {
+        reader.setValueMode(valueMode);
+    }
+
+    /**
+     * 没有内容的单元格是否输出为null，默认输出空字符串
+     *
+     * @param blankAsNull
+     */
+    public void setBlankAsNull(boolean blankAsNull) {
+        reader.setBlankAsNull(blankAsNull);
+    }
+
+    /**
+     * 是否输出只保存有值单元格的只读SparseRow，默认false
+     *
+     * @param sparseRows
+     */
+    public void setSparseRows(boolean sparseRows) {
+        reader.setSparseRows(sparseRows);
+    }
+
+    public void setColumnIndexes(int... indexes) {
+        reader.setColumnIndexes(indexes);
+    }
+
+    public void setColumnLetters(String... letters) {
+        reader.setColumnLetters(letters);
+    }
+
+    public void setColumnHeaders(int headerRow, String... headers) {
+        reader.setColumnHeaders(headerRow, headers);
+    }
+
+    public void setParseListener(ParseListener parseListener, int progressInterval) {
+        reader.setParseListener(parseListener, progressInterval);
+    }
+
+    /**
+     * 设置后各表在线程池上并行解析，行仍按表的顺序输出
+     *
+     * @param executor 线程池，由调用方管理生命周期，传null恢复为依次解析
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 设置后xlsx文件以流水线方式读取，单元格的转换在线程池上按批进行，见Excel2007Reader.processAllSheetsPipelined
+     * xls文件不支持流水线，仍按原方式读取；同时设置了setExecutor时流水线优先
+     * 可用的核数很少时流水线比普通方式更慢，见Excel2007Reader.processAllSheetsPipelined
+     *
+     * @param executor   转换单元格使用的线程池，由调用方管理生命周期，传null关闭流水线
+     * @param batchSize  每批的行数
+     * @param queueDepth 等待输出的最大批数
+     */
+    public void setPipeline(ExecutorService executor, int batchSize, int queueDepth) {
+        this.pipelineExecutor = executor;
+        this.pipelineBatchSize = batchSize;
+        this.pipelineQueueDepth = queueDepth;
+    }
+
+    /**
+     * 设置工作薄会话的缓存，反复读取同一文件时不再重复解析样式、共享字符串和表的位置
+     * 从输入流读取时不使用缓存
+     *
+     * @param workbookCache 多个ExcelReader共享的缓存，传null不使用缓存
+     */
+    public void setWorkbookCache(WorkbookCache workbookCache) {
+        reader.setWorkbookCache(workbookCache);
+    }
+
+    /**
+     * 设置读取限制，见ReadLimits，超出时抛出ReadLimitExceededException
+     * 按输入流构造且spill为false时整个文件已在构造时读入内存，读取不可信的流时spill应为true
+     *
+     * @param readLimits 传null恢复为不限制
+     */
+    public void setReadLimits(ReadLimits readLimits) {
+        reader.setReadLimits(readLimits);
+    }
+
+    /**
+     * 最近一次读取中与读取限制各项对应的最大值
+     *
+     * @return
+     */
+    public ReadUsage getReadUsage() {
+        return reader.getReadUsage();
+    }
+
+    /**
+     * 设置xlsx文件表数据的解析方式，见SheetParserType，xls文件忽略
+     *
+     * @param sheetParserType
+     */
+    public void setSheetParserType(SheetParserType sheetParserType) {
+        if (reader instanceof Excel2007Reader) {
+            ((Excel2007Reader) reader).setSheetParserType(sheetParserType);
+        }
+    }
+
+    /**
+     * 只读取from之后、to(含)之前的行，见AbstractExcelReader.setResume
+     *
+     * @param from 从该检查点之后继续，为null时从头读取
+     * @param to   读到该检查点为止，为null时读到最后
+     */
+    public void setResume(Checkpoint from, Checkpoint to) {
+        reader.setResume(from, to);
+    }
+
+    /**
+     * 最后输出的行的检查点，还没有输出行时为null
+     *
+     * @return
+     */
+    public Checkpoint getCheckpoint() {
+        return reader.getCheckpoint();
+    }
+
+    /**
+     * 按行数把文件切分为多段，相邻的检查点作为setResume的from和to，各段可以用不同的ExcelReader分别读取
+     *
+     * @param rowsPerChunk 每段的行数
+     * @return 各段的分界点，不含开头和结尾
+     * @throws Exception
+     */
+    public List<Checkpoint> split(int rowsPerChunk) throws Exception {
+        return reader.split(rowsPerChunk);
+    }
+
+    /**
+     * 按工作薄中的顺序列出所有表的表名
+     *
+     * @return
+     * @throws Exception
+     */
+    public List<String> getSheetNames() throws Exception {
+        return reader.getSheetNames();
+    }
+
+    /**
+     * 表目录，见AbstractExcelReader.getSheets
+     *
+     * @return
+     * @throws Exception
+     */
+    public List<SheetInfo> getSheets() throws Exception {
+        return reader.getSheets();
+    }
+
+    /**
+     * 只读取第index个表，每行交给回调
+     *
+     * @param index      表在工作薄中的索引，从0开始
+     * @param rowHandler
+     * @throws Exception
+     */
+    public void readSheet(int index, RowHandler rowHandler) throws Exception {
+        reader.setRowHandler(rowHandler);
+        try {
+            reader.readSheet(index);
+        } finally {
+            reader.setRowHandler(null);
+        }
+    }
+
+    /**
+     * 按表名只读取一个表，每行交给回调
+     *
+     * @param name       表名
+     * @param rowHandler
+     * @throws Exception 找不到该表时抛出RuntimeException
+     */
+    public void readSheet(String name, RowHandler rowHandler) throws Exception {
+        reader.setRowHandler(rowHandler);
+        try {
+            reader.readSheet(name);
+        } finally {
+            reader.setRowHandler(null);
+        }
+    }
+
+    /**
+     * 读取所有表，每行交给回调
+     *
+     * @param rowHandler
+     * @throws Exception
+     */
+    public void read(RowHandler rowHandler) throws Exception {
+        reader.setRowHandler(rowHandler);
+        try {
+            process();
+        } finally {
+            reader.setRowHandler(null);
+        }
+    }
+
+    /**
+     * 读取所有表，按批交给回调，每批不超过batchSize行，也不超过估算的maxBytes内存
+     *
+     * @param batchHandler 批量回调，批次列表在回调后清空复用
+     * @param batchSize    每批的最大行数
+     * @param maxBytes     每批估算的最大内存占用，小于等于0时只按行数分批
+     * @throws Exception
+     */
+    public void read(BatchHandler batchHandler, int batchSize, long maxBytes) throws Exception {
+        BatchRowHandler batches = new BatchRowHandler(batchHandler, batchSize, maxBytes);
+        read(batches);
+        batches.flush();
+    }
+
+    /**
+     * 读取所有表，返回所有行
+     *
+     * @return
+     * @throws Exception
+     */
+    public List<List<Object>> readAll() throws Exception {
+        reader.setRowHandler(null);
+        reader.getAllValueList().clear();
+        process();
+        return reader.getAllValueList();
+    }
+
+    /**
+     * 以拉取方式读取所有表，读取完毕或不再需要时应关闭迭代器
+     *
+     * @param capacity 缓冲的最大行数
+     * @return
+     */
+    public RowIterator iterator(int capacity) {
+        return reader.iterator(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                process();
+                return null;
+            }
+        }, capacity);
+    }
+
+    /**
+     * 以Stream方式读取所有表，关闭Stream时结束后台解析
+     *
+     * @param capacity 缓冲的最大行数
+     * @return
+     */
+    public Stream<List<Object>> stream(int capacity) {
+        return AbstractExcelReader.stream(iterator(capacity));
+    }
+
+    /**
+     * 停止当前的解析
+     */
+    public void stop() {
+        reader.stop();
+    }
+
+    private void process() throws Exception {
+        if (pipelineExecutor != null && reader instanceof Excel2007Reader) {
+            ((Excel2007Reader) reader).processAllSheetsPipelined(pipelineExecutor, pipelineBatchSize, pipelineQueueDepth);
+        } else if (executor == null) {
+            reader.processAllSheets();
+        } else if (reader instanceof Excel2003Reader) {
+            ((Excel2003Reader) reader).processAllSheets(executor);
+        } else {
+            ((Excel2007Reader) reader).processAllSheets(executor);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // 按流打开时写入的临时文件由读取器一并删除
+        reader.close();
+    }
+}
@@ -0,0 +1,69 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.openxml4j.opc.PackagePart;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 限制读取字节数的输入流，用于xlsx解压后的part，超出ReadLimits的maxPartBytes时抛出ReadLimitExceededException
+ * 解压是按读取进行的，超出时只多解压了一个缓冲区
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+    private final ReadLimits limits;
+    private final ReadUsage usage;
+    private long count;
+
+    LimitedInputStream(InputStream in, ReadLimits limits, ReadUsage usage) {
+        super(in);
+        this.limits = limits;
+        this.usage = usage;
+    }
+
+    /**
+     * 打开xlsx中的part，先按zip中记录的解压大小检查，记录的大小可能被伪造，读取时再按实际解压的字节数检查
+     *
+     * @param part
+     * @param limits
+     * @param usage
+     * @return
+     * @throws IOException
+     */
+    static InputStream open(PackagePart part, ReadLimits limits, ReadUsage usage) throws IOException {
+        limits.checkPartBytes(part.getSize());
+        return new LimitedInputStream(part.getInputStream(), limits, usage);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            add(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            add(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        add(skipped);
+        return skipped;
+    }
+
+    private void add(long n) {
+        count += n;
+        usage.partBytes(count);
+        limits.checkPartBytes(count);
+    }
+}
@@ -0,0 +1,109 @@
+package vip.ipav.poi.excel.reader;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 基于内存映射临时文件的共享字符串表，字符串的UTF-8字节写入临时文件，堆内只保留偏移索引
+ * close()时删除临时文件
+ */
+final class MappedSharedStrings implements SharedStringsStore {
+
+    // 单个映射块的大小，超过2GB的文件分块映射
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final File file;
+    private OutputStream out;
+    private long[] offsets;
+    private int size;
+    private MappedByteBuffer[] chunks;
+
+    MappedSharedStrings(int expected) throws IOException {
+        this.file = File.createTempFile("poi-util-sst", ".tmp");
+        this.out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+        this.offsets = new long[Math.max(expected, 16) + 1];
+    }
+
+    void add(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[size + 1] = offsets[size] + bytes.length;
+        size++;
+    }
+
+    /**
+     * 写入完成，映射临时文件
+     *
+     * @throws IOException
+     */
+    void finish() throws IOException {
+        out.close();
+        out = null;
+        long length = offsets[size];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            chunks = new MappedByteBuffer[(int) (length >>> CHUNK_BITS) + 1];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, 1L << CHUNK_BITS));
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("共享字符串索引越界: " + index);
+        }
+        long start = offsets[index];
+        byte[] bytes = new byte[(int) (offsets[index + 1] - start)];
+        // 在副本上批量读取，不修改共享缓冲区的位置，可多线程共享；跨映射块的字符串分段读取
+        int copied = 0;
+        while (copied < bytes.length) {
+            long pos = start + copied;
+            int offset = (int) (pos & CHUNK_MASK);
+            int n = (int) Math.min(bytes.length - copied, (1L << CHUNK_BITS) - offset);
+            ByteBuffer chunk = chunks[(int) (pos >>> CHUNK_BITS)].duplicate();
+            chunk.position(offset);
+            chunk.get(bytes, copied, n);
+            copied += n;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        chunks = null;
+        offsets = null;
+        size = 0;
+        if (!file.delete()) {
+            // 部分平台映射未释放前无法删除
+            file.deleteOnExit();
+        }
+    }
+}
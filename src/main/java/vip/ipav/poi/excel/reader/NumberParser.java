@@ -0,0 +1,105 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 直接从SAX字符缓冲区解析SST索引和数值，忽略首尾空白，常见数值不需要先生成String
+ */
+final class NumberParser {
+
+    // 可以精确表示的最大尾数，2^53
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // 10的0~22次方都可以用double精确表示
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private NumberParser() {
+    }
+
+    /**
+     * 解析非负整数，如SST索引
+     *
+     * @param value
+     * @return
+     */
+    static int parseInt(CharSequence value) {
+        int start = start(value);
+        int end = end(value, start);
+        if (start == end || end - start > 9) {
+            return Integer.parseInt(value.toString().trim());
+        }
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return Integer.parseInt(value.toString().trim());
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * 解析数值，形如-123.45的常见数值直接计算，尾数超过2^53或带指数时交给Double.parseDouble
+     * 尾数和10的幂都能精确表示时一次除法的结果是正确舍入的，与Double.parseDouble一致
+     *
+     * @param value
+     * @return
+     */
+    static double parseDouble(CharSequence value) {
+        int start = start(value);
+        int end = end(value, start);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.parseDouble(value.toString());
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return Double.parseDouble(value.toString());
+            }
+        }
+        if (digits == 0 || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(value.toString());
+        }
+        double result = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -result : result;
+    }
+
+    private static int start(CharSequence value) {
+        int start = 0;
+        int len = value.length();
+        while (start < len && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int end(CharSequence value, int start) {
+        int end = value.length();
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,41 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 解析过程的监听接口，用于输出指标和进度，不依赖具体的指标库
+ * 并行解析时onSheetStart和onSheetEnd在解析各表的线程上调用，其余方法在输出行的线程上调用
+ */
+public interface ParseListener {
+
+    /**
+     * 开始解析一个表
+     *
+     * @param sheetIndex 表索引，从0开始
+     */
+    default void onSheetStart(int sheetIndex) {
+    }
+
+    /**
+     * 一个表解析结束
+     *
+     * @param sheetIndex 表索引，从0开始
+     * @param sheet      该表的指标
+     */
+    default void onSheetEnd(int sheetIndex, ParseMetrics sheet) {
+    }
+
+    /**
+     * 每输出progressInterval行调用一次，可用于进度显示和超时判断，超时可调用读取器的stop()
+     *
+     * @param total 本次解析到目前为止的指标
+     */
+    default void onProgress(ParseMetrics total) {
+    }
+
+    /**
+     * 本次解析结束，解析出错时不调用
+     *
+     * @param total 本次解析的指标
+     */
+    default void onFinish(ParseMetrics total) {
+    }
+}
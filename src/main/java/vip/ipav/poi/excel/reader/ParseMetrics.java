@@ -0,0 +1,109 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 解析指标，整个解析和每个表各有一份
+ * 耗时分为格式化(单元格值的解码和格式化)、回调(行回调)和解析(其余时间，主要是SAX或BIFF记录的解析)
+ * 并行解析时各表的耗时在不同线程上累计，总的格式化耗时可能超过总耗时
+ */
+public class ParseMetrics {
+
+    // 表索引，整个解析为-1
+    private final int sheetIndex;
+    private final long startNanos = System.nanoTime();
+    long rows;
+    long cells;
+    long bytes;
+    long sharedStrings;
+    long formatNanos;
+    long callbackNanos;
+    private volatile long elapsedNanos;
+
+    ParseMetrics(int sheetIndex) {
+        this.sheetIndex = sheetIndex;
+    }
+
+    /**
+     * 表索引，从0开始，整个解析的指标返回-1
+     */
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    /**
+     * 输出的行数
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * 解码的单元格数，不含列投影、读取范围之外跳过的单元格
+     */
+    public long getCells() {
+        return cells;
+    }
+
+    /**
+     * 从底层流读取的字节数，xlsx为解压后的表xml字节数，xls为工作簿流的BIFF字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 共享字符串表的字符串数
+     */
+    public long getSharedStrings() {
+        return sharedStrings;
+    }
+
+    public long getFormatNanos() {
+        return formatNanos;
+    }
+
+    public long getCallbackNanos() {
+        return callbackNanos;
+    }
+
+    /**
+     * 解析耗时，为总耗时减去格式化和回调耗时
+     */
+    public long getParseNanos() {
+        return Math.max(0, getElapsedNanos() - formatNanos - callbackNanos);
+    }
+
+    /**
+     * 总耗时，解析过程中为到目前为止的耗时
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - startNanos;
+    }
+
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * 把一个表的指标累加到整个解析的指标中，行数和回调耗时在输出行时已单独累计
+     */
+    synchronized void merge(ParseMetrics sheet) {
+        cells += sheet.cells;
+        bytes += sheet.bytes;
+        formatNanos += sheet.formatNanos;
+    }
+
+    /**
+     * 累加其他线程上的格式化耗时
+     */
+    synchronized void addFormatNanos(long nanos) {
+        formatNanos += nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseMetrics{sheetIndex=" + sheetIndex + ", rows=" + rows + ", cells=" + cells + ", bytes=" + bytes
+                + ", sharedStrings=" + sharedStrings + ", parseMs=" + getParseNanos() / 1000000
+                + ", formatMs=" + formatNanos / 1000000 + ", callbackMs=" + callbackNanos / 1000000
+                + ", elapsedMs=" + getElapsedNanos() / 1000000 + "}";
+    }
+}
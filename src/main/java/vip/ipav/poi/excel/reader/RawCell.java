@@ -0,0 +1,19 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 流水线模式下尚未转换的单元格，解析线程只记录类型、样式和原始内容，由工作线程转换为输出值
+ */
+final class RawCell {
+
+    final Excel2007Reader.CellDataType type;
+    // 单元格样式对应的数据格式，没有样式时为null
+    final StyleFormat style;
+    // 原始内容，共享字符串为字符串表中的索引
+    final String raw;
+
+    RawCell(Excel2007Reader.CellDataType type, StyleFormat style, String raw) {
+        this.type = type;
+        this.style = style;
+        this.raw = raw;
+    }
+}
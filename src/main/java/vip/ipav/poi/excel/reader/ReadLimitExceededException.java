@@ -0,0 +1,41 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 文件超出ReadLimits设置的限制，解析在超出的位置立即结束，已输出的行不受影响
+ */
+public class ReadLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ReadLimits.Limit limit;
+    private final long maximum;
+    private final long actual;
+
+    public ReadLimitExceededException(ReadLimits.Limit limit, long maximum, long actual) {
+        super("超出读取限制，" + limit.getDescription() + "上限为" + maximum + "，实际为" + actual);
+        this.limit = limit;
+        this.maximum = maximum;
+        this.actual = actual;
+    }
+
+    /**
+     * 超出的限制
+     */
+    public ReadLimits.Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * 设置的上限
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * 超出上限时的值，xlsx按zip中记录的解压大小检查时为记录的大小
+     */
+    public long getActual() {
+        return actual;
+    }
+}
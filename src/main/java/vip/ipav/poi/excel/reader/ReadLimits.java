@@ -0,0 +1,146 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 读取限制，用于读取不可信的上传文件，解析过程中一旦超出立即抛出ReadLimitExceededException，
+ * 按文件打开时各个part边读边检查，不会先把整个表或整个part读入内存再检查
+ * 按输入流打开且不写入临时文件时，POI在打开时就把整个文件解压读入内存，限制只能约束之后的解析，
+ * 因此设置了限制后读取器的open(InputStream)总是先写入临时文件；在构造方法中按流打开的读取器应使用写入临时文件的方式
+ * 各项小于等于0时不限制，默认均不限制
+ */
+public class ReadLimits {
+
+    /**
+     * 限制的种类
+     */
+    public enum Limit {
+        ROWS("行号"),
+        COLUMNS("列数"),
+        PART_BYTES("解压后的字节数"),
+        SHARED_STRINGS("共享字符串数"),
+        CELL_LENGTH("单元格文本长度");
+
+        private final String description;
+
+        Limit(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private int maxRows;
+    private int maxColumns;
+    private long maxPartBytes;
+    private int maxSharedStrings;
+    private int maxCellLength;
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * 每个表的最大行号，所有解析到的行都检查，包括beginRow之前不输出的行
+     *
+     * @param maxRows 行号从1开始
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public int getMaxColumns() {
+        return maxColumns;
+    }
+
+    /**
+     * 每行的最大列数，单元格的列索引达到该值时失败，在补全空单元格之前检查
+     *
+     * @param maxColumns
+     */
+    public void setMaxColumns(int maxColumns) {
+        this.maxColumns = maxColumns;
+    }
+
+    public long getMaxPartBytes() {
+        return maxPartBytes;
+    }
+
+    /**
+     * xlsx每个表数据和共享字符串part解压后的最大字节数，xls为工作薄流的最大字节数
+     * xlsx先按zip中记录的解压大小检查，读取时再按实际解压的字节数检查
+     *
+     * @param maxPartBytes
+     */
+    public void setMaxPartBytes(long maxPartBytes) {
+        this.maxPartBytes = maxPartBytes;
+    }
+
+    public int getMaxSharedStrings() {
+        return maxSharedStrings;
+    }
+
+    /**
+     * 共享字符串表的最大字符串数
+     *
+     * @param maxSharedStrings
+     */
+    public void setMaxSharedStrings(int maxSharedStrings) {
+        this.maxSharedStrings = maxSharedStrings;
+    }
+
+    public int getMaxCellLength() {
+        return maxCellLength;
+    }
+
+    /**
+     * 单元格文本和共享字符串的最大字符数，xlsx在拼接单元格内容的过程中检查
+     *
+     * @param maxCellLength
+     */
+    public void setMaxCellLength(int maxCellLength) {
+        this.maxCellLength = maxCellLength;
+    }
+
+    /**
+     * 是否设置了任一限制
+     */
+    boolean isLimited() {
+        return maxRows > 0 || maxColumns > 0 || maxPartBytes > 0 || maxSharedStrings > 0 || maxCellLength > 0;
+    }
+
+    void checkRow(int rowNum) {
+        check(Limit.ROWS, maxRows, rowNum);
+    }
+
+    /**
+     * @param column 列索引，从0开始
+     */
+    void checkColumn(int column) {
+        check(Limit.COLUMNS, maxColumns, column + 1L);
+    }
+
+    void checkPartBytes(long bytes) {
+        check(Limit.PART_BYTES, maxPartBytes, bytes);
+    }
+
+    void checkSharedStrings(long count) {
+        check(Limit.SHARED_STRINGS, maxSharedStrings, count);
+    }
+
+    void checkCellLength(int length) {
+        check(Limit.CELL_LENGTH, maxCellLength, length);
+    }
+
+    private static void check(Limit limit, long maximum, long actual) {
+        if (maximum > 0 && actual > maximum) {
+            throw new ReadLimitExceededException(limit, maximum, actual);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReadLimits{maxRows=" + maxRows + ", maxColumns=" + maxColumns + ", maxPartBytes=" + maxPartBytes
+                + ", maxSharedStrings=" + maxSharedStrings + ", maxCellLength=" + maxCellLength + "}";
+    }
+}
@@ -0,0 +1,98 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 读取过程中与ReadLimits各项对应的最大值，不论是否设置了限制都统计，用来估算所需内存和确定限制
+ * 每次开始读取时清零，读取过程中可以在其他线程上查看；并行解析时为各表的最大值
+ */
+public class ReadUsage {
+
+    private volatile int rows;
+    private volatile int columns;
+    private volatile long partBytes;
+    private volatile int sharedStrings;
+    private volatile int cellLength;
+
+    /**
+     * 解析到的最大行号，包括不输出的行
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * 最宽一行的列数，按最后一个单元格的列计算
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * 解压后最大的part的字节数，xlsx为表数据或共享字符串part实际读取的字节数，xls为工作薄流的字节数
+     */
+    public long getPartBytes() {
+        return partBytes;
+    }
+
+    /**
+     * 共享字符串表的字符串数
+     */
+    public int getSharedStrings() {
+        return sharedStrings;
+    }
+
+    /**
+     * 最长的单元格文本的字符数
+     */
+    public int getCellLength() {
+        return cellLength;
+    }
+
+    synchronized void reset() {
+        rows = 0;
+        columns = 0;
+        partBytes = 0;
+        sharedStrings = 0;
+        cellLength = 0;
+    }
+
+    /**
+     * 一行解析结束时更新
+     *
+     * @param rowNum     行号
+     * @param columns    该行的列数
+     * @param cellLength 该行最长的单元格文本的字符数
+     */
+    synchronized void row(int rowNum, int columns, int cellLength) {
+        if (rowNum > this.rows) {
+            this.rows = rowNum;
+        }
+        if (columns > this.columns) {
+            this.columns = columns;
+        }
+        if (cellLength > this.cellLength) {
+            this.cellLength = cellLength;
+        }
+    }
+
+    synchronized void partBytes(long bytes) {
+        if (bytes > partBytes) {
+            partBytes = bytes;
+        }
+    }
+
+    synchronized void cellLength(int length) {
+        if (length > cellLength) {
+            cellLength = length;
+        }
+    }
+
+    void sharedStrings(int count) {
+        sharedStrings = count;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadUsage{rows=" + rows + ", columns=" + columns + ", partBytes=" + partBytes
+                + ", sharedStrings=" + sharedStrings + ", cellLength=" + cellLength + "}";
+    }
+}
@@ -0,0 +1,19 @@
+package vip.ipav.poi.excel.reader;
+
+import java.util.List;
+
+/**
+ * 行回调接口，每解析完一行立即回调，不再把整个文件缓存到allValueList中
+ * 设置了RowHandler的读取器不会再填充allValueList，内存占用与文件大小无关
+ */
+public interface RowHandler {
+
+    /**
+     * 一行解析完成
+     *
+     * @param sheetIndex 表索引，从0开始
+     * @param rowNum     行号，与beginRow一致从1开始
+     * @param row        该行的所有数据，回调结束后读取器不会再修改该列表
+     */
+    void onRow(int sheetIndex, int rowNum, List<Object> row);
+}
@@ -0,0 +1,123 @@
+package vip.ipav.poi.excel.reader;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 拉取模式的行迭代器，解析在独立的生产者线程上进行，通过有界队列把行交给调用方
+ * 队列满时解析线程阻塞，内存占用不超过队列容量
+ * 不再读取时应调用close()，以便结束解析线程
+ */
+public class RowIterator implements Iterator<List<Object>>, RowHandler, Closeable {
+
+    // 解析结束标记
+    private static final List<Object> END = new ArrayList<>(0);
+
+    private final BlockingQueue<List<Object>> queue;
+    private volatile boolean closed;
+    private volatile Throwable error;
+    private Thread producer;
+    private List<Object> next;
+
+    RowIterator(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 启动解析线程
+     *
+     * @param task 解析任务，解析出的行通过onRow进入队列
+     */
+    void start(final Callable<?> task) {
+        producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.call();
+                } catch (Throwable e) {
+                    if (!closed) {
+                        error = e;
+                    }
+                } finally {
+                    try {
+                        if (!closed) {
+                            queue.put(END);
+                        }
+                    } catch (InterruptedException ignored) {
+                        // close()时中断，无需再放入结束标记
+                    }
+                }
+            }
+        }, "excel-row-reader");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @Override
+    public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+        if (closed) {
+            throw new CancellationException("行迭代器已关闭");
+        }
+        try {
+            queue.put(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("行迭代器已关闭");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            if (closed) {
+                return false;
+            }
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("读取Excel被中断", e);
+            }
+        }
+        if (next == END) {
+            closed = true;
+            if (error != null) {
+                throw new RuntimeException("读取Excel失败", error);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<Object> row = next;
+        next = null;
+        return row;
+    }
+
+    /**
+     * 停止读取，中断仍在进行的解析并释放队列中的行
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (producer != null) {
+            producer.interrupt();
+        }
+        queue.clear();
+    }
+}
@@ -0,0 +1,220 @@
+package vip.ipav.poi.excel.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 流水线模式的行缓冲，分三个阶段：
+ * 解析线程输出只记录了原始内容(RawCell)的行，按批交给线程池转换为输出值，
+ * 转换后的批次按提交顺序在调用线程上输出
+ * 队列中最多有queueDepth个批次，队列满时解析线程等待
+ * 只有转换能与解析在不同的核上同时进行时才有收益，核数很少时交接的开销使整体变慢
+ */
+final class RowPipeline implements RowHandler {
+
+    // 解析结束标记
+    private static final Future<Batch> END = new FutureTask<>(new Callable<Batch>() {
+        @Override
+        public Batch call() {
+            return null;
+        }
+    });
+
+    private final ExecutorService executor;
+    private final BlockingQueue<Future<Batch>> queue;
+    private final int batchSize;
+    private final SharedStringsStore sst;
+    private final CellValueMode valueMode;
+    // 本次解析的指标，转换耗时计入格式化耗时，为null时不统计
+    private final ParseMetrics metrics;
+    // 每个工作线程复用一个转换器，避免每批重新建立DataFormatter的格式缓存
+    private final ThreadLocal<CellDecoder> decoders = new ThreadLocal<CellDecoder>() {
+        @Override
+        protected CellDecoder initialValue() {
+            return new CellDecoder(RowPipeline.this.valueMode);
+        }
+    };
+    private Batch current;
+    // 解析线程的异常
+    private volatile Throwable error;
+
+    RowPipeline(ExecutorService executor, int batchSize, int queueDepth, SharedStringsStore sst,
+                CellValueMode valueMode, ParseMetrics metrics) {
+        if (batchSize <= 0 || queueDepth <= 0) {
+            throw new RuntimeException("无效的流水线参数: batchSize=" + batchSize + ", queueDepth=" + queueDepth);
+        }
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueDepth);
+        this.batchSize = batchSize;
+        this.sst = sst;
+        this.valueMode = valueMode;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+        if (current == null) {
+            current = new Batch(batchSize);
+        }
+        current.add(sheetIndex, rowNum, row);
+        if (current.size() >= batchSize) {
+            submit();
+        }
+    }
+
+    /**
+     * 解析线程结束，提交剩余的行
+     */
+    void finish() {
+        if (current != null) {
+            submit();
+        }
+        put(END);
+    }
+
+    /**
+     * 解析线程出错，输出完已提交的批次后在调用线程上抛出
+     *
+     * @param e
+     */
+    void fail(Throwable e) {
+        this.error = e;
+    }
+
+    private void submit() {
+        final Batch batch = current;
+        current = null;
+        put(executor.submit(new Callable<Batch>() {
+            @Override
+            public Batch call() {
+                long start = metrics == null ? 0 : System.nanoTime();
+                batch.decode(decoders.get(), sst);
+                if (metrics != null) {
+                    metrics.addFormatNanos(System.nanoTime() - start);
+                }
+                return batch;
+            }
+        }));
+    }
+
+    private void put(Future<Batch> future) {
+        try {
+            queue.put(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StopParsingException();
+        }
+    }
+
+    /**
+     * 在调用线程上按顺序输出转换后的行，直到解析线程结束
+     * 已调用stop()或转换出错时不再输出，等待解析线程结束后返回
+     *
+     * @param reader    输出行的读取器
+     * @param tokenizer 解析线程
+     * @throws Exception 解析或转换时的异常
+     */
+    void drainTo(AbstractExcelReader reader, Thread tokenizer) throws Exception {
+        Throwable failure = null;
+        try {
+            while (true) {
+                Future<Batch> future = queue.take();
+                if (future == END) {
+                    break;
+                }
+                Batch batch;
+                try {
+                    batch = future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        // 让解析线程尽快结束
+                        reader.stop();
+                    }
+                    continue;
+                }
+                for (int i = 0; i < batch.size() && failure == null && !reader.isStopped(); i++) {
+                    reader.emitRow(batch.sheetIndexes[i], batch.rowNums[i], batch.rows.get(i));
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+            reader.stop();
+            tokenizer.interrupt();
+        }
+        tokenizer.join();
+        // 等待尚未取出的批次转换完成，之后共享字符串表才能关闭
+        for (Future<Batch> future : queue) {
+            try {
+                future.get();
+            } catch (ExecutionException ignored) {
+                // 已经出错，只等待结束
+            }
+        }
+        if (failure == null) {
+            failure = error;
+        }
+        if (failure instanceof Exception) {
+            throw (Exception) failure;
+        }
+        if (failure != null) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * 一批行及其所在的表和行号
+     */
+    private static final class Batch {
+        private final int[] sheetIndexes;
+        private final int[] rowNums;
+        private final List<List<Object>> rows;
+
+        private Batch(int capacity) {
+            this.sheetIndexes = new int[capacity];
+            this.rowNums = new int[capacity];
+            this.rows = new ArrayList<>(capacity);
+        }
+
+        private void add(int sheetIndex, int rowNum, List<Object> row) {
+            sheetIndexes[rows.size()] = sheetIndex;
+            rowNums[rows.size()] = rowNum;
+            rows.add(row);
+        }
+
+        private int size() {
+            return rows.size();
+        }
+
+        /**
+         * 把各行中的RawCell替换为输出值
+         */
+        private void decode(CellDecoder decoder, SharedStringsStore sst) {
+            for (List<Object> row : rows) {
+                if (row instanceof SparseRow) {
+                    SparseRow sparse = (SparseRow) row;
+                    for (int k = 0; k < sparse.getCellCount(); k++) {
+                        Object value = sparse.getValueAt(k);
+                        if (value instanceof RawCell) {
+                            sparse.setValueAt(k, decoder.decode((RawCell) value, sst));
+                        }
+                    }
+                    continue;
+                }
+                for (int i = 0; i < row.size(); i++) {
+                    Object value = row.get(i);
+                    if (value instanceof RawCell) {
+                        row.set(i, decoder.decode((RawCell) value, sst));
+                    }
+                }
+            }
+        }
+    }
+}
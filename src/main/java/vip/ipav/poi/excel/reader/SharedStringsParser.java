@@ -0,0 +1,173 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 以SAX方式流式解析sharedStrings.xml并写入SharedStringsStore，不创建CTRst等XMLBeans对象
+ * 富文本只保留各段文字，忽略拼音(rPh)
+ */
+final class SharedStringsParser extends DefaultHandler {
+
+    private final CompactSharedStrings compact;
+    private final MappedSharedStrings mapped;
+    private final ReadLimits limits;
+    private final ReadUsage usage;
+    private final StringBuilder text = new StringBuilder();
+    private boolean inText;
+    private boolean inPhonetic;
+    // 已加入的字符串数
+    private int count;
+
+    private SharedStringsParser(CompactSharedStrings compact, MappedSharedStrings mapped, ReadLimits limits,
+                                ReadUsage usage) {
+        this.compact = compact;
+        this.mapped = mapped;
+        this.limits = limits;
+        this.usage = usage;
+    }
+
+    /**
+     * 加载文件中的共享字符串表，文件没有共享字符串表时返回空表
+     *
+     * @param pkg
+     * @param type   存储方式
+     * @param limits 读取限制，检查part的字节数、字符串数和字符串长度
+     * @param usage  读取限制的统计
+     * @return
+     * @throws Exception
+     */
+    static SharedStringsStore load(OPCPackage pkg, SharedStringsType type, ReadLimits limits, ReadUsage usage)
+            throws Exception {
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        CompactSharedStrings compact = null;
+        MappedSharedStrings mapped = null;
+        if (type == SharedStringsType.MAPPED) {
+            mapped = new MappedSharedStrings(0);
+        } else {
+            compact = new CompactSharedStrings(0);
+        }
+        SharedStringsStore store = compact != null ? compact : mapped;
+        try {
+            if (!parts.isEmpty()) {
+                InputStream in = LimitedInputStream.open(parts.get(0), limits, usage);
+                try {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new SharedStringsParser(compact, mapped, limits, usage));
+                    parser.parse(new InputSource(in));
+                } finally {
+                    in.close();
+                }
+            }
+            if (mapped != null) {
+                mapped.finish();
+            }
+        } catch (Exception e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        if ("si".equals(localName)) {
+            text.setLength(0);
+            limits.checkSharedStrings(count + 1L);
+        } else if ("sst".equals(localName)) {
+            // 先按记录的字符串数检查，记录可能不准确，之后逐个检查
+            String uniqueCount = attributes.getValue("uniqueCount");
+            if (uniqueCount != null) {
+                long declared;
+                try {
+                    declared = Long.parseLong(uniqueCount.trim());
+                } catch (NumberFormatException e) {
+                    declared = 0;
+                }
+                limits.checkSharedStrings(declared);
+            }
+        } else if ("rPh".equals(localName)) {
+            inPhonetic = true;
+        } else if ("t".equals(localName) && !inPhonetic) {
+            inText = true;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if ("t".equals(localName)) {
+            inText = false;
+        } else if ("rPh".equals(localName)) {
+            inPhonetic = false;
+        } else if ("si".equals(localName)) {
+            String value = utfDecode(text);
+            count++;
+            usage.cellLength(value.length());
+            if (compact != null) {
+                compact.add(value);
+            } else {
+                try {
+                    mapped.add(value);
+                } catch (IOException e) {
+                    throw new SAXException("写入共享字符串临时文件失败", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (inText) {
+            text.append(ch, start, length);
+            limits.checkCellLength(text.length());
+        }
+    }
+
+    /**
+     * 还原OOXML中以_xHHHH_转义的字符，与XSSFRichTextString.getString()一致
+     *
+     * @param value
+     * @return
+     */
+    static String utfDecode(CharSequence value) {
+        int len = value.length();
+        StringBuilder buf = null;
+        int copied = 0;
+        for (int i = 0; i + 6 < len; i++) {
+            if (value.charAt(i) == '_' && value.charAt(i + 1) == 'x' && value.charAt(i + 6) == '_') {
+                int code = 0;
+                int j = i + 2;
+                for (; j < i + 6; j++) {
+                    int digit = Character.digit(value.charAt(j), 16);
+                    if (digit < 0) {
+                        break;
+                    }
+                    code = code * 16 + digit;
+                }
+                if (j == i + 6) {
+                    if (buf == null) {
+                        buf = new StringBuilder(len);
+                    }
+                    buf.append(value, copied, i).append((char) code);
+                    copied = i + 7;
+                    i += 6;
+                }
+            }
+        }
+        if (buf == null) {
+            return value.toString();
+        }
+        return buf.append(value, copied, len).toString();
+    }
+}
@@ -0,0 +1,23 @@
+package vip.ipav.poi.excel.reader;
+
+import java.io.Closeable;
+
+/**
+ * xlsx共享字符串表的存储，SST单元格直接解析为String，不再创建XSSFRichTextString
+ * 加载完成后只读，可被并行解析的多个表共享
+ */
+public interface SharedStringsStore extends Closeable {
+
+    /**
+     * @return 共享字符串的数量
+     */
+    int size();
+
+    /**
+     * 读取共享字符串
+     *
+     * @param index SST单元格中的索引
+     * @return
+     */
+    String get(int index);
+}
@@ -0,0 +1,15 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 共享字符串表的存储方式
+ */
+public enum SharedStringsType {
+    /**
+     * 堆内紧凑数组，字符串以UTF-8字节连续存放，配合偏移索引读取
+     */
+    COMPACT,
+    /**
+     * 写入临时文件并内存映射，堆内只保留偏移索引，适合数百万条字符串的超大SST
+     */
+    MAPPED
+}
@@ -0,0 +1,96 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * 表目录中的一项：表在工作薄中的索引、表名和表头记录的数据范围
+ * 数据范围取自xlsx表的dimension元素或xls表的DimensionsRecord，不解析单元格，
+ * 由写出文件的程序维护，可能不准确；没有记录时hasDimension()为false
+ */
+public final class SheetInfo {
+
+    private final int index;
+    private final String name;
+    private final int firstRow;
+    private final int lastRow;
+    private final int firstColumn;
+    private final int lastColumn;
+
+    /**
+     * @param index       表索引，从0开始
+     * @param name        表名
+     * @param firstRow    第一行的行号，从1开始，未知时为-1
+     * @param lastRow     最后一行的行号，从1开始，未知时为-1
+     * @param firstColumn 第一列的索引，从0开始，未知时为-1
+     * @param lastColumn  最后一列的索引，从0开始，未知时为-1
+     */
+    SheetInfo(int index, String name, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        this.index = index;
+        this.name = name;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.firstColumn = firstColumn;
+        this.lastColumn = lastColumn;
+    }
+
+    /**
+     * 按A1:C20形式的范围创建，范围无法识别时为未知
+     */
+    static SheetInfo of(int index, String name, String ref) {
+        if (ref != null) {
+            try {
+                CellRangeAddress range = CellRangeAddress.valueOf(ref);
+                if (range.getFirstRow() >= 0 && range.getFirstColumn() >= 0) {
+                    return new SheetInfo(index, name, range.getFirstRow() + 1, range.getLastRow() + 1,
+                            range.getFirstColumn(), range.getLastColumn());
+                }
+            } catch (RuntimeException e) {
+                // 按未知处理
+            }
+        }
+        return new SheetInfo(index, name, -1, -1, -1, -1);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean hasDimension() {
+        return lastRow > 0;
+    }
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    /**
+     * @return A1:C20形式的数据范围，未知时为null
+     */
+    public String getDimension() {
+        if (!hasDimension()) {
+            return null;
+        }
+        return new CellRangeAddress(firstRow - 1, lastRow - 1, firstColumn, lastColumn).formatAsString();
+    }
+
+    @Override
+    public String toString() {
+        return "SheetInfo{index=" + index + ", name=" + name + ", dimension=" + getDimension() + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * xlsx表数据的解析方式
+ */
+public enum SheetParserType {
+    /**
+     * JDK自带的SAX解析器，默认方式，支持任意合法的xml
+     */
+    SAX,
+    /**
+     * 专用的字节扫描器，直接扫描UTF-8字节，只识别表数据用到的row、c、v、is、t元素及r、t、s属性，
+     * 不处理命名空间和DTD，省去通用解析器的开销；非UTF-8编码的表自动改用SAX
+     */
+    SCANNER
+}
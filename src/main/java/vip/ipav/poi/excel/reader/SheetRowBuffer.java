@@ -0,0 +1,68 @@
+package vip.ipav.poi.excel.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 并行解析时缓存单个表的行，等前面的表输出完毕后再按顺序交给读取器输出
+ */
+final class SheetRowBuffer implements RowHandler {
+
+    private final List<List<Object>> rows = new ArrayList<>();
+    private int[] rowNums = new int[64];
+    private int sheetIndex;
+
+    @Override
+    public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+        if (rows.size() == rowNums.length) {
+            int[] grown = new int[rowNums.length * 2];
+            System.arraycopy(rowNums, 0, grown, 0, rowNums.length);
+            rowNums = grown;
+        }
+        this.sheetIndex = sheetIndex;
+        rowNums[rows.size()] = rowNum;
+        rows.add(row);
+    }
+
+    /**
+     * 按解析顺序把缓存的行交给读取器输出，读取器停止后不再输出
+     *
+     * @param reader
+     */
+    void drainTo(AbstractExcelReader reader) {
+        for (int i = 0; i < rows.size() && !reader.isStopped(); i++) {
+            reader.emitRow(sheetIndex, rowNums[i], rows.get(i));
+            rows.set(i, null);
+        }
+        rows.clear();
+    }
+
+    /**
+     * 按提交顺序等待各表解析完成并输出，出错时取消其余任务
+     *
+     * @param futures 各表的解析任务，按表顺序排列
+     * @param reader  输出行的读取器
+     * @throws Exception
+     */
+    static void drainInOrder(List<Future<SheetRowBuffer>> futures, AbstractExcelReader reader) throws Exception {
+        try {
+            for (Future<SheetRowBuffer> future : futures) {
+                if (reader.isStopped()) {
+                    future.cancel(true);
+                    continue;
+                }
+                future.get().drainTo(reader);
+            }
+        } catch (ExecutionException e) {
+            for (Future<SheetRowBuffer> future : futures) {
+                future.cancel(true);
+            }
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package vip.ipav.poi.excel.reader;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * 表数据(sheetN.xml)的专用扫描器，直接扫描UTF-8字节，以SAX事件交给SheetHandler
+ * 不处理命名空间，元素名和属性名只取前缀之后的部分；只区分row、c、v、is、t元素，其余元素以空名称报告，
+ * 只解析row和c元素的r、t、s属性，其余属性跳过
+ * 注释、处理指令和DOCTYPE跳过，CDATA按文本输出，支持xml预定义实体和字符引用，换行符按xml规范统一为\n
+ */
+final class SheetScanner {
+
+    static final String ROW = "row";
+    static final String CELL = "c";
+    static final String VALUE = "v";
+    static final String INLINE_STRING = "is";
+    static final String TEXT = "t";
+    // 不需要区分的元素
+    static final String OTHER = "";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 单元格t属性的常见取值，直接返回常量，不创建字符串
+    private static final String[] CELL_TYPES = {"s", "n", "b", "e", "str", "inlineStr", "d"};
+
+    private final InputStream in;
+    private final ContentHandler handler;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    // 当前缓冲区之前已扫描的字节数，从表数据中间开始扫描时包含跳过的字节数
+    private long consumed;
+    // 尚未交给handler的文本
+    private final char[] text = new char[4096];
+    private int textLength;
+    // 上一个字符是\r，紧随的\n不再输出
+    private boolean afterCR;
+    // 元素名、属性名、实体名的缓冲区，只保存前缀之后的部分
+    private final byte[] name = new byte[32];
+    private final CellAttributes attributes = new CellAttributes();
+    private final StringBuilder value = new StringBuilder(16);
+
+    SheetScanner(InputStream in, ContentHandler handler) {
+        this(in, handler, 0);
+    }
+
+    /**
+     * 从表数据中间的某一行开始扫描，此时没有xml声明和外层元素，之后多出的结束标签不做检查
+     *
+     * @param in      已跳过offset字节的数据
+     * @param handler
+     * @param offset  已跳过的字节数，position()从该值开始计算
+     */
+    SheetScanner(InputStream in, ContentHandler handler, long offset) {
+        this.in = in;
+        this.handler = handler;
+        this.consumed = offset;
+    }
+
+    /**
+     * 已扫描的字节数，在endElement("row")中调用时即该行结束标签之后的位置
+     *
+     * @return
+     */
+    long position() {
+        return consumed + pos;
+    }
+
+    /**
+     * 扫描整个表，handler抛出的异常直接抛出
+     *
+     * @return 数据不是UTF-8编码(以UTF-16字节顺序标记或0字节开头)时不扫描并返回false，
+     * 此时由remaining()取得原始数据改用SAX解析
+     * @throws IOException
+     * @throws SAXException xml格式错误
+     */
+    boolean parse() throws IOException, SAXException {
+        while (limit < 4) {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                break;
+            }
+            limit += n;
+        }
+        if (limit >= 2) {
+            int b0 = buf[0] & 0xFF;
+            int b1 = buf[1] & 0xFF;
+            if (b0 == 0xFE && b1 == 0xFF || b0 == 0xFF && b1 == 0xFE || b0 == 0 || b1 == 0) {
+                return false;
+            }
+            if (limit >= 3 && b0 == 0xEF && b1 == 0xBB && (buf[2] & 0xFF) == 0xBF) {
+                pos = 3;
+            }
+        }
+        while (pos < limit || fill()) {
+            int b = buf[pos++] & 0xFF;
+            if (b == '<') {
+                flushText();
+                afterCR = false;
+                markup();
+            } else if (b == '&') {
+                afterCR = false;
+                appendText(entity());
+            } else {
+                appendRaw(b);
+            }
+        }
+        flushText();
+        return true;
+    }
+
+    /**
+     * parse()返回false时，取得包括已读入缓冲区部分在内的原始数据
+     *
+     * @return
+     */
+    InputStream remaining() {
+        return new SequenceInputStream(new ByteArrayInputStream(buf, 0, limit), in);
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        consumed += limit;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private int next() throws IOException, SAXException {
+        int b = read();
+        if (b < 0) {
+            throw error("文件意外结束");
+        }
+        return b;
+    }
+
+    /**
+     * 处理'<'之后的标签、注释、处理指令或CDATA
+     */
+    private void markup() throws IOException, SAXException {
+        int b = next();
+        if (b == '/') {
+            String element = element(readName(next()));
+            while (next() != '>') {
+                // 跳过结束标签中的空白
+            }
+            handler.endElement("", element, element);
+        } else if (b == '?') {
+            int prev = 0;
+            while ((b = next()) != '>' || prev != '?') {
+                prev = b;
+            }
+        } else if (b == '!') {
+            declaration();
+        } else {
+            startTag(element(readName(b)));
+        }
+    }
+
+    private void startTag(String element) throws IOException, SAXException {
+        boolean cellAttributes = element == ROW || element == CELL;
+        attributes.clear();
+        while (true) {
+            int b = next();
+            if (b == '>') {
+                handler.startElement("", element, element, attributes);
+                return;
+            }
+            if (b == '/') {
+                if (next() != '>') {
+                    throw error("标签<" + element + ">未正确结束");
+                }
+                handler.startElement("", element, element, attributes);
+                handler.endElement("", element, element);
+                return;
+            }
+            if (b <= ' ') {
+                continue;
+            }
+            int length = readName(b);
+            int attribute = cellAttributes ? attribute(length) : -1;
+            while ((b = next()) != '=') {
+                if (b > ' ') {
+                    throw error("属性缺少'='");
+                }
+            }
+            while ((b = next()) <= ' ') {
+                // 跳过'='之后的空白
+            }
+            if (b != '"' && b != '\'') {
+                throw error("属性值缺少引号");
+            }
+            if (attribute < 0) {
+                while (next() != b) {
+                    // 跳过不需要的属性值
+                }
+            } else {
+                attributes.set(attribute, readValue(b, attribute == CellAttributes.T));
+            }
+        }
+    }
+
+    /**
+     * 读取元素名或属性名到name缓冲区，读到名称之后的字符时退回该字符
+     *
+     * @param b 名称的第一个字节
+     * @return 前缀之后部分的长度，超出缓冲区时只保存前面的部分
+     */
+    private int readName(int b) throws IOException, SAXException {
+        int length = 0;
+        while (b > ' ' && b != '/' && b != '>' && b != '=') {
+            if (b == ':') {
+                length = 0;
+            } else {
+                if (length < name.length) {
+                    name[length] = (byte) b;
+                }
+                length++;
+            }
+            b = next();
+        }
+        pos--;
+        return length;
+    }
+
+    private String element(int length) {
+        switch (length) {
+            case 1:
+                if (name[0] == 'c') {
+                    return CELL;
+                } else if (name[0] == 'v') {
+                    return VALUE;
+                } else if (name[0] == 't') {
+                    return TEXT;
+                }
+                return OTHER;
+            case 2:
+                return name[0] == 'i' && name[1] == 's' ? INLINE_STRING : OTHER;
+            case 3:
+                return name[0] == 'r' && name[1] == 'o' && name[2] == 'w' ? ROW : OTHER;
+            default:
+                return OTHER;
+        }
+    }
+
+    private int attribute(int length) {
+        if (length != 1) {
+            return -1;
+        }
+        switch (name[0]) {
+            case 'r':
+                return CellAttributes.R;
+            case 't':
+                return CellAttributes.T;
+            case 's':
+                return CellAttributes.S;
+            default:
+                return -1;
+        }
+    }
+
+    private String readValue(int quote, boolean cellType) throws IOException, SAXException {
+        value.setLength(0);
+        int b;
+        while ((b = next()) != quote) {
+            if (b == '&') {
+                value.appendCodePoint(entity());
+            } else if (b < 0x80) {
+                value.append((char) b);
+            } else {
+                value.appendCodePoint(codePoint(b));
+            }
+        }
+        if (cellType) {
+            for (String type : CELL_TYPES) {
+                if (type.contentEquals(value)) {
+                    return type;
+                }
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * 解析'&'之后的实体引用或字符引用
+     *
+     * @return 对应的字符
+     */
+    private int entity() throws IOException, SAXException {
+        int length = 0;
+        int b;
+        while ((b = next()) != ';') {
+            if (length == name.length) {
+                throw error("无效的实体引用");
+            }
+            name[length++] = (byte) b;
+        }
+        if (length > 1 && name[0] == '#') {
+            boolean hex = name[1] == 'x';
+            int radix = hex ? 16 : 10;
+            int i = hex ? 2 : 1;
+            if (i == length) {
+                throw error("无效的字符引用");
+            }
+            int codePoint = 0;
+            for (; i < length; i++) {
+                int digit = Character.digit(name[i], radix);
+                if (digit < 0) {
+                    throw error("无效的字符引用");
+                }
+                codePoint = codePoint * radix + digit;
+                if (codePoint > Character.MAX_CODE_POINT) {
+                    throw error("无效的字符引用");
+                }
+            }
+            return codePoint;
+        }
+        if (isName(length, "amp")) {
+            return '&';
+        } else if (isName(length, "lt")) {
+            return '<';
+        } else if (isName(length, "gt")) {
+            return '>';
+        } else if (isName(length, "quot")) {
+            return '"';
+        } else if (isName(length, "apos")) {
+            return '\'';
+        }
+        throw error("未定义的实体: &" + new String(name, 0, length, "ISO-8859-1") + ";");
+    }
+
+    private boolean isName(int length, String expected) {
+        if (length != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 处理"<!"之后的注释、CDATA或DOCTYPE
+     */
+    private void declaration() throws IOException, SAXException {
+        int b = next();
+        if (b == '-') {
+            if (next() != '-') {
+                throw error("无效的注释");
+            }
+            int dashes = 0;
+            while ((b = next()) != '>' || dashes < 2) {
+                dashes = b == '-' ? dashes + 1 : 0;
+            }
+        } else if (b == '[') {
+            for (int i = 0; i < 6; i++) {
+                if (next() != "CDATA[".charAt(i)) {
+                    throw error("无效的CDATA");
+                }
+            }
+            int brackets = 0;
+            while (true) {
+                b = next();
+                if (b == ']') {
+                    brackets++;
+                    continue;
+                }
+                if (b == '>' && brackets >= 2) {
+                    for (int i = 2; i < brackets; i++) {
+                        appendText(']');
+                    }
+                    return;
+                }
+                for (int i = 0; i < brackets; i++) {
+                    appendText(']');
+                }
+                brackets = 0;
+                appendRaw(b);
+            }
+        } else {
+            // DOCTYPE，内部子集中可能有'>'
+            int depth = 0;
+            while (b != '>' || depth > 0) {
+                if (b == '[') {
+                    depth++;
+                } else if (b == ']') {
+                    depth--;
+                }
+                b = next();
+            }
+        }
+    }
+
+    /**
+     * 文本中的字节，\r\n和单独的\r统一为\n
+     */
+    private void appendRaw(int b) throws IOException, SAXException {
+        if (b == '\r') {
+            afterCR = true;
+            appendText('\n');
+            return;
+        }
+        if (b == '\n' && afterCR) {
+            afterCR = false;
+            return;
+        }
+        afterCR = false;
+        appendText(b < 0x80 ? b : codePoint(b));
+    }
+
+    /**
+     * 解码UTF-8多字节字符，b为第一个字节
+     */
+    private int codePoint(int b) throws IOException, SAXException {
+        int count;
+        int codePoint;
+        if (b >= 0xF0) {
+            count = 3;
+            codePoint = b & 0x07;
+        } else if (b >= 0xE0) {
+            count = 2;
+            codePoint = b & 0x0F;
+        } else if (b >= 0xC0) {
+            count = 1;
+            codePoint = b & 0x1F;
+        } else {
+            return 0xFFFD;
+        }
+        for (int i = 0; i < count; i++) {
+            codePoint = codePoint << 6 | next() & 0x3F;
+        }
+        return codePoint;
+    }
+
+    private void appendText(int codePoint) throws SAXException {
+        if (textLength + 2 > text.length) {
+            flushText();
+        }
+        if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            text[textLength++] = Character.highSurrogate(codePoint);
+            text[textLength++] = Character.lowSurrogate(codePoint);
+        } else {
+            text[textLength++] = (char) codePoint;
+        }
+    }
+
+    private void flushText() throws SAXException {
+        if (textLength > 0) {
+            handler.characters(text, 0, textLength);
+            textLength = 0;
+        }
+    }
+
+    private static SAXException error(String message) {
+        return new SAXException("表的xml格式错误: " + message);
+    }
+
+    /**
+     * row和c元素的r、t、s属性，复用同一个实例
+     */
+    private static final class CellAttributes implements Attributes {
+        static final int R = 0;
+        static final int T = 1;
+        static final int S = 2;
+        private static final String[] NAMES = {"r", "t", "s"};
+
+        private final String[] values = new String[3];
+        // 按出现顺序排列的属性
+        private final int[] order = new int[3];
+        private int length;
+
+        void clear() {
+            for (int i = 0; i < length; i++) {
+                values[order[i]] = null;
+            }
+            length = 0;
+        }
+
+        void set(int attribute, String value) {
+            if (values[attribute] == null) {
+                order[length++] = attribute;
+            }
+            values[attribute] = value;
+        }
+
+        private static int attribute(String name) {
+            for (int i = 0; i < NAMES.length; i++) {
+                if (NAMES[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public String getURI(int index) {
+            return index < length ? "" : null;
+        }
+
+        @Override
+        public String getLocalName(int index) {
+            return index < length ? NAMES[order[index]] : null;
+        }
+
+        @Override
+        public String getQName(int index) {
+            return getLocalName(index);
+        }
+
+        @Override
+        public String getType(int index) {
+            return index < length ? "CDATA" : null;
+        }
+
+        @Override
+        public String getValue(int index) {
+            return index < length ? values[order[index]] : null;
+        }
+
+        @Override
+        public int getIndex(String uri, String localName) {
+            return getIndex(localName);
+        }
+
+        @Override
+        public int getIndex(String qName) {
+            int attribute = attribute(qName);
+            for (int i = 0; i < length; i++) {
+                if (order[i] == attribute) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getType(String uri, String localName) {
+            return getType(localName);
+        }
+
+        @Override
+        public String getType(String qName) {
+            return getIndex(qName) < 0 ? null : "CDATA";
+        }
+
+        @Override
+        public String getValue(String uri, String localName) {
+            return getValue(localName);
+        }
+
+        @Override
+        public String getValue(String qName) {
+            int attribute = attribute(qName);
+            return attribute < 0 ? null : values[attribute];
+        }
+    }
+}
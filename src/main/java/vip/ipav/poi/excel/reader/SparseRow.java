@@ -0,0 +1,182 @@
+package vip.ipav.poi.excel.reader;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * 稀疏行，只保存有值单元格的列索引和值，其余列为null
+ * 按只读List使用，get(i)按列索引二分查找，size()与普通模式输出的行宽一致
+ * 大部分单元格为空的表(如透视表导出)使用该行可以省去大量null占位
+ */
+public final class SparseRow extends AbstractList<Object> implements RandomAccess {
+
+    private static final int[] EMPTY_COLUMNS = new int[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    // 有值单元格的列索引，递增
+    private int[] columns = EMPTY_COLUMNS;
+    private Object[] values = EMPTY_VALUES;
+    // 有值单元格的个数
+    private int count;
+    // 行宽，即最后一列的列索引加1
+    private int width;
+
+    SparseRow() {
+    }
+
+    /**
+     * 放入一个单元格的值，值为null时只扩展行宽
+     * 单元格一般按列递增到来，直接追加；已有该列时替换
+     *
+     * @param column 列索引，从0开始
+     * @param value
+     */
+    void put(int column, Object value) {
+        if (column >= width) {
+            width = column + 1;
+        }
+        if (count > 0 && column <= columns[count - 1]) {
+            int k = Arrays.binarySearch(columns, 0, count, column);
+            if (k >= 0) {
+                values[k] = value;
+                return;
+            }
+            if (value != null) {
+                insert(-k - 1, column, value);
+            }
+            return;
+        }
+        if (value != null) {
+            insert(count, column, value);
+        }
+    }
+
+    private void insert(int k, int column, Object value) {
+        if (count == columns.length) {
+            int capacity = Math.max(8, count * 2);
+            columns = Arrays.copyOf(columns, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (k < count) {
+            System.arraycopy(columns, k, columns, k + 1, count - k);
+            System.arraycopy(values, k, values, k + 1, count - k);
+        }
+        columns[k] = column;
+        values[k] = value;
+        count++;
+    }
+
+    /**
+     * 行宽不足时补齐到指定宽度，对应普通模式补全行尾缺失的单元格
+     *
+     * @param width
+     */
+    void padTo(int width) {
+        if (width > this.width) {
+            this.width = width;
+        }
+    }
+
+    /**
+     * 替换第k个有值单元格的值，流水线模式转换原始内容时使用
+     */
+    void setValueAt(int k, Object value) {
+        values[k] = value;
+    }
+
+    /**
+     * 去掉值为空字符串的单元格，setBlankAsNull(true)时使用
+     */
+    void removeBlanks() {
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            if (!"".equals(values[k])) {
+                columns[kept] = columns[k];
+                values[kept++] = values[k];
+            }
+        }
+        Arrays.fill(values, kept, count, null);
+        count = kept;
+    }
+
+    /**
+     * 有值单元格的个数，与getColumnAt、getValueAt一起按顺序遍历有值的单元格
+     *
+     * @return
+     */
+    public int getCellCount() {
+        return count;
+    }
+
+    /**
+     * 第k个有值单元格的列索引
+     *
+     * @param k 从0开始，小于getCellCount()
+     * @return
+     */
+    public int getColumnAt(int k) {
+        if (k >= count) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + count);
+        }
+        return columns[k];
+    }
+
+    /**
+     * 第k个有值单元格的值
+     *
+     * @param k 从0开始，小于getCellCount()
+     * @return
+     */
+    public Object getValueAt(int k) {
+        if (k >= count) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + count);
+        }
+        return values[k];
+    }
+
+    @Override
+    public Object get(int index) {
+        if (index < 0 || index >= width) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + width);
+        }
+        int k = Arrays.binarySearch(columns, 0, count, index);
+        return k < 0 ? null : values[k];
+    }
+
+    @Override
+    public int size() {
+        return width;
+    }
+
+    /**
+     * 按列顺序遍历，空列返回null，不做逐列查找
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private int column;
+            private int k;
+
+            @Override
+            public boolean hasNext() {
+                return column < width;
+            }
+
+            @Override
+            public Object next() {
+                if (column >= width) {
+                    throw new NoSuchElementException();
+                }
+                Object value = null;
+                if (k < count && columns[k] == column) {
+                    value = values[k++];
+                }
+                column++;
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package vip.ipav.poi.excel.reader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 写入临时文件的输入流，上传的文件等只有流的数据先落盘，再按文件随机访问读取，不需要在内存中保留整个文件
+ * 关闭时删除临时文件
+ */
+final class SpilledFile implements Closeable {
+
+    private final File file;
+
+    /**
+     * 把输入流读到结束并写入临时文件，不关闭输入流
+     *
+     * @param in
+     * @throws IOException
+     */
+    SpilledFile(InputStream in) throws IOException {
+        this.file = File.createTempFile("poi-util-spill", ".tmp");
+        try {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        if (!file.delete()) {
+            // 部分平台映射未释放前无法删除
+            file.deleteOnExit();
+        }
+    }
+}
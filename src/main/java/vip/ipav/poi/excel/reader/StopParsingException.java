@@ -0,0 +1,14 @@
+package vip.ipav.poi.excel.reader;
+
+/**
+ * 结束当前表的解析，读取范围已结束或调用了stop()时由解析回调抛出，读取器内部捕获
+ * 只用于控制流程，不记录调用栈
+ */
+final class StopParsingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    StopParsingException() {
+        super("停止解析", null, false, false);
+    }
+}
@@ -0,0 +1,70 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+/**
+ * 单元格样式对应的数据格式，加载样式表时按样式索引预先计算，解析单元格时只需一次数组查找
+ * 格式化器由DataFormatter按格式字符串缓存，这里保存解析好的格式索引和格式字符串
+ */
+final class StyleFormat {
+
+    /**
+     * 数据格式的分类
+     */
+    enum Kind {
+        NUMBER, DATE, TEXT
+    }
+
+    // 内置格式14(m/d/yy)按yyyy-MM-dd输出
+    private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
+
+    final short formatIndex;
+    final String formatString;
+    final Kind kind;
+    // 日期格式是否包含时间部分
+    final boolean withTime;
+
+    private StyleFormat(short formatIndex, String formatString) {
+        this.formatIndex = formatIndex;
+        if (DateUtil.isADateFormat(formatIndex, formatString)) {
+            this.kind = Kind.DATE;
+            this.withTime = CellValues.hasTimePart(formatString);
+            //full format is "yyyy-MM-dd hh:mm:ss.SSS";
+            this.formatString = "m/d/yy".equals(formatString) ? DEFAULT_DATE_FORMAT : formatString;
+        } else {
+            this.kind = "@".equals(formatString) ? Kind.TEXT : Kind.NUMBER;
+            this.withTime = false;
+            this.formatString = formatString;
+        }
+    }
+
+    /**
+     * 按样式索引加载样式表中所有样式的数据格式
+     *
+     * @param stylesTable 可以为null，此时返回空表
+     * @return 下标为样式索引
+     */
+    static StyleFormat[] load(StylesTable stylesTable) {
+        if (stylesTable == null) {
+            return new StyleFormat[0];
+        }
+        StyleFormat[] formats = new StyleFormat[stylesTable.getNumCellStyles()];
+        for (int i = 0; i < formats.length; i++) {
+            XSSFCellStyle style = stylesTable.getStyleAt(i);
+            short formatIndex = style.getDataFormat();
+            String formatString = style.getDataFormatString();
+            if (formatString == null) {
+                formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+            }
+            if (formatString == null) {
+                // 样式表中找不到的自定义格式按常规格式处理
+                formatString = BuiltinFormats.getBuiltinFormat(0);
+            }
+            formats[i] = new StyleFormat(formatIndex, formatString);
+        }
+        return formats;
+    }
+}
@@ -0,0 +1,120 @@
+package vip.ipav.poi.excel.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 工作薄会话的LRU缓存，按文件路径、修改时间和长度区分，文件被修改后自动使用新的会话
+ * 适合反复读取同一批模板文件的服务：样式、共享字符串、表名和表的位置只在第一次读取时解析
+ * 通过读取器的setWorkbookCache设置，多个读取器和线程可以共享同一个缓存
+ * 只缓存按文件或路径打开的读取器，按流打开时不缓存
+ * 被淘汰的会话在正在使用它的读取器关闭后释放
+ */
+public final class WorkbookCache {
+
+    private final int maxEntries;
+    // 按访问顺序排列，最久未使用的在最前面
+    private final LinkedHashMap<String, WorkbookSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxEntries 最多缓存的工作薄数量
+     */
+    public WorkbookCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new RuntimeException("无效的缓存数量: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 取出文件的会话并增加引用，使用完毕后应调用release()
+     *
+     * @param file    读取的文件
+     * @param variant 影响会话内容的读取选项，如xlsx共享字符串表的存储方式
+     * @return 没有缓存时为null
+     * @throws IOException
+     */
+    WorkbookSession acquire(File file, String variant) throws IOException {
+        String key = key(file, variant);
+        synchronized (this) {
+            WorkbookSession session = sessions.get(key);
+            if (session == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            session.retain();
+            return session;
+        }
+    }
+
+    /**
+     * 缓存文件的会话，已有缓存时不替换，超过数量时淘汰最久未使用的会话
+     *
+     * @param file
+     * @param variant
+     * @param session
+     * @throws IOException
+     */
+    void put(File file, String variant, WorkbookSession session) throws IOException {
+        String key = key(file, variant);
+        List<WorkbookSession> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (sessions.containsKey(key)) {
+                return;
+            }
+            session.retain();
+            sessions.put(key, session);
+            Iterator<WorkbookSession> iterator = sessions.values().iterator();
+            while (sessions.size() > maxEntries) {
+                evicted.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        for (WorkbookSession old : evicted) {
+            old.release();
+        }
+    }
+
+    private static String key(File file, String variant) throws IOException {
+        return file.getCanonicalPath() + '|' + file.lastModified() + '|' + file.length() + '|' + variant;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        List<WorkbookSession> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>(sessions.values());
+            sessions.clear();
+        }
+        for (WorkbookSession session : evicted) {
+            session.release();
+        }
+    }
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @return 命中缓存的次数
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return 没有命中缓存、需要解析工作薄的次数
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
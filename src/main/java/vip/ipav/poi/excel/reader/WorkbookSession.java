@@ -0,0 +1,45 @@
+package vip.ipav.poi.excel.reader;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 工作薄会话，保存解析一次即可重复使用的工作薄级数据(表名、表的位置、样式、共享字符串等)
+ * 同一读取器多次读取时直接使用，不再重复解析；放入WorkbookCache后多个读取器共享同一会话
+ * 加载完成后只读，按引用计数释放，最后一个使用者释放后关闭占用的资源
+ */
+abstract class WorkbookSession {
+
+    // 按工作薄中顺序排列的表名
+    private final List<String> sheetNames;
+    private int references = 1;
+
+    protected WorkbookSession(List<String> sheetNames) {
+        this.sheetNames = Collections.unmodifiableList(sheetNames);
+    }
+
+    List<String> getSheetNames() {
+        return sheetNames;
+    }
+
+    synchronized void retain() {
+        references++;
+    }
+
+    /**
+     * 释放一个引用，没有使用者时关闭占用的资源
+     */
+    void release() {
+        synchronized (this) {
+            if (--references > 0) {
+                return;
+            }
+        }
+        free();
+    }
+
+    /**
+     * 关闭会话占用的资源
+     */
+    protected abstract void free();
+}
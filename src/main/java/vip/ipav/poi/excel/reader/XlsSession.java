@@ -0,0 +1,226 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.hssf.model.InternalWorkbook;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * xls工作薄会话：工作薄流开头的全局记录(SST、格式、BoundSheetRecord等)解析后保存为记录对象，
+ * 之后是每个表各自的记录段，按BoundSheetRecord中的BOF偏移定位
+ * 读取表时先把全局记录重放给监听器，再只解析该表的记录段，不再重复解析全局记录和之前的表
+ */
+final class XlsSession extends WorkbookSession {
+
+    // 全局记录段的记录，含开头的BOFRecord和结尾的EOFRecord
+    private final List<Record> globals;
+    // 按位置排序的各表BOF偏移
+    private final int[] sheetOffsets;
+    // 工作薄流的字节数
+    private final int length;
+    // 表目录，第一次取用时读取
+    private List<SheetInfo> sheets;
+
+    private XlsSession(List<Record> globals, List<String> sheetNames, int[] sheetOffsets, int length) {
+        super(sheetNames);
+        this.globals = Collections.unmodifiableList(globals);
+        this.sheetOffsets = sheetOffsets;
+        this.length = length;
+    }
+
+    /**
+     * 解析全局记录并定位各表位置，加密的文件无法按偏移切分，返回null
+     *
+     * @param fs
+     * @return
+     * @throws IOException
+     */
+    static XlsSession load(POIFSFileSystem fs) throws IOException {
+        InputStream in = open(fs);
+        try {
+            int length = in.available();
+            List<Record> globals = new ArrayList<>();
+            List<BoundSheetRecord> boundSheets = new ArrayList<>();
+            RecordFactoryInputStream records = new RecordFactoryInputStream(in, false);
+            Record record;
+            while ((record = records.nextRecord()) != null) {
+                if (record instanceof FilePassRecord) {
+                    return null;
+                }
+                if (record instanceof BoundSheetRecord) {
+                    boundSheets.add((BoundSheetRecord) record);
+                }
+                globals.add(record);
+                if (record instanceof EOFRecord) {
+                    break;
+                }
+            }
+            BoundSheetRecord[] ordered = BoundSheetRecord.orderByBofPosition(boundSheets);
+            List<String> names = new ArrayList<>(ordered.length);
+            int[] offsets = new int[ordered.length];
+            for (int i = 0; i < ordered.length; i++) {
+                names.add(ordered[i].getSheetname());
+                offsets[i] = ordered[i].getPositionOfBof();
+            }
+            return new XlsSession(globals, names, offsets, length);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 打开文件中的工作薄流
+     *
+     * @param fs
+     * @return
+     * @throws IOException 文件中没有工作薄流
+     */
+    static InputStream open(POIFSFileSystem fs) throws IOException {
+        DirectoryNode root = fs.getRoot();
+        for (String entry : InternalWorkbook.WORKBOOK_DIR_ENTRY_NAMES) {
+            if (root.hasEntry(entry)) {
+                return root.createDocumentInputStream(entry);
+            }
+        }
+        throw new IOException("文件中没有Workbook流，不是有效的xls文件");
+    }
+
+    /**
+     * 工作薄流的字节数，从文件的目录中读取，不打开流
+     *
+     * @param fs
+     * @return
+     * @throws IOException 文件中没有工作薄流
+     */
+    static long size(POIFSFileSystem fs) throws IOException {
+        DirectoryNode root = fs.getRoot();
+        for (String entry : InternalWorkbook.WORKBOOK_DIR_ENTRY_NAMES) {
+            if (root.hasEntry(entry)) {
+                return ((DocumentEntry) root.getEntry(entry)).getSize();
+            }
+        }
+        throw new IOException("文件中没有Workbook流，不是有效的xls文件");
+    }
+
+    List<Record> getGlobals() {
+        return globals;
+    }
+
+    int getSheetCount() {
+        return sheetOffsets.length;
+    }
+
+    /**
+     * 表目录，第一次调用时从各表的BOFRecord开始读取到DimensionsRecord为止
+     *
+     * @param fs 读取器打开的文件
+     * @return
+     * @throws IOException
+     */
+    synchronized List<SheetInfo> getSheets(POIFSFileSystem fs) throws IOException {
+        if (sheets == null) {
+            List<SheetInfo> list = new ArrayList<>(sheetOffsets.length);
+            for (int i = 0; i < sheetOffsets.length; i++) {
+                InputStream in = streamFrom(fs, i);
+                try {
+                    list.add(readSheetInfo(i, getSheetNames().get(i), new RecordFactoryInputStream(in, false)));
+                } finally {
+                    in.close();
+                }
+            }
+            sheets = Collections.unmodifiableList(list);
+        }
+        return sheets;
+    }
+
+    /**
+     * 读取表开头的DimensionsRecord，读到行或单元格记录仍没有时数据范围未知
+     */
+    private static SheetInfo readSheetInfo(int index, String name, RecordFactoryInputStream records) {
+        Record record;
+        while ((record = records.nextRecord()) != null) {
+            if (record instanceof DimensionsRecord) {
+                return sheetInfo(index, name, (DimensionsRecord) record);
+            }
+            if (record instanceof RowRecord || record instanceof CellValueRecordInterface
+                    || record instanceof EOFRecord) {
+                break;
+            }
+        }
+        return new SheetInfo(index, name, -1, -1, -1, -1);
+    }
+
+    /**
+     * DimensionsRecord中的最后一行和最后一列是最后的索引加一，空表为0，与xlsx一致按A1处理
+     */
+    static SheetInfo sheetInfo(int index, String name, DimensionsRecord dimensions) {
+        int firstRow = dimensions.getFirstRow();
+        int firstColumn = dimensions.getFirstCol();
+        return new SheetInfo(index, name, firstRow + 1, Math.max(dimensions.getLastRow(), firstRow + 1),
+                firstColumn, Math.max(dimensions.getLastCol() - 1, firstColumn));
+    }
+
+    /**
+     * 第index个表(按BOF位置顺序)记录段的字节数
+     */
+    int getSheetLength(int index) {
+        int end = index + 1 < sheetOffsets.length ? sheetOffsets[index + 1] : length;
+        return end - sheetOffsets[index];
+    }
+
+    /**
+     * 读出第index个表的记录段，用于在其他线程上解析，POIFSFileSystem不是线程安全的，多个线程读取时由调用方同步
+     *
+     * @param fs
+     * @param index
+     * @return
+     * @throws IOException
+     */
+    InputStream sheetStream(POIFSFileSystem fs, int index) throws IOException {
+        // RecordInputStream依赖available()判断结束，不能截断文档流，读出该表的字节
+        InputStream in = streamFrom(fs, index);
+        try {
+            return new ByteArrayInputStream(IOUtils.toByteArray(in, getSheetLength(index)));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 从第index个表的BOFRecord开始的工作薄流，用于跳过之前的表
+     *
+     * @param fs
+     * @param index
+     * @return
+     * @throws IOException
+     */
+    InputStream streamFrom(POIFSFileSystem fs, int index) throws IOException {
+        InputStream in = open(fs);
+        if (IOUtils.skipFully(in, sheetOffsets[index]) != sheetOffsets[index]) {
+            in.close();
+            throw new IOException("表的BOF偏移超出工作薄流的长度: " + sheetOffsets[index]);
+        }
+        return in;
+    }
+
+    @Override
+    protected void free() {
+        // 只持有堆内的记录对象
+    }
+}
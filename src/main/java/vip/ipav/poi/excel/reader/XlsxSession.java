@@ -0,0 +1,196 @@
+package vip.ipav.poi.excel.reader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * xlsx工作薄会话：样式格式表、共享字符串表，以及按workbook.xml顺序排列的表名和表数据的part名称
+ * part名称与打开的OPCPackage无关，同一文件的不同读取器可以共享
+ * 表的顺序以workbook.xml中sheet元素的顺序为准，与关系id的编号无关
+ */
+final class XlsxSession extends WorkbookSession {
+
+    // dimension的开始标签，可以带命名空间前缀，属性的顺序不限
+    private static final Pattern DIMENSION = Pattern.compile("<(?:[\\w.-]+:)?dimension(\\s[^>]*)?/?>");
+    // 标签中不带前缀的ref属性，不匹配xr:ref或sqref
+    private static final Pattern REF = Pattern.compile("\\sref\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+    private static final Pattern SHEET_DATA = Pattern.compile("<(?:[\\w.-]+:)?sheetData[\\s/>]");
+    // 查找dimension元素最多读取的字节数
+    private static final int MAX_HEAD = 1 << 20;
+
+    private final StyleFormat[] styles;
+    private final SharedStringsStore sst;
+    private final SharedStringsType sharedStringsType;
+    private final List<PackagePartName> partNames;
+    // 表目录，第一次取用时读取
+    private List<SheetInfo> sheets;
+
+    private XlsxSession(List<String> sheetNames, List<PackagePartName> partNames,
+                        StyleFormat[] styles, SharedStringsStore sst, SharedStringsType sharedStringsType) {
+        super(sheetNames);
+        this.partNames = partNames;
+        this.styles = styles;
+        this.sst = sst;
+        this.sharedStringsType = sharedStringsType;
+    }
+
+    /**
+     * 解析样式、共享字符串和表的列表
+     *
+     * @param pkg
+     * @param sharedStringsType 共享字符串表的存储方式
+     * @param limits            加载共享字符串表时检查的读取限制
+     * @param usage             读取限制的统计
+     * @return
+     * @throws Exception
+     */
+    static XlsxSession load(OPCPackage pkg, SharedStringsType sharedStringsType, ReadLimits limits,
+                            ReadUsage usage) throws Exception {
+        SheetListReader reader = new SheetListReader(pkg);
+        List<String> names = new ArrayList<>();
+        List<PackagePartName> partNames = new ArrayList<>();
+        reader.listSheets(names, partNames);
+        StyleFormat[] styles = StyleFormat.load(reader.getStylesTable());
+        SharedStringsStore sst = SharedStringsParser.load(pkg, sharedStringsType, limits, usage);
+        return new XlsxSession(names, partNames, styles, sst, sharedStringsType);
+    }
+
+    StyleFormat[] getStyles() {
+        return styles;
+    }
+
+    SharedStringsStore getSharedStrings() {
+        return sst;
+    }
+
+    SharedStringsType getSharedStringsType() {
+        return sharedStringsType;
+    }
+
+    int getSheetCount() {
+        return partNames.size();
+    }
+
+    /**
+     * 表目录，第一次调用时读取各表开头的dimension元素
+     *
+     * @param pkg 读取器打开的OPCPackage
+     * @return
+     * @throws IOException
+     * @throws InvalidFormatException
+     */
+    synchronized List<SheetInfo> getSheets(OPCPackage pkg) throws IOException, InvalidFormatException {
+        if (sheets == null) {
+            List<SheetInfo> list = new ArrayList<>(partNames.size());
+            for (int i = 0; i < partNames.size(); i++) {
+                InputStream in = getSheetPart(pkg, i).getInputStream();
+                try {
+                    list.add(SheetInfo.of(i, getSheetNames().get(i), readDimension(in)));
+                } finally {
+                    in.close();
+                }
+            }
+            sheets = Collections.unmodifiableList(list);
+        }
+        return sheets;
+    }
+
+    /**
+     * 读取表数据开头的dimension元素，读到sheetData仍没有时返回null
+     * dimension和sheetData之前的元素都是ASCII，按单字节解码即可
+     */
+    static String readDimension(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder(8192);
+        byte[] buffer = new byte[8192];
+        int n;
+        while (head.length() < MAX_HEAD && (n = in.read(buffer)) > 0) {
+            // 标签可能跨两次读取，从上次读到的最后一个标签开始查找
+            int from = Math.max(0, head.lastIndexOf("<"));
+            head.append(new String(buffer, 0, n, StandardCharsets.ISO_8859_1));
+            Matcher dimension = DIMENSION.matcher(head);
+            if (dimension.find(from)) {
+                Matcher ref = REF.matcher(dimension.group(1) == null ? "" : dimension.group(1));
+                if (!ref.find()) {
+                    return null;
+                }
+                return ref.group(1) != null ? ref.group(1) : ref.group(2);
+            }
+            if (SHEET_DATA.matcher(head).find(from)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在读取器打开的OPCPackage中取出第index个表的数据part
+     *
+     * @param pkg
+     * @param index
+     * @return
+     * @throws InvalidFormatException
+     */
+    PackagePart getSheetPart(OPCPackage pkg, int index) throws InvalidFormatException {
+        PackagePart part = pkg.getPart(partNames.get(index));
+        if (part == null) {
+            throw new RuntimeException("找不到表的数据: " + partNames.get(index).getName());
+        }
+        return part;
+    }
+
+    @Override
+    protected void free() {
+        try {
+            sst.close();
+        } catch (IOException e) {
+            // 只影响临时文件的删除，不影响已读取的数据
+        }
+    }
+
+    /**
+     * 只用来取出workbook.xml中的表列表，不打开表数据
+     */
+    private static final class SheetListReader extends XSSFReader {
+
+        SheetListReader(OPCPackage pkg) throws IOException, OpenXML4JException {
+            super(pkg);
+        }
+
+        void listSheets(List<String> names, List<PackagePartName> partNames)
+                throws IOException, InvalidFormatException {
+            new SheetRefIterator(workbookPart).listSheets(names, partNames);
+        }
+    }
+
+    private static final class SheetRefIterator extends XSSFReader.SheetIterator {
+
+        SheetRefIterator(PackagePart workbookPart) throws IOException, InvalidFormatException {
+            super(workbookPart);
+        }
+
+        void listSheets(List<String> names, List<PackagePartName> partNames) {
+            while (sheetIterator.hasNext()) {
+                XSSFReader.XSSFSheetRef ref = sheetIterator.next();
+                PackagePart part = sheetMap.get(ref.getId());
+                if (part == null) {
+                    continue;
+                }
+                names.add(ref.getName());
+                partNames.add(part.getPartName());
+            }
+        }
+    }
+}
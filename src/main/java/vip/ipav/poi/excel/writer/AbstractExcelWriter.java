@@ -0,0 +1,55 @@
+package vip.ipav.poi.excel.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 流式写入xlsx的公共接口，逐行写入，已写入的行不在内存中保留
+ * 单元格值与读取器TYPED模式的类型一致：String、Number、Boolean、LocalDate、LocalDateTime，
+ * 另外支持java.util.Date，null表示空单元格
+ * 写入顺序为startSheet、若干writeRow，再开始下一个表，最后close
+ */
+public abstract class AbstractExcelWriter implements Closeable {
+
+    // 当前表已写入的行数
+    protected int rowCount;
+
+    /**
+     * 开始写入一个新表，之前的表自动结束
+     *
+     * @param sheetName 表名
+     * @throws IOException
+     */
+    public abstract void startSheet(String sheetName) throws IOException;
+
+    /**
+     * 在当前表末尾写入一行，行号依次递增
+     *
+     * @param row 单元格值，为null时写入空行
+     * @throws IOException
+     */
+    public abstract void writeRow(List<?> row) throws IOException;
+
+    /**
+     * 写入一个表的所有行
+     *
+     * @param sheetName 表名
+     * @param rows      行数据，逐行取出后写入，不会一次性读入内存
+     * @throws IOException
+     */
+    public void writeSheet(String sheetName, Iterator<? extends List<?>> rows) throws IOException {
+        startSheet(sheetName);
+        while (rows.hasNext()) {
+            writeRow(rows.next());
+        }
+    }
+
+    /**
+     * 写完所有表后输出工作簿的其余部分并关闭
+     *
+     * @throws IOException
+     */
+    public abstract void close() throws IOException;
+}
@@ -0,0 +1,421 @@
+package vip.ipav.poi.excel.writer;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 直接输出xlsx的xml写入器，不经过POI的usermodel，表数据边写边压缩进zip流
+ * 内存中只保留表名和共享字符串表(INLINE方式时不保留字符串)，与写入的行数无关
+ * 日期写为数值并使用日期样式，LocalDate使用内置格式14，LocalDateTime和Date使用yyyy-mm-dd hh:mm:ss
+ */
+public class Excel2007Writer extends AbstractExcelWriter {
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PKG_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    // excel2007最大行数和列数
+    private static final int MAX_ROWS = 1048576;
+    private static final int MAX_COLUMNS = 16384;
+    // styles.xml中cellXfs的索引
+    private static final int STYLE_DATE = 1;
+    private static final int STYLE_DATE_TIME = 2;
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private StringStorage stringStorage = StringStorage.SHARED;
+
+    private final List<String> sheetNames = new ArrayList<>();
+    private final Set<String> sheetNameKeys = new HashSet<>();
+    private boolean sheetOpen;
+    private boolean closed;
+
+    // 共享字符串及其索引，count为引用次数
+    private final Map<String, Integer> sharedStrings = new HashMap<>();
+    private final List<String> sharedValues = new ArrayList<>();
+    private long sharedCount;
+
+    // 列名缓存，A、B...
+    private String[] columnNames = new String[0];
+
+    public Excel2007Writer(String path) throws IOException {
+        this(new FileOutputStream(path));
+    }
+
+    /**
+     * @param out 输出流，close时一并关闭
+     */
+    public Excel2007Writer(OutputStream out) {
+        this.zip = new ZipOutputStream(out);
+        // 表数据的压缩是写入的主要开销，默认使用最快的压缩级别
+        this.zip.setLevel(Deflater.BEST_SPEED);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    public StringStorage getStringStorage() {
+        return stringStorage;
+    }
+
+    /**
+     * 设置字符串的写入方式，默认SHARED，需要在写入第一行之前设置
+     *
+     * @param stringStorage
+     */
+    public void setStringStorage(StringStorage stringStorage) {
+        this.stringStorage = stringStorage;
+    }
+
+    /**
+     * 设置zip压缩级别，默认Deflater.BEST_SPEED，文件大小优先时可设为Deflater.DEFAULT_COMPRESSION
+     *
+     * @param level 0~9
+     */
+    public void setCompressionLevel(int level) {
+        zip.setLevel(level);
+    }
+
+    @Override
+    public void startSheet(String sheetName) throws IOException {
+        checkOpen();
+        endSheet();
+        checkSheetName(sheetName);
+        sheetNames.add(sheetName);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+        writer.write(XML_HEADER);
+        writer.write("<worksheet xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheetData>");
+        sheetOpen = true;
+        rowCount = 0;
+    }
+
+    @Override
+    public void writeRow(List<?> row) throws IOException {
+        checkOpen();
+        if (!sheetOpen) {
+            startSheet("Sheet" + (sheetNames.size() + 1));
+        }
+        if (rowCount >= MAX_ROWS) {
+            throw new RuntimeException("超过xlsx的最大行数" + MAX_ROWS);
+        }
+        rowCount++;
+        if (row == null || row.isEmpty()) {
+            return;
+        }
+        if (row.size() > MAX_COLUMNS) {
+            throw new RuntimeException("超过xlsx的最大列数" + MAX_COLUMNS);
+        }
+        String rowNum = Integer.toString(rowCount);
+        writer.write("<row r=\"");
+        writer.write(rowNum);
+        writer.write("\">");
+        for (int i = 0; i < row.size(); i++) {
+            Object value = row.get(i);
+            if (value != null) {
+                writeCell(columnName(i), rowNum, value);
+            }
+        }
+        writer.write("</row>");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (sheetNames.isEmpty()) {
+                // 工作簿至少要有一个表
+                startSheet("Sheet1");
+            }
+            endSheet();
+            writeSharedStrings();
+            writeEntry("xl/styles.xml", styles());
+            writeEntry("xl/workbook.xml", workbook());
+            writeEntry("xl/_rels/workbook.xml.rels", workbookRels());
+            writeEntry("[Content_Types].xml", contentTypes());
+            writeEntry("_rels/.rels", XML_HEADER + "<Relationships xmlns=\"" + PKG_REL_NS + "\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+        } finally {
+            closed = true;
+            writer.close();
+        }
+    }
+
+    private void writeCell(String column, String rowNum, Object value) throws IOException {
+        writer.write("<c r=\"");
+        writer.write(column);
+        writer.write(rowNum);
+        if (value instanceof Number) {
+            writer.write("\"><v>");
+            writer.write(numberText((Number) value));
+            writer.write("</v></c>");
+        } else if (value instanceof Boolean) {
+            writer.write("\" t=\"b\"><v>");
+            writer.write((Boolean) value ? "1" : "0");
+            writer.write("</v></c>");
+        } else if (value instanceof LocalDate) {
+            writeDate(STYLE_DATE, DateUtil.getExcelDate((LocalDate) value));
+        } else if (value instanceof LocalDateTime) {
+            writeDate(STYLE_DATE_TIME, DateUtil.getExcelDate((LocalDateTime) value));
+        } else if (value instanceof Date) {
+            writeDate(STYLE_DATE_TIME, DateUtil.getExcelDate((Date) value));
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    private void writeDate(int style, double value) throws IOException {
+        writer.write("\" s=\"");
+        writer.write(Integer.toString(style));
+        writer.write("\"><v>");
+        writer.write(numberText(value));
+        writer.write("</v></c>");
+    }
+
+    private void writeString(String value) throws IOException {
+        if (stringStorage == StringStorage.INLINE) {
+            writer.write("\" t=\"inlineStr\"><is>");
+            writeT(value);
+            writer.write("</is></c>");
+            return;
+        }
+        Integer index = sharedStrings.get(value);
+        if (index == null) {
+            index = sharedValues.size();
+            sharedStrings.put(value, index);
+            sharedValues.add(value);
+        }
+        sharedCount++;
+        writer.write("\" t=\"s\"><v>");
+        writer.write(Integer.toString(index));
+        writer.write("</v></c>");
+    }
+
+    /**
+     * 输出t元素，首尾有空白时需要保留空白
+     */
+    private void writeT(String value) throws IOException {
+        boolean preserve = !value.isEmpty()
+                && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+        writer.write(preserve ? "<t xml:space=\"preserve\">" : "<t>");
+        writeEscaped(value);
+        writer.write("</t>");
+    }
+
+    /**
+     * 转义xml特殊字符，xml中不能出现的控制字符按excel的规则写为_xHHHH_，
+     * 本身形如_xHHHH_的文本在前面加_x005F_以免被当作转义
+     */
+    private void writeEscaped(String value) throws IOException {
+        int start = 0;
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '<') {
+                replacement = "&lt;";
+            } else if (c == '>') {
+                replacement = "&gt;";
+            } else if (c == '&') {
+                replacement = "&amp;";
+            } else if (c < 0x20 && c != '\t' && c != '\n' && c != '\r' || c == 0xFFFE || c == 0xFFFF) {
+                replacement = String.format("_x%04X_", (int) c);
+            } else if (c == '_' && isEscapeSequence(value, i)) {
+                replacement = "_x005F_";
+            } else {
+                continue;
+            }
+            writer.write(value, start, i - start);
+            writer.write(replacement);
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+    }
+
+    private static boolean isEscapeSequence(String value, int i) {
+        if (i + 6 >= value.length() || value.charAt(i + 1) != 'x' || value.charAt(i + 6) != '_') {
+            return false;
+        }
+        for (int j = i + 2; j < i + 6; j++) {
+            if (Character.digit(value.charAt(j), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String numberText(Number value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return numberText(value.doubleValue());
+        }
+        return value.toString();
+    }
+
+    private static String numberText(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new RuntimeException("无法写入数值: " + value);
+        }
+        // 整数不输出小数部分，减小文件
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private String columnName(int column) {
+        if (column >= columnNames.length) {
+            String[] grown = new String[Math.max(column + 1, columnNames.length * 2)];
+            System.arraycopy(columnNames, 0, grown, 0, columnNames.length);
+            columnNames = grown;
+        }
+        String name = columnNames[column];
+        if (name == null) {
+            name = CellReference.convertNumToColString(column);
+            columnNames[column] = name;
+        }
+        return name;
+    }
+
+    private void endSheet() throws IOException {
+        if (!sheetOpen) {
+            return;
+        }
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    private void writeSharedStrings() throws IOException {
+        if (stringStorage != StringStorage.SHARED) {
+            return;
+        }
+        zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+        writer.write(XML_HEADER);
+        writer.write("<sst xmlns=\"" + MAIN_NS + "\" count=\"" + sharedCount + "\" uniqueCount=\"" + sharedValues.size() + "\">");
+        for (String value : sharedValues) {
+            writer.write("<si>");
+            writeT(value);
+            writer.write("</si>");
+        }
+        writer.write("</sst>");
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private static String styles() {
+        return XML_HEADER + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+                + "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-mm-dd hh:mm:ss\"/></numFmts>"
+                + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"3\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/></cellXfs>"
+                + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+                + "</styleSheet>";
+    }
+
+    private String workbook() {
+        StringBuilder xml = new StringBuilder(XML_HEADER);
+        xml.append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\"><sheets>");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            xml.append("<sheet name=\"").append(escapeAttribute(sheetNames.get(i)))
+                    .append("\" sheetId=\"").append(i + 1).append("\" r:id=\"rId").append(i + 1).append("\"/>");
+        }
+        return xml.append("</sheets></workbook>").toString();
+    }
+
+    private String workbookRels() {
+        StringBuilder xml = new StringBuilder(XML_HEADER);
+        xml.append("<Relationships xmlns=\"").append(PKG_REL_NS).append("\">");
+        int count = sheetNames.size();
+        for (int i = 1; i <= count; i++) {
+            xml.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(REL_NS)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        xml.append("<Relationship Id=\"rId").append(count + 1).append("\" Type=\"").append(REL_NS)
+                .append("/styles\" Target=\"styles.xml\"/>");
+        if (stringStorage == StringStorage.SHARED) {
+            xml.append("<Relationship Id=\"rId").append(count + 2).append("\" Type=\"").append(REL_NS)
+                    .append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+        }
+        return xml.append("</Relationships>").toString();
+    }
+
+    private String contentTypes() {
+        String type = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+        StringBuilder xml = new StringBuilder(XML_HEADER);
+        xml.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"").append(type).append("sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"").append(type).append("styles+xml\"/>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i).append(".xml\" ContentType=\"")
+                    .append(type).append("worksheet+xml\"/>");
+        }
+        if (stringStorage == StringStorage.SHARED) {
+            xml.append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"").append(type).append("sharedStrings+xml\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * 表名不能为空、不能重复(不区分大小写)、不超过31个字符、不能包含\/?*[]:
+     */
+    private void checkSheetName(String sheetName) {
+        if (sheetName == null || sheetName.isEmpty() || sheetName.length() > 31) {
+            throw new RuntimeException("无效的表名: " + sheetName);
+        }
+        for (int i = 0; i < sheetName.length(); i++) {
+            if ("\\/?*[]:".indexOf(sheetName.charAt(i)) >= 0) {
+                throw new RuntimeException("无效的表名: " + sheetName);
+            }
+        }
+        if (!sheetNameKeys.add(sheetName.toLowerCase())) {
+            throw new RuntimeException("重复的表名: " + sheetName);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new RuntimeException("写入器已关闭");
+        }
+    }
+}
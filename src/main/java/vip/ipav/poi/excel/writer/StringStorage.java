@@ -0,0 +1,15 @@
+package vip.ipav.poi.excel.writer;
+
+/**
+ * 字符串单元格的写入方式
+ */
+public enum StringStorage {
+    /**
+     * 写入去重的共享字符串表，重复字符串多时文件小，不同字符串都保留在内存中直到写完
+     */
+    SHARED,
+    /**
+     * 直接写在单元格中，不占用内存，适合几乎不重复的字符串
+     */
+    INLINE
+}
@@ -0,0 +1,127 @@
+package vip.ipav.poi.excel.writer;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 基于POI SXSSF的写入器，内存中最多保留windowSize行，超出的行写入临时文件
+ * 需要在写入后通过getWorkbook()设置POI样式等功能时使用，否则Excel2007Writer更快
+ */
+public class SxssfExcelWriter extends AbstractExcelWriter {
+
+    private final SXSSFWorkbook workbook;
+    private final OutputStream out;
+    private final CellStyle dateStyle;
+    private final CellStyle dateTimeStyle;
+    private Sheet sheet;
+    private boolean closed;
+
+    public SxssfExcelWriter(String path, int windowSize, StringStorage stringStorage) throws IOException {
+        this(new FileOutputStream(path), windowSize, stringStorage);
+    }
+
+    /**
+     * @param out           输出流，close时一并关闭
+     * @param windowSize    内存中保留的行数
+     * @param stringStorage 字符串的写入方式
+     */
+    public SxssfExcelWriter(OutputStream out, int windowSize, StringStorage stringStorage) {
+        this.out = out;
+        this.workbook = new SXSSFWorkbook(null, windowSize, true, stringStorage == StringStorage.SHARED);
+        this.dateStyle = workbook.createCellStyle();
+        this.dateStyle.setDataFormat((short) 14);
+        this.dateTimeStyle = workbook.createCellStyle();
+        this.dateTimeStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+    }
+
+    /**
+     * 底层的SXSSFWorkbook，已经写出到临时文件的行不能再访问
+     *
+     * @return
+     */
+    public SXSSFWorkbook getWorkbook() {
+        return workbook;
+    }
+
+    @Override
+    public void startSheet(String sheetName) throws IOException {
+        checkOpen();
+        sheet = workbook.createSheet(sheetName);
+        rowCount = 0;
+    }
+
+    @Override
+    public void writeRow(List<?> row) throws IOException {
+        checkOpen();
+        if (sheet == null) {
+            sheet = workbook.createSheet();
+        }
+        Row sheetRow = sheet.createRow(rowCount++);
+        if (row == null) {
+            return;
+        }
+        for (int i = 0; i < row.size(); i++) {
+            Object value = row.get(i);
+            if (value != null) {
+                setValue(sheetRow.createCell(i), value);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (workbook.getNumberOfSheets() == 0) {
+                workbook.createSheet();
+            }
+            workbook.write(out);
+        } finally {
+            try {
+                out.close();
+            } finally {
+                // 删除SXSSF的临时文件
+                workbook.close();
+            }
+        }
+    }
+
+    private void setValue(Cell cell, Object value) {
+        if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof LocalDate) {
+            cell.setCellValue((LocalDate) value);
+            cell.setCellStyle(dateStyle);
+        } else if (value instanceof LocalDateTime) {
+            cell.setCellValue((LocalDateTime) value);
+            cell.setCellStyle(dateTimeStyle);
+        } else if (value instanceof Date) {
+            cell.setCellValue((Date) value);
+            cell.setCellStyle(dateTimeStyle);
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new RuntimeException("写入器已关闭");
+        }
+    }
+}
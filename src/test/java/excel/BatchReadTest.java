@@ -0,0 +1,201 @@
+package excel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.jdbc.JdbcBatchSink;
+import vip.ipav.poi.excel.jdbc.StatementBinder;
+import vip.ipav.poi.excel.reader.BatchHandler;
+import vip.ipav.poi.excel.reader.BatchRowHandler;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 按批读取和批量写入数据库的测试
+ */
+public class BatchReadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1");
+        execute("create table item(id int not null, name varchar(32), amount decimal(12, 2))");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        execute("drop table item");
+        connection.close();
+    }
+
+    @Test
+    public void batchesBySize() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("size.xlsx"), 2, 25);
+        final List<String> batches = new ArrayList<>();
+        final List<List<List<Object>>> containers = new ArrayList<>();
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.read(new BatchHandler() {
+                @Override
+                public void onBatch(int sheetIndex, List<List<Object>> rows) {
+                    batches.add(sheetIndex + ":" + rows.size() + ":" + rows.get(0).get(1));
+                    containers.add(rows);
+                }
+            }, 10, 0);
+        }
+        // 换表时先输出上一个表剩余的行
+        assertEquals(Arrays.asList("0:10:s0r1", "0:10:s0r11", "0:5:s0r21", "1:10:s1r1", "1:10:s1r11", "1:5:s1r21"),
+                batches);
+        // 批次列表复用
+        for (List<List<Object>> container : containers) {
+            assertSame(containers.get(0), container);
+        }
+    }
+
+    @Test
+    public void batchesByBytes() throws Exception {
+        final List<Integer> sizes = new ArrayList<>();
+        BatchRowHandler handler = new BatchRowHandler(new BatchHandler() {
+            @Override
+            public void onBatch(int sheetIndex, List<List<Object>> rows) {
+                sizes.add(rows.size());
+            }
+        }, 1000, 1024);
+        char[] text = new char[200];
+        Arrays.fill(text, '字');
+        for (int i = 0; i < 10; i++) {
+            handler.onRow(0, i + 1, Arrays.<Object>asList(new String(text), 1.0));
+        }
+        handler.flush();
+        // 每行估算约480字节，累计达到1024字节时输出，三行一批
+        assertEquals(Arrays.asList(3, 3, 3, 1), sizes);
+    }
+
+    @Test
+    public void jdbcSink() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("jdbc.xls"), 3, 1000);
+        JdbcBatchSink sink = new JdbcBatchSink(connection, "insert into item(id, name, amount) values (?, ?, ?)");
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.read(sink, 200, 0);
+        } finally {
+            sink.close();
+        }
+        assertEquals(3000, sink.getRowCount());
+        assertEquals("3000,15015000.00", query("select count(*), sum(amount) from item"));
+        assertEquals("s2r1000", query("select name from item where id = 1000 and name like 's2%'"));
+    }
+
+    @Test
+    public void parseOverlapsInsert() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("overlap.xlsx"), 1, 300);
+        final CountDownLatch nextBatchParsed = new CountDownLatch(1);
+        final AtomicInteger overlapped = new AtomicInteger();
+        final JdbcBatchSink sink = new JdbcBatchSink(connection, "insert into item(id, name, amount) values (?, ?, ?)");
+        sink.setBinder(new StatementBinder() {
+            @Override
+            public void bind(PreparedStatement statement, List<Object> row) throws SQLException {
+                // 第一批写入时等待第二批开始解析
+                if (((Double) row.get(0)).intValue() == 1) {
+                    try {
+                        if (nextBatchParsed.await(10, TimeUnit.SECONDS)) {
+                            overlapped.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        throw new SQLException(e);
+                    }
+                }
+                for (int i = 0; i < 3; i++) {
+                    statement.setObject(i + 1, row.get(i));
+                }
+            }
+        });
+        final BatchRowHandler batches = new BatchRowHandler(sink, 100, 0);
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.read(new RowHandler() {
+                @Override
+                public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                    if (rowNum == 102) {
+                        nextBatchParsed.countDown();
+                    }
+                    batches.onRow(sheetIndex, rowNum, row);
+                }
+            });
+            batches.flush();
+        } finally {
+            sink.close();
+        }
+        assertEquals(1, overlapped.get());
+        assertEquals("300", query("select count(*) from item"));
+    }
+
+    @Test
+    public void insertFailure() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("failure.xlsx"), 1, 50);
+        connection.setAutoCommit(false);
+        JdbcBatchSink sink = new JdbcBatchSink(connection, "insert into item(id, name, amount) values (?, ?, ?)");
+        sink.setBinder(new StatementBinder() {
+            @Override
+            public void bind(PreparedStatement statement, List<Object> row) throws SQLException {
+                int id = ((Double) row.get(0)).intValue();
+                // 第25行违反非空约束
+                statement.setObject(1, id == 25 ? null : id);
+                statement.setObject(2, row.get(1));
+                statement.setObject(3, row.get(2));
+            }
+        });
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.read(sink, 20, 0);
+            sink.close();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("批量写入数据库失败", e.getMessage());
+            assertTrue(e.getCause() instanceof SQLException);
+        } finally {
+            sink.close();
+            connection.setAutoCommit(true);
+        }
+        // 失败的一批回滚，之前的批次已提交
+        assertEquals("20", query("select count(*) from item"));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private String query(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            StringBuilder result = new StringBuilder();
+            for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                result.append(i > 1 ? "," : "").append(rs.getString(i));
+            }
+            return result.toString();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package excel;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 空单元格补全测试，覆盖多字母列名直到最后一列XFD
+ */
+public class CellPaddingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void padGapsAndTail() throws Exception {
+        File file = folder.newFile("gaps.xlsx");
+        XSSFWorkbook wb = new XSSFWorkbook();
+        try {
+            Sheet sheet = wb.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("a");
+            header.createCell(3).setCellValue("d");
+            sheet.createRow(1).createCell(1).setCellValue(2);
+            Row wide = sheet.createRow(2);
+            wide.createCell(27).setCellValue("AB");
+            wide.createCell(16383).setCellValue("XFD");
+            OutputStream out = new FileOutputStream(file);
+            try {
+                wb.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            wb.close();
+        }
+        Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+        reader.processAllSheets();
+        List<List<Object>> rows = reader.getAllValueList();
+        assertEquals(Arrays.<Object>asList("a", null, null, "d"), rows.get(0));
+        assertEquals(Arrays.<Object>asList(null, "2", null, null), rows.get(1));
+        List<Object> last = rows.get(2);
+        assertEquals(16384, last.size());
+        assertNull(last.get(26));
+        assertEquals("AB", last.get(27));
+        assertEquals("XFD", last.get(16383));
+    }
+}
@@ -0,0 +1,180 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Checkpoint;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.RowHandler;
+import vip.ipav.poi.excel.reader.SheetParserType;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查点继续读取以及按行切分的测试
+ */
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumeXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("resume.xlsx"), 3, 200);
+        for (SheetParserType type : SheetParserType.values()) {
+            Excel2007Reader first = new Excel2007Reader(1, file);
+            first.setSheetParserType(type);
+            Checkpoint checkpoint = stopAfter(first, 250);
+            assertEquals(1, checkpoint.getSheetIndex());
+            assertEquals(49, checkpoint.getRowNum());
+            // 只有依次以SCANNER方式解析时才记录字节偏移
+            assertEquals(type == SheetParserType.SCANNER, checkpoint.getByteOffset() > 0);
+
+            Excel2007Reader resumed = new Excel2007Reader(1, file);
+            resumed.setSheetParserType(type);
+            resumed.setResume(checkpoint, null);
+            resumed.processAllSheets();
+            List<List<Object>> all = readAll(new Excel2007Reader(1, file));
+            assertEquals(all.subList(250, all.size()), resumed.getAllValueList());
+        }
+    }
+
+    @Test
+    public void resumeXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("resume.xls"), 3, 200);
+        Checkpoint checkpoint = stopAfter(new Excel2003Reader(1, file), 250);
+        assertEquals(new Checkpoint(1, 49, -1, -1), checkpoint);
+
+        Excel2003Reader resumed = new Excel2003Reader(1, file);
+        resumed.setResume(checkpoint, null);
+        resumed.processAllSheets();
+        List<List<Object>> all = readAll(new Excel2003Reader(1, file));
+        assertEquals(all.subList(250, all.size()), resumed.getAllValueList());
+    }
+
+    @Test
+    public void resumeKeepsPadding() throws Exception {
+        // 第30行只有A列，完整读取时按之前的行宽补全为3列
+        File source = TestWorkbooks.write(folder.newFile("source.xlsx"), 1, 20);
+        File file = TestWorkbooks.appendRow(source, folder.newFile("narrow.xlsx"),
+                "<row r=\"30\"><c r=\"A30\"><v>7</v></c></row>");
+        Excel2007Reader first = new Excel2007Reader(1, file);
+        first.setSheetParserType(SheetParserType.SCANNER);
+        Checkpoint checkpoint = stopAfter(first, 21);
+        assertEquals(3, checkpoint.getColumns());
+
+        List<Object> narrow = Arrays.<Object>asList("7", null, null);
+        for (Checkpoint from : new Checkpoint[]{checkpoint, new Checkpoint(0, 21, -1, -1)}) {
+            Excel2007Reader resumed = new Excel2007Reader(1, file);
+            resumed.setSheetParserType(SheetParserType.SCANNER);
+            resumed.setResume(from, null);
+            resumed.processAllSheets();
+            assertEquals(from.toString(), Arrays.asList(narrow), resumed.getAllValueList());
+        }
+    }
+
+    @Test
+    public void resumeTo() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("to.xlsx"), 3, 100);
+        Excel2007Reader reader = new Excel2007Reader(2, file);
+        reader.setResume(new Checkpoint(0, 99, -1, -1), new Checkpoint(1, 3, -1, -1));
+        reader.processAllSheets();
+        assertEquals(Arrays.asList(Arrays.<Object>asList("99", "s0r99", "990"), Arrays.<Object>asList("100", "s0r100", "1000"),
+                Arrays.<Object>asList("1", "s1r1", "10"), Arrays.<Object>asList("2", "s1r2", "20")), reader.getAllValueList());
+        assertEquals(1, reader.getCheckpoint().getSheetIndex());
+        assertEquals(3, reader.getCheckpoint().getRowNum());
+    }
+
+    @Test
+    public void splitChunks() throws Exception {
+        File xlsx = TestWorkbooks.write(folder.newFile("split.xlsx"), 3, 200);
+        File xls = TestWorkbooks.write(folder.newFile("split.xls"), 3, 200);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (SheetParserType type : SheetParserType.values()) {
+                assertChunks(xlsx, type, executor);
+            }
+            assertChunks(xls, null, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void noCheckpointBeforeFirstRow() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("empty.xlsx"), 1, 5);
+        try (ExcelReader reader = new ExcelReader(100, file)) {
+            reader.readAll();
+            assertNull(reader.getCheckpoint());
+        }
+    }
+
+    private void assertChunks(final File file, final SheetParserType type, ExecutorService executor) throws Exception {
+        List<Checkpoint> bounds;
+        List<List<Object>> all;
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            bounds = reader.split(70);
+            all = reader.readAll();
+        }
+        // 3个表共600行，每段70行
+        assertEquals(8, bounds.size());
+        assertTrue(bounds.get(1).getSheetIndex() == 0 && bounds.get(1).getRowNum() == 141);
+        List<Future<List<List<Object>>>> futures = new ArrayList<>();
+        for (int i = 0; i <= bounds.size(); i++) {
+            final Checkpoint from = i == 0 ? null : bounds.get(i - 1);
+            final Checkpoint to = i == bounds.size() ? null : bounds.get(i);
+            futures.add(executor.submit(new Callable<List<List<Object>>>() {
+                @Override
+                public List<List<Object>> call() throws Exception {
+                    try (ExcelReader reader = new ExcelReader(2, file)) {
+                        if (type != null) {
+                            reader.setSheetParserType(type);
+                        }
+                        reader.setResume(from, to);
+                        return new ArrayList<>(reader.readAll());
+                    }
+                }
+            }));
+        }
+        List<List<Object>> chunks = new ArrayList<>();
+        for (Future<List<List<Object>>> future : futures) {
+            chunks.addAll(future.get());
+        }
+        assertEquals(file.getName() + " " + type, all, chunks);
+    }
+
+    private Checkpoint stopAfter(final AbstractExcelReader reader, final int count) throws Exception {
+        final int[] rows = new int[1];
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                if (++rows[0] == count) {
+                    reader.stop();
+                }
+            }
+        });
+        reader.processAllSheets();
+        reader.close();
+        return reader.getCheckpoint();
+    }
+
+    private List<List<Object>> readAll(AbstractExcelReader reader) throws Exception {
+        reader.processAllSheets();
+        reader.close();
+        return reader.getAllValueList();
+    }
+}
@@ -0,0 +1,84 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 列投影测试，按列名、列索引和表头名称指定，输出按指定的顺序排列
+ */
+public class ColumnProjectionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lettersXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("letters.xlsx"), 2, 5);
+        assertLetters(new Excel2007Reader(1, file.getPath()));
+    }
+
+    @Test
+    public void lettersXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("letters.xls"), 2, 5);
+        assertLetters(new Excel2003Reader(1, file.getPath()));
+    }
+
+    @Test
+    public void headersXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("headers.xlsx"), 2, 5);
+        assertHeaders(new Excel2007Reader(2, file.getPath()));
+    }
+
+    @Test
+    public void headersXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("headers.xls"), 2, 5);
+        assertHeaders(new Excel2003Reader(2, file.getPath()));
+    }
+
+    @Test
+    public void indexesXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("indexes.xlsx"), 1, 3);
+        Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+        reader.setColumnIndexes(1, 5);
+        reader.processAllSheets();
+        assertEquals(Arrays.<Object>asList("name", null), reader.getAllValueList().get(0));
+        assertEquals(Arrays.<Object>asList("s0r3", null), reader.getAllValueList().get(3));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void missingHeader() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("missing.xlsx"), 1, 3);
+        Excel2007Reader reader = new Excel2007Reader(2, file.getPath());
+        reader.setColumnHeaders(1, "id", "price");
+        reader.processAllSheets();
+    }
+
+    private void assertLetters(AbstractExcelReader reader) throws Exception {
+        reader.setColumnLetters("C", "A");
+        reader.processAllSheets();
+        List<List<Object>> rows = reader.getAllValueList();
+        assertEquals(12, rows.size());
+        assertEquals(Arrays.<Object>asList("amount", "id"), rows.get(0));
+        assertEquals(Arrays.<Object>asList("30", "3"), rows.get(3));
+        assertEquals(Arrays.<Object>asList("amount", "id"), rows.get(6));
+    }
+
+    private void assertHeaders(AbstractExcelReader reader) throws Exception {
+        reader.setColumnHeaders(1, "name", "amount");
+        reader.processAllSheets();
+        List<List<Object>> rows = reader.getAllValueList();
+        assertEquals(10, rows.size());
+        assertEquals(Arrays.<Object>asList("s0r1", "10"), rows.get(0));
+        assertEquals(Arrays.<Object>asList("s1r5", "50"), rows.get(9));
+    }
+}
@@ -0,0 +1,118 @@
+package excel;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 多线程同时使用不同读取器实例读取不同文件，样式等解析状态不能串到其他文件
+ */
+public class ConcurrentReadersTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20;
+    private static final int ROWS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readersOnManyThreads() throws Exception {
+        // 两个文件的样式1分别是日期和两位小数，样式表串用时输出会不一致
+        final File dates = writeStyled(folder.newFile("dates.xlsx"), "yyyy/mm/dd");
+        final File decimals = writeStyled(folder.newFile("decimals.xlsx"), "0.00");
+        final File xls = TestWorkbooks.write(folder.newFile("plain.xls"), 2, ROWS);
+        final List<List<Object>> expectedDates = read(new Excel2007Reader(1, dates.getPath()));
+        final List<List<Object>> expectedDecimals = read(new Excel2007Reader(1, decimals.getPath()));
+        final List<List<Object>> expectedXls = read(new Excel2003Reader(1, xls.getPath()));
+        assertEquals("2020/06/18", expectedDates.get(0).get(0));
+        assertEquals("44000.00", expectedDecimals.get(0).get(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int kind = t % 3;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < ROUNDS; i++) {
+                            if (kind == 0) {
+                                assertEquals(expectedDates, read(new Excel2007Reader(1, dates.getPath())));
+                            } else if (kind == 1) {
+                                assertEquals(expectedDecimals, read(new Excel2007Reader(1, decimals.getPath())));
+                            } else {
+                                assertEquals(expectedXls, read(new Excel2003Reader(1, xls.getPath())));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sameReaderTwice() throws Exception {
+        File xls = TestWorkbooks.write(folder.newFile("twice.xls"), 2, 10);
+        Excel2003Reader reader = new Excel2003Reader(1, xls.getPath());
+        reader.processAllSheets();
+        List<List<Object>> first = new ArrayList<>(reader.getAllValueList());
+        reader.processAllSheets();
+        assertEquals(first, reader.getAllValueList().subList(first.size(), reader.getAllValueList().size()));
+    }
+
+    private static List<List<Object>> read(AbstractExcelReader reader) throws Exception {
+        reader.processAllSheets();
+        return reader.getAllValueList();
+    }
+
+    private static File writeStyled(File file, String format) throws Exception {
+        Workbook wb = new XSSFWorkbook();
+        try {
+            CellStyle style = wb.createCellStyle();
+            style.setDataFormat(wb.createDataFormat().getFormat(format));
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < ROWS; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(44000 + r);
+                row.getCell(0).setCellStyle(style);
+                row.createCell(1).setCellValue("r" + r);
+            }
+            OutputStream out = new FileOutputStream(file);
+            try {
+                wb.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,118 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 读取范围结束后停止解析以及在行回调中调用stop()的测试
+ */
+public class EarlyStopTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rangeXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("range.xlsx"), 3, 500);
+        assertRange(new Excel2007Reader(3, 4, file.getPath()));
+    }
+
+    @Test
+    public void rangeXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("range.xls"), 3, 500);
+        assertRange(new Excel2003Reader(3, 4, file.getPath()));
+    }
+
+    @Test
+    public void oneSheetXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("one.xls"), 3, 500);
+        Excel2003Reader reader = new Excel2003Reader(2, 2, file.getPath());
+        reader.processOneSheet(2);
+        assertEquals(Arrays.asList(Arrays.<Object>asList("1", "s1r1", "10"), Arrays.<Object>asList("2", "s1r2", "20")),
+                reader.getAllValueList());
+    }
+
+    @Test
+    public void rangeEndsBeforeBrokenRow() throws Exception {
+        // 第9999行引用了不存在的共享字符串，读取到该行就会出错
+        File file = TestWorkbooks.write(folder.newFile("broken.xlsx"), 1, 20);
+        File broken = TestWorkbooks.appendRow(file, folder.newFile("broken-copy.xlsx"),
+                "<row r=\"9999\"><c r=\"A9999\" t=\"s\"><v>999999</v></c></row>");
+        Excel2007Reader reader = new Excel2007Reader(2, 5, broken.getPath());
+        reader.processAllSheets();
+        assertEquals(5, reader.getAllValueList().size());
+        assertEquals(Arrays.<Object>asList("5", "s0r5", "50"), reader.getAllValueList().get(4));
+    }
+
+    @Test
+    public void stopXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("stop.xlsx"), 3, 100);
+        assertEquals(3, stopAfter(new Excel2007Reader(1, file.getPath()), 3, null).size());
+    }
+
+    @Test
+    public void stopXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("stop.xls"), 3, 100);
+        assertEquals(3, stopAfter(new Excel2003Reader(1, file.getPath()), 3, null).size());
+    }
+
+    @Test
+    public void stopParallel() throws Exception {
+        File xlsx = TestWorkbooks.write(folder.newFile("parallel.xlsx"), 4, 100);
+        File xls = TestWorkbooks.write(folder.newFile("parallel.xls"), 4, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<List<Object>> rows = stopAfter(new Excel2007Reader(1, xlsx.getPath()), 150, executor);
+            assertEquals(150, rows.size());
+            assertEquals(Arrays.<Object>asList("48", "s1r48", "480"), rows.get(149));
+            assertEquals(150, stopAfter(new Excel2003Reader(1, xls.getPath()), 150, executor).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertRange(AbstractExcelReader reader) throws Exception {
+        reader.processAllSheets();
+        List<List<Object>> rows = reader.getAllValueList();
+        assertEquals(12, rows.size());
+        assertEquals(Arrays.<Object>asList("2", "s0r2", "20"), rows.get(0));
+        assertEquals(Arrays.<Object>asList("5", "s1r5", "50"), rows.get(7));
+        assertEquals(Arrays.<Object>asList("5", "s2r5", "50"), rows.get(11));
+    }
+
+    private List<List<Object>> stopAfter(final AbstractExcelReader reader, final int count, ExecutorService executor)
+            throws Exception {
+        final List<List<Object>> rows = new ArrayList<>();
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                rows.add(row);
+                if (rows.size() == count) {
+                    reader.stop();
+                }
+            }
+        });
+        if (executor == null) {
+            reader.processAllSheets();
+        } else if (reader instanceof Excel2007Reader) {
+            ((Excel2007Reader) reader).processAllSheets(executor);
+        } else {
+            ((Excel2003Reader) reader).processAllSheets(executor);
+        }
+        return rows;
+    }
+}
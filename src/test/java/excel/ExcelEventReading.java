@@ -2,8 +2,10 @@ package excel;
 
 import vip.ipav.poi.excel.reader.Excel2003Reader;
 import vip.ipav.poi.excel.reader.Excel2007Reader;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.Iterator;
 
 /**
@@ -18,6 +20,7 @@ public class ExcelEventReading {
 
     @Test
     public void readExcel2007() throws Exception{
+        Assume.assumeTrue(new File("D:/test.xlsx").exists());
         //读取文件
         Excel2007Reader excel2007Reader = new Excel2007Reader(1,"D:/test.xlsx");
 
@@ -34,6 +37,7 @@ public class ExcelEventReading {
 
     @Test
     public void readExcel2003() throws Exception{
+       Assume.assumeTrue(new File("d:/test.xls").exists());
        Excel2003Reader excel2003Reader = new Excel2003Reader(1,2,"d:/test.xls");
        //excel2003Reader.processAllSheets();
         excel2003Reader.processOneSheet(1);
@@ -0,0 +1,173 @@
+package excel;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.ExcelReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 统一读取入口的格式判断和空值规则测试
+ */
+public class ExcelReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void detectByContent() throws Exception {
+        // 后缀与实际格式不符时按文件头判断
+        File xlsx = TestWorkbooks.write(folder.newFile("real.xlsx"), 1, 3);
+        File named = folder.newFile("named.xls");
+        Files.copy(xlsx.toPath(), named.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (ExcelReader reader = new ExcelReader(2, named)) {
+            assertEquals(ExcelReader.Format.XLSX, reader.getFormat());
+            assertEquals(Arrays.<Object>asList(1.0, "s0r1", 10.0), reader.readAll().get(0));
+        }
+        File xls = TestWorkbooks.write(folder.newFile("real.xls"), 1, 3);
+        assertEquals(ExcelReader.Format.XLS, ExcelReader.detect(xls));
+    }
+
+    @Test
+    public void notExcel() throws Exception {
+        File text = folder.newFile("text.xlsx");
+        Files.write(text.toPath(), "id,name\n1,a\n".getBytes("UTF-8"));
+        try {
+            new ExcelReader(1, text);
+            fail();
+        } catch (IOException e) {
+            assertEquals("不支持的文件格式: UNKNOWN", e.getMessage());
+        }
+    }
+
+    @Test
+    public void blankSemantics() throws Exception {
+        List<List<Object>> xls = readBlanks(writeBlanks(folder.newFile("blank.xls")), false);
+        List<List<Object>> xlsx = readBlanks(writeBlanks(folder.newFile("blank.xlsx")), false);
+        // 不存在的单元格为null，空白、空字符串和只有空白字符的单元格为空字符串
+        List<Object> expected = Arrays.<Object>asList("x", "", "", "", null, "y");
+        assertEquals(expected, xls.get(0));
+        assertEquals(expected, xlsx.get(0));
+
+        List<Object> blankAsNull = Arrays.<Object>asList("x", null, null, null, null, "y");
+        assertEquals(blankAsNull, readBlanks(new File(folder.getRoot(), "blank.xls"), true).get(0));
+        assertEquals(blankAsNull, readBlanks(new File(folder.getRoot(), "blank.xlsx"), true).get(0));
+    }
+
+    @Test
+    public void textTrimmed() throws Exception {
+        // 两种格式的文本都去掉首尾的空白字符，中间的空白保留
+        List<Object> expected = Arrays.<Object>asList("padded", "lead", "a  b");
+        for (String name : new String[]{"trim.xls", "trim.xlsx"}) {
+            File file = folder.newFile(name);
+            Workbook wb = name.endsWith(".xlsx") ? new XSSFWorkbook() : new HSSFWorkbook();
+            try {
+                Row row = wb.createSheet("trim").createRow(0);
+                row.createCell(0).setCellValue(" padded ");
+                row.createCell(1).setCellValue("\tlead\n");
+                row.createCell(2).setCellValue("a  b");
+                try (OutputStream out = new FileOutputStream(file)) {
+                    wb.write(out);
+                }
+            } finally {
+                wb.close();
+            }
+            for (CellValueMode mode : CellValueMode.values()) {
+                try (ExcelReader reader = new ExcelReader(1, file)) {
+                    reader.setValueMode(mode);
+                    assertEquals(name + " " + mode, expected, reader.readAll().get(0));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void streamInput() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("stream.xls"), 2, 10);
+        for (boolean spill : new boolean[]{false, true}) {
+            try (InputStream in = new FileInputStream(file);
+                 ExcelReader reader = new ExcelReader(2, 3, in, spill)) {
+                reader.setValueMode(CellValueMode.FORMATTED);
+                List<List<Object>> rows = reader.readAll();
+                assertEquals(ExcelReader.Format.XLS, reader.getFormat());
+                assertEquals(6, rows.size());
+                assertEquals(Arrays.<Object>asList("3", "s1r3", "30"), rows.get(5));
+            }
+        }
+    }
+
+    @Test
+    public void parallelStream() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("parallel.xlsx"), 3, 50);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.setExecutor(executor);
+            reader.setColumnLetters("B");
+            List<Object> names = new ArrayList<>();
+            try (Stream<List<Object>> rows = reader.stream(16)) {
+                Iterator<List<Object>> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    names.add(iterator.next().get(0));
+                }
+            }
+            assertEquals(150, names.size());
+            assertEquals("s0r1", names.get(0));
+            assertEquals("s2r50", names.get(149));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<List<Object>> readBlanks(File file, boolean blankAsNull) throws Exception {
+        try (ExcelReader reader = new ExcelReader(1, file)) {
+            reader.setBlankAsNull(blankAsNull);
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * 第一行: A文本，B空白单元格，C空字符串，D只有空格，E不存在，F文本
+     */
+    private static File writeBlanks(File file) throws IOException {
+        Workbook wb = file.getName().endsWith(".xlsx") ? new XSSFWorkbook() : new HSSFWorkbook();
+        try {
+            Sheet sheet = wb.createSheet("blank");
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue("x");
+            row.createCell(1).setCellStyle(wb.createCellStyle());
+            row.createCell(2).setCellValue("");
+            row.createCell(3).setCellValue("  ");
+            row.createCell(5).setCellValue("y");
+            try (OutputStream out = new FileOutputStream(file)) {
+                wb.write(out);
+            }
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+}
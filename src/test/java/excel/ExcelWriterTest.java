@@ -0,0 +1,126 @@
+package excel;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.SheetParserType;
+import vip.ipav.poi.excel.writer.AbstractExcelWriter;
+import vip.ipav.poi.excel.writer.Excel2007Writer;
+import vip.ipav.poi.excel.writer.StringStorage;
+import vip.ipav.poi.excel.writer.SxssfExcelWriter;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 流式写入测试，写出的文件用读取器和POI读回，值与类型应一致
+ */
+public class ExcelWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<Object> HEADER = Arrays.<Object>asList("text", "number", "date", "time", "bool");
+
+    @Test
+    public void rawShared() throws Exception {
+        File file = folder.newFile("shared.xlsx");
+        Excel2007Writer writer = new Excel2007Writer(file.getPath());
+        assertRoundTrip(writer, file, "15");
+    }
+
+    @Test
+    public void rawInline() throws Exception {
+        File file = folder.newFile("inline.xlsx");
+        Excel2007Writer writer = new Excel2007Writer(file.getPath());
+        writer.setStringStorage(StringStorage.INLINE);
+        assertRoundTrip(writer, file, "15");
+    }
+
+    @Test
+    public void sxssf() throws Exception {
+        File file = folder.newFile("sxssf.xlsx");
+        // SXSSF写出的数值单元格没有样式，读取器按原始值输出
+        assertRoundTrip(new SxssfExcelWriter(file.getPath(), 100, StringStorage.SHARED), file, "15.0");
+    }
+
+    @Test
+    public void escaping() throws Exception {
+        for (StringStorage storage : StringStorage.values()) {
+            File file = folder.newFile("escape-" + storage + ".xlsx");
+            List<Object> row = Arrays.<Object>asList("<a & b>", " padded ", "tab\tline\nbreak", "bell\u0007", "_x0041_", "bell\u0007ring");
+            Excel2007Writer writer = new Excel2007Writer(file.getPath());
+            writer.setStringStorage(storage);
+            writer.startSheet("特殊 & \"名称\"");
+            writer.writeRow(row);
+            writer.close();
+            XSSFWorkbook wb = new XSSFWorkbook(file);
+            try {
+                Sheet sheet = wb.getSheetAt(0);
+                assertEquals("特殊 & \"名称\"", sheet.getSheetName());
+                assertEquals("<a & b>", sheet.getRow(0).getCell(0).getStringCellValue());
+                assertEquals(" padded ", sheet.getRow(0).getCell(1).getStringCellValue());
+                assertEquals("tab\tline\nbreak", sheet.getRow(0).getCell(2).getStringCellValue());
+                assertEquals("bell\u0007", sheet.getRow(0).getCell(3).getStringCellValue());
+            } finally {
+                wb.close();
+            }
+            for (SheetParserType type : SheetParserType.values()) {
+                for (CellValueMode mode : CellValueMode.values()) {
+                    Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+                    reader.setSheetParserType(type);
+                    reader.setValueMode(mode);
+                    reader.processAllSheets();
+                    List<Object> read = reader.getAllValueList().get(0);
+                    String message = storage + " " + type + " " + mode;
+                    assertEquals(message, "<a & b>", read.get(0));
+                    // 读取器去掉首尾的空白和控制字符，中间的控制字符保留
+                    assertEquals(message, "bell", read.get(3));
+                    assertEquals(message, "_x0041_", read.get(4));
+                    assertEquals(message, "bell\u0007ring", read.get(5));
+                }
+            }
+        }
+    }
+
+    private void assertRoundTrip(AbstractExcelWriter writer, File file, String number) throws Exception {
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(HEADER);
+        for (int i = 1; i <= 300; i++) {
+            rows.add(Arrays.<Object>asList("name" + (i % 7), i * 1.5, LocalDate.of(2020, 1, 1).plusDays(i),
+                    LocalDateTime.of(2021, 5, 6, 7, 8, 9).plusHours(i), i % 2 == 0));
+        }
+        rows.add(Arrays.<Object>asList(null, new BigDecimal("12.25"), null, null, null));
+        writer.writeSheet("data", rows.iterator());
+        writer.startSheet("second");
+        writer.writeRow(Arrays.asList("only"));
+        writer.close();
+
+        Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+        reader.setValueMode(CellValueMode.TYPED);
+        reader.processAllSheets();
+        List<List<Object>> read = reader.getAllValueList();
+        assertEquals(303, read.size());
+        assertEquals(HEADER, read.get(0));
+        assertEquals(Arrays.<Object>asList("name3", 15.0, LocalDate.of(2020, 1, 11),
+                LocalDateTime.of(2021, 5, 6, 17, 8, 9), true), read.get(10));
+        assertEquals(Arrays.<Object>asList(null, 12.25, null, null, null), read.get(301));
+        assertEquals(Arrays.<Object>asList("only"), read.get(302));
+
+        Excel2007Reader formatted = new Excel2007Reader(11, 1, file.getPath());
+        formatted.processAllSheets();
+        assertEquals(Arrays.<Object>asList("name3", number, "2020-01-11", "2021-05-06 17:08:09", "TRUE"),
+                formatted.getAllValueList().get(0));
+    }
+}
@@ -0,0 +1,141 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * 按文件、路径、文件通道和写入临时文件的输入流打开以及关闭读取器的测试
+ */
+public class OpenSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fileXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("file.xlsx"), 2, 20);
+        try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+            assertRows(reader);
+        }
+    }
+
+    @Test
+    public void fileXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("file.xls"), 2, 20);
+        try (Excel2003Reader reader = new Excel2003Reader(1, file)) {
+            assertRows(reader);
+        }
+    }
+
+    @Test
+    public void pathXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("path.xlsx"), 2, 20);
+        try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+            reader.open(file.toPath());
+            assertRows(reader);
+        }
+    }
+
+    @Test
+    public void channelXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("channel.xls"), 2, 20);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try (Excel2003Reader reader = new Excel2003Reader(1, channel)) {
+            assertRows(reader);
+        }
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void spillXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("spill.xlsx"), 2, 20);
+        Excel2007Reader reader = new Excel2007Reader(1, file);
+        assertSpill(reader, file);
+    }
+
+    @Test
+    public void spillXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("spill.xls"), 2, 20);
+        Excel2003Reader reader = new Excel2003Reader(1, file);
+        assertSpill(reader, file);
+    }
+
+    @Test
+    public void closedReader() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("closed.xls"), 1, 5);
+        Excel2003Reader reader = new Excel2003Reader(1, file);
+        reader.close();
+        reader.close();
+        try {
+            reader.processAllSheets();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("未设置数据源，请使用open设置对应的数据源", e.getMessage());
+        }
+    }
+
+    private void assertSpill(AbstractExcelReader reader, File file) throws Exception {
+        int before = spilledFiles();
+        TrackingInputStream in = new TrackingInputStream(new FileInputStream(file));
+        if (reader instanceof Excel2007Reader) {
+            ((Excel2007Reader) reader).open(in, true);
+        } else {
+            ((Excel2003Reader) reader).open(in, true);
+        }
+        // 输入流由调用方关闭
+        assertFalse(in.closed);
+        in.close();
+        assertEquals(before + 1, spilledFiles());
+        assertRows(reader);
+        reader.close();
+        assertEquals(before, spilledFiles());
+    }
+
+    private void assertRows(AbstractExcelReader reader) throws Exception {
+        reader.processAllSheets();
+        assertEquals(42, reader.getAllValueList().size());
+        assertEquals(Arrays.<Object>asList("20", "s1r20", "200"), reader.getAllValueList().get(41));
+    }
+
+    private static int spilledFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir")).list();
+        int count = 0;
+        for (String name : names) {
+            if (name.startsWith("poi-util-spill")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class TrackingInputStream extends FilterInputStream {
+        private boolean closed;
+
+        private TrackingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
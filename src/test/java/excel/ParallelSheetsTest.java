@@ -0,0 +1,71 @@
+package excel;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 多表并行解析测试，结果应与串行解析完全一致
+ */
+public class ParallelSheetsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void parallelXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("parallel.xlsx"), 6, 200);
+        Excel2007Reader serial = new Excel2007Reader(1, file.getPath());
+        List<String> expected = collect(serial);
+        serial.processAllSheets();
+        Excel2007Reader parallel = new Excel2007Reader(1, file.getPath());
+        List<String> actual = collect(parallel);
+        parallel.processAllSheets(executor);
+        assertEquals(6 * 201, actual.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void parallelXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("parallel.xls"), 6, 200);
+        Excel2003Reader serial = new Excel2003Reader(1, file.getPath());
+        List<String> expected = collect(serial);
+        serial.processAllSheets();
+        Excel2003Reader parallel = new Excel2003Reader(1, file.getPath());
+        List<String> actual = collect(parallel);
+        parallel.processAllSheets(executor);
+        assertEquals(6 * 201, actual.size());
+        assertEquals(expected, actual);
+    }
+
+    private List<String> collect(AbstractExcelReader reader) {
+        final List<String> rows = new ArrayList<>();
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                rows.add(sheetIndex + ":" + rowNum + ":" + row);
+            }
+        });
+        return rows;
+    }
+}
@@ -0,0 +1,167 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.ParseListener;
+import vip.ipav.poi.excel.reader.ParseMetrics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 解析指标和进度回调的测试
+ */
+public class ParseMetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void metricsXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("metrics.xlsx"), 3, 100);
+        Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+        assertMetrics(reader, null);
+    }
+
+    @Test
+    public void metricsXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("metrics.xls"), 3, 100);
+        assertMetrics(new Excel2003Reader(1, file.getPath()), null);
+    }
+
+    @Test
+    public void metricsParallelXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("parallel.xlsx"), 3, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertMetrics(new Excel2007Reader(1, file.getPath()), executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void metricsParallelXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("parallel.xls"), 3, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertMetrics(new Excel2003Reader(1, file.getPath()), executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void oneSheetXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("one.xls"), 3, 100);
+        Excel2003Reader reader = new Excel2003Reader(1, file.getPath());
+        RecordingListener listener = new RecordingListener();
+        reader.setParseListener(listener, 0);
+        reader.processOneSheet(2);
+        assertEquals(1, listener.sheets.size());
+        assertEquals(1, listener.sheets.get(0).getSheetIndex());
+        assertEquals(101, listener.sheets.get(0).getRows());
+        assertEquals(0, listener.progress);
+        assertEquals(101, reader.getMetrics().getRows());
+    }
+
+    @Test
+    public void stopOnProgress() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("timeout.xlsx"), 3, 1000);
+        final Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+        reader.setParseListener(new ParseListener() {
+            @Override
+            public void onProgress(ParseMetrics total) {
+                // 模拟超时，进度回调中结束解析
+                if (total.getRows() >= 500) {
+                    reader.stop();
+                }
+            }
+        }, 250);
+        reader.processAllSheets();
+        assertEquals(500, reader.getAllValueList().size());
+    }
+
+    @Test
+    public void noListener() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("plain.xlsx"), 1, 10);
+        Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+        reader.processAllSheets();
+        assertNull(reader.getMetrics());
+        assertEquals(11, reader.getAllValueList().size());
+    }
+
+    private void assertMetrics(AbstractExcelReader reader, ExecutorService executor) throws Exception {
+        RecordingListener listener = new RecordingListener();
+        reader.setParseListener(listener, 50);
+        if (executor == null) {
+            reader.processAllSheets();
+        } else if (reader instanceof Excel2007Reader) {
+            ((Excel2007Reader) reader).processAllSheets(executor);
+        } else {
+            ((Excel2003Reader) reader).processAllSheets(executor);
+        }
+        ParseMetrics total = reader.getMetrics();
+        assertSame(total, listener.finished);
+        assertEquals(-1, total.getSheetIndex());
+        assertEquals(303, total.getRows());
+        assertEquals(909, total.getCells());
+        assertTrue(total.getSharedStrings() > 0);
+        // 303行每50行回调一次
+        assertEquals(6, listener.progress);
+
+        assertEquals(3, listener.started);
+        assertEquals(3, listener.sheets.size());
+        long sheetBytes = 0;
+        for (ParseMetrics sheet : listener.sheets) {
+            assertEquals(101, sheet.getRows());
+            assertEquals(303, sheet.getCells());
+            assertTrue(sheet.getBytes() > 0);
+            assertTrue(sheet.getElapsedNanos() > 0);
+            sheetBytes += sheet.getBytes();
+        }
+        assertTrue(total.getBytes() >= sheetBytes);
+        assertTrue(total.getElapsedNanos() > 0);
+        assertTrue(total.getFormatNanos() > 0);
+    }
+
+    private static class RecordingListener implements ParseListener {
+        private int started;
+        private final List<ParseMetrics> sheets = new ArrayList<>();
+        private int progress;
+        private ParseMetrics finished;
+
+        @Override
+        public synchronized void onSheetStart(int sheetIndex) {
+            started++;
+        }
+
+        @Override
+        public synchronized void onSheetEnd(int sheetIndex, ParseMetrics sheet) {
+            assertEquals(sheetIndex, sheet.getSheetIndex());
+            sheets.add(sheet);
+        }
+
+        @Override
+        public void onProgress(ParseMetrics total) {
+            progress++;
+        }
+
+        @Override
+        public void onFinish(ParseMetrics total) {
+            finished = total;
+        }
+    }
+}
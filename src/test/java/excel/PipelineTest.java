@@ -0,0 +1,126 @@
+package excel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 流水线模式与普通模式输出一致性的测试
+ */
+public class PipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void sameAsSerial() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("rows.xlsx"), 3, 500);
+        for (CellValueMode mode : CellValueMode.values()) {
+            assertEquals(serial(file, mode), pipelined(file, mode, 7, 2));
+        }
+    }
+
+    @Test
+    public void typedValues() throws Exception {
+        File file = TestWorkbooks.writeTyped(folder.newFile("typed.xlsx"));
+        for (CellValueMode mode : CellValueMode.values()) {
+            assertEquals(serial(file, mode), pipelined(file, mode, 1, 1));
+        }
+    }
+
+    @Test
+    public void headerProjection() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("header.xlsx"), 2, 100);
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.setPipeline(executor, 16, 4);
+            reader.setColumnHeaders(1, "amount", "name");
+            List<List<Object>> rows = reader.readAll();
+            assertEquals(200, rows.size());
+            assertEquals(Arrays.<Object>asList(1000.0, "s1r100"), rows.get(199));
+        }
+    }
+
+    @Test
+    public void stop() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("stop.xlsx"), 3, 2000);
+        final Excel2007Reader reader = new Excel2007Reader(1, file);
+        final List<Integer> rowNums = new ArrayList<>();
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                rowNums.add(rowNum);
+                if (rowNums.size() == 150) {
+                    reader.stop();
+                }
+            }
+        });
+        reader.processAllSheetsPipelined(executor, 64, 2);
+        reader.close();
+        assertEquals(150, rowNums.size());
+        assertEquals(150, (int) rowNums.get(149));
+    }
+
+    @Test
+    public void decodeFailure() throws Exception {
+        // 第9999行引用了不存在的共享字符串，在工作线程上查找时出错
+        File file = TestWorkbooks.write(folder.newFile("broken.xlsx"), 1, 20);
+        File broken = TestWorkbooks.appendRow(file, folder.newFile("broken-copy.xlsx"),
+                "<row r=\"9999\"><c r=\"A9999\" t=\"s\"><v>999999</v></c></row>");
+        Excel2007Reader reader = new Excel2007Reader(1, broken);
+        try {
+            reader.processAllSheetsPipelined(executor, 8, 2);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertTrue(e.getMessage().contains("999999"));
+        } finally {
+            reader.close();
+        }
+        // 出错前的批次已输出
+        assertEquals(16, reader.getAllValueList().size());
+    }
+
+    private List<List<Object>> serial(File file, CellValueMode mode) throws Exception {
+        try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+            reader.setValueMode(mode);
+            reader.processAllSheets();
+            return reader.getAllValueList();
+        }
+    }
+
+    private List<List<Object>> pipelined(File file, CellValueMode mode, int batchSize, int queueDepth) throws Exception {
+        try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+            reader.setValueMode(mode);
+            reader.processAllSheetsPipelined(executor, batchSize, queueDepth);
+            return reader.getAllValueList();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.ReadLimitExceededException;
+import vip.ipav.poi.excel.reader.ReadLimits;
+import vip.ipav.poi.excel.reader.ReadUsage;
+import vip.ipav.poi.excel.reader.SheetParserType;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 读取限制和读取统计的测试
+ */
+public class ReadLimitsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void usage() throws Exception {
+        for (File file : files("usage", 2, 20)) {
+            try (ExcelReader reader = new ExcelReader(1, file)) {
+                reader.readAll();
+                ReadUsage usage = reader.getReadUsage();
+                assertEquals(21, usage.getRows());
+                assertEquals(3, usage.getColumns());
+                assertEquals(43, usage.getSharedStrings());
+                // 最长的是表头amount
+                assertEquals(6, usage.getCellLength());
+                assertTrue(usage.getPartBytes() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void maxRows() throws Exception {
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxRows(10);
+        for (File file : files("rows", 1, 20)) {
+            // beginRow之后的行也检查，不因不输出而跳过
+            assertExceeded(new ExcelReader(15, file), limits, ReadLimits.Limit.ROWS, 10, 11);
+        }
+    }
+
+    @Test
+    public void maxColumns() throws Exception {
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxColumns(2);
+        for (File file : files("columns", 1, 5)) {
+            assertExceeded(new ExcelReader(1, file), limits, ReadLimits.Limit.COLUMNS, 2, 3);
+        }
+    }
+
+    @Test
+    public void farColumnFailsBeforePadding() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<dimension ref=\"A1:XFD1048576\"/><sheetData>"
+                + "<row r=\"1\"><c r=\"A1\"><v>1</v></c><c r=\"XFD1\"><v>2</v></c></row>"
+                + "</sheetData></worksheet>";
+        File file = sheet("far.xlsx", xml);
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxColumns(1024);
+        for (SheetParserType type : SheetParserType.values()) {
+            try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+                reader.setSheetParserType(type);
+                reader.setReadLimits(limits);
+                reader.processAllSheets();
+                fail();
+            } catch (ReadLimitExceededException e) {
+                assertEquals(ReadLimits.Limit.COLUMNS, e.getLimit());
+                assertEquals(16384, e.getActual());
+            }
+        }
+    }
+
+    @Test
+    public void maxPartBytes() throws Exception {
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxPartBytes(4096);
+        for (File file : files("bytes", 1, 500)) {
+            try (ExcelReader reader = new ExcelReader(1, file)) {
+                reader.setReadLimits(limits);
+                reader.readAll();
+                fail();
+            } catch (ReadLimitExceededException e) {
+                assertEquals(ReadLimits.Limit.PART_BYTES, e.getLimit());
+                assertEquals(4096, e.getMaximum());
+                assertTrue(e.getActual() > 4096);
+            }
+        }
+    }
+
+    @Test
+    public void maxPartBytesFromStream() throws Exception {
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxPartBytes(4096);
+        for (File file : files("stream", 1, 500)) {
+            try (InputStream in = new FileInputStream(file);
+                 ExcelReader reader = new ExcelReader(1, 0, in, true)) {
+                reader.setReadLimits(limits);
+                reader.readAll();
+                fail();
+            } catch (ReadLimitExceededException e) {
+                assertEquals(ReadLimits.Limit.PART_BYTES, e.getLimit());
+            }
+        }
+        // 设置了限制后按流打开也先写入临时文件，各个part在解析时才读取和检查
+        File small = TestWorkbooks.write(folder.newFile("small.xlsx"), 1, 1);
+        File large = TestWorkbooks.write(folder.newFile("large.xlsx"), 1, 500);
+        try (InputStream in = new FileInputStream(large);
+             Excel2007Reader reader = new Excel2007Reader(1, small)) {
+            reader.setReadLimits(limits);
+            reader.open(in);
+            reader.processAllSheets();
+            fail();
+        } catch (ReadLimitExceededException e) {
+            assertEquals(ReadLimits.Limit.PART_BYTES, e.getLimit());
+        }
+        small = TestWorkbooks.write(folder.newFile("small.xls"), 1, 1);
+        large = TestWorkbooks.write(folder.newFile("large.xls"), 1, 500);
+        try (InputStream in = new FileInputStream(large);
+             Excel2003Reader reader = new Excel2003Reader(1, small)) {
+            reader.setReadLimits(limits);
+            reader.open(in);
+            reader.processAllSheets();
+            fail();
+        } catch (ReadLimitExceededException e) {
+            assertEquals(ReadLimits.Limit.PART_BYTES, e.getLimit());
+        }
+    }
+
+    @Test
+    public void maxSharedStrings() throws Exception {
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxSharedStrings(10);
+        for (File file : files("sst", 1, 20)) {
+            try (ExcelReader reader = new ExcelReader(1, file)) {
+                reader.setReadLimits(limits);
+                reader.readAll();
+                fail();
+            } catch (ReadLimitExceededException e) {
+                assertEquals(ReadLimits.Limit.SHARED_STRINGS, e.getLimit());
+                assertEquals(10, e.getMaximum());
+            }
+        }
+    }
+
+    @Test
+    public void maxCellLength() throws Exception {
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxCellLength(5);
+        for (File file : files("length", 1, 5)) {
+            assertExceeded(new ExcelReader(1, file), limits, ReadLimits.Limit.CELL_LENGTH, 5, 6);
+        }
+    }
+
+    @Test
+    public void longInlineStringFailsWhileScanning() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            text.append('x');
+        }
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                + "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>" + text + "</t></is></c></row>"
+                + "</sheetData></worksheet>";
+        File file = sheet("long.xlsx", xml);
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxCellLength(1000);
+        for (SheetParserType type : SheetParserType.values()) {
+            try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+                reader.setSheetParserType(type);
+                reader.setReadLimits(limits);
+                reader.processAllSheets();
+                fail();
+            } catch (ReadLimitExceededException e) {
+                assertEquals(ReadLimits.Limit.CELL_LENGTH, e.getLimit());
+                // 拼接过程中超出即失败，不等整个单元格读完
+                assertTrue(e.getActual() < text.length());
+            }
+        }
+    }
+
+    @Test
+    public void withinLimits() throws Exception {
+        ReadLimits limits = new ReadLimits();
+        limits.setMaxRows(21);
+        limits.setMaxColumns(3);
+        limits.setMaxSharedStrings(100);
+        limits.setMaxCellLength(6);
+        limits.setMaxPartBytes(1 << 20);
+        for (File file : files("within", 2, 20)) {
+            try (ExcelReader reader = new ExcelReader(2, file)) {
+                reader.setReadLimits(limits);
+                assertEquals(40, reader.readAll().size());
+            }
+        }
+    }
+
+    private void assertExceeded(ExcelReader reader, ReadLimits limits, ReadLimits.Limit limit,
+                                long maximum, long actual) throws Exception {
+        try {
+            reader.setReadLimits(limits);
+            reader.readAll();
+            fail();
+        } catch (ReadLimitExceededException e) {
+            assertEquals(limit, e.getLimit());
+            assertEquals(maximum, e.getMaximum());
+            assertEquals(actual, e.getActual());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private File[] files(String name, int sheets, int rows) throws Exception {
+        return new File[]{
+                TestWorkbooks.write(folder.newFile(name + ".xlsx"), sheets, rows),
+                TestWorkbooks.write(folder.newFile(name + ".xls"), sheets, rows)
+        };
+    }
+
+    private File sheet(String name, String xml) throws Exception {
+        File source = TestWorkbooks.write(folder.newFile("source-" + name), 1, 1);
+        return TestWorkbooks.replaceSheet(source, folder.newFile(name), xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowHandler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 行回调模式测试
+ */
+public class RowHandlerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("rows.xlsx"), 2, 50);
+        Excel2007Reader reader = new Excel2007Reader(2, file.getPath());
+        List<String> seen = collect(reader);
+        reader.processAllSheets();
+        assertEquals(100, seen.size());
+        assertEquals("0:2", seen.get(0));
+        assertEquals("1:51", seen.get(99));
+    }
+
+    @Test
+    public void streamXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("rows.xls"), 2, 50);
+        Excel2003Reader reader = new Excel2003Reader(2, file.getPath());
+        List<String> seen = collect(reader);
+        reader.processAllSheets();
+        assertEquals(100, seen.size());
+        assertEquals("0:2", seen.get(0));
+        assertEquals("1:51", seen.get(99));
+    }
+
+    @Test
+    public void rangeAndDefaultListXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("range.xlsx"), 1, 50);
+        Excel2007Reader reader = new Excel2007Reader(2, 3, file.getPath());
+        reader.processAllSheets();
+        assertEquals(3, reader.getAllValueList().size());
+        assertEquals(Arrays.<Object>asList("1", "s0r1", "10"), reader.getAllValueList().get(0));
+    }
+
+    @Test
+    public void rangeAndDefaultListXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("range.xls"), 1, 50);
+        Excel2003Reader reader = new Excel2003Reader(2, 3, file.getPath());
+        reader.processOneSheet(1);
+        assertEquals(3, reader.getAllValueList().size());
+        assertEquals(Arrays.<Object>asList("1", "s0r1", "10"), reader.getAllValueList().get(0));
+    }
+
+    private List<String> collect(final AbstractExcelReader reader) {
+        final List<String> seen = new ArrayList<>();
+        reader.setRowHandler(new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                assertTrue(reader.getAllValueList().isEmpty());
+                assertEquals("s" + sheetIndex + "r" + (rowNum - 1), row.get(1));
+                seen.add(sheetIndex + ":" + rowNum);
+            }
+        });
+        return seen;
+    }
+}
@@ -0,0 +1,60 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.RowIterator;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 拉取模式读取测试
+ */
+public class RowIteratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void iterateXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("iter.xlsx"), 1, 1000);
+        RowIterator it = new Excel2007Reader(2, file.getPath()).iterator(null, 8);
+        int count = 0;
+        while (it.hasNext()) {
+            List<Object> row = it.next();
+            count++;
+            assertEquals(String.valueOf(count), row.get(0));
+        }
+        assertEquals(1000, count);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void streamXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("iter.xls"), 2, 300);
+        Stream<List<Object>> rows = new Excel2003Reader(2, file.getPath()).stream(null, 8);
+        try {
+            assertEquals(600, rows.count());
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Test
+    public void closeEarly() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("close.xlsx"), 1, 1000);
+        Stream<List<Object>> rows = new Excel2007Reader(1, file.getPath()).stream(null, 2);
+        try {
+            assertEquals(5, rows.limit(5).count());
+        } finally {
+            rows.close();
+        }
+    }
+}
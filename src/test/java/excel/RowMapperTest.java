@@ -0,0 +1,130 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.mapper.ExcelColumn;
+import vip.ipav.poi.excel.mapper.ExcelMappingException;
+import vip.ipav.poi.excel.mapper.RowMapper;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * 行到对象映射测试
+ */
+public class RowMapperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public static class Item {
+        @ExcelColumn("id")
+        private int id;
+        @ExcelColumn("name")
+        private String name;
+        @ExcelColumn("amount")
+        private BigDecimal amount;
+    }
+
+    public static class Typed {
+        @ExcelColumn("text")
+        private String text;
+        @ExcelColumn("number")
+        private Double number;
+        @ExcelColumn("date")
+        private LocalDate date;
+        @ExcelColumn(index = 3)
+        private boolean bool;
+    }
+
+    public static class Broken {
+        @ExcelColumn("name")
+        private int name;
+    }
+
+    @Test
+    public void annotatedXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("items.xlsx"), 2, 3);
+        assertItems(RowMapper.of(Item.class).readAll(new Excel2007Reader(1, file.getPath())));
+    }
+
+    @Test
+    public void annotatedXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("items.xls"), 2, 3);
+        assertItems(RowMapper.of(Item.class).readAll(new Excel2003Reader(1, file.getPath())));
+    }
+
+    @Test
+    public void typedAndFormatted() throws Exception {
+        File file = TestWorkbooks.writeTyped(folder.newFile("typed.xlsx"));
+        for (CellValueMode mode : CellValueMode.values()) {
+            Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+            reader.setValueMode(mode);
+            List<Typed> rows = RowMapper.of(Typed.class).readAll(reader);
+            assertEquals(2, rows.size());
+            assertEquals("hello", rows.get(0).text);
+            assertEquals(12.5, rows.get(0).number, 0);
+            assertEquals(LocalDate.of(2020, 1, 31), rows.get(0).date);
+            assertEquals(true, rows.get(0).bool);
+            assertNull(rows.get(1).text);
+            assertEquals(false, rows.get(1).bool);
+        }
+    }
+
+    @Test
+    public void builder() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("builder.xlsx"), 1, 3);
+        RowMapper<Item> mapper = RowMapper.builder(Item.class)
+                .column(2, "amount")
+                .column("name", "name")
+                .build();
+        List<Item> items = mapper.readAll(new Excel2007Reader(1, file.getPath()));
+        assertEquals(3, items.size());
+        assertEquals(0, items.get(2).id);
+        assertEquals("s0r3", items.get(2).name);
+        assertEquals(new BigDecimal("30"), items.get(2).amount);
+    }
+
+    @Test
+    public void errorCoordinatesXlsx() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("broken.xlsx"), 1, 3);
+        assertBroken(new Excel2007Reader(1, file.getPath()));
+    }
+
+    @Test
+    public void errorCoordinatesXls() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("broken.xls"), 1, 3);
+        assertBroken(new Excel2003Reader(1, file.getPath()));
+    }
+
+    private void assertBroken(AbstractExcelReader reader) throws Exception {
+        try {
+            RowMapper.of(Broken.class).readAll(reader);
+            fail();
+        } catch (ExcelMappingException e) {
+            assertEquals(0, e.getSheetIndex());
+            assertEquals(2, e.getRowNum());
+            assertEquals(1, e.getColumn());
+            assertEquals("第1个表第2行B列: 无法将's0r1'转换为int(name)", e.getMessage());
+        }
+    }
+
+    private void assertItems(List<Item> items) {
+        assertEquals(6, items.size());
+        Item last = items.get(5);
+        assertEquals(3, last.id);
+        assertEquals("s1r3", last.name);
+        assertEquals(new BigDecimal("30"), last.amount);
+    }
+}
@@ -0,0 +1,74 @@
+package excel;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.SharedStringsType;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 共享字符串表存储方式测试
+ */
+public class SharedStringsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void compactAndMapped() throws Exception {
+        File file = folder.newFile("sst.xlsx");
+        XSSFWorkbook wb = new XSSFWorkbook();
+        try {
+            XSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue("中文字符串");
+            XSSFRichTextString rich = new XSSFRichTextString("加粗普通");
+            XSSFFont bold = wb.createFont();
+            bold.setBold(true);
+            rich.applyFont(0, 2, bold);
+            row.createCell(1).setCellValue(rich);
+            row.createCell(2).setCellValue("a_x0041_b");
+            row.createCell(3).setCellValue("中文字符串");
+            OutputStream out = new FileOutputStream(file);
+            try {
+                wb.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            wb.close();
+        }
+        List<Object> expected = Arrays.<Object>asList("中文字符串", "加粗普通", "aAb", "中文字符串");
+        for (SharedStringsType type : SharedStringsType.values()) {
+            Excel2007Reader reader = new Excel2007Reader(1, file.getPath());
+            reader.setSharedStringsType(type);
+            reader.processAllSheets();
+            assertEquals(type.name(), expected, reader.getAllValueList().get(0));
+        }
+    }
+
+    @Test
+    public void manyStrings() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("many.xlsx"), 2, 3000);
+        Excel2007Reader compact = new Excel2007Reader(1, file.getPath());
+        compact.processAllSheets();
+        Excel2007Reader mapped = new Excel2007Reader(1, file.getPath());
+        mapped.setSharedStringsType(SharedStringsType.MAPPED);
+        mapped.processAllSheets();
+        assertEquals(compact.getAllValueList(), mapped.getAllValueList());
+        assertEquals("s1r3000", mapped.getAllValueList().get(2 * 3001 - 1).get(1));
+    }
+}
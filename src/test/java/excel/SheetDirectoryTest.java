@@ -0,0 +1,207 @@
+package excel;
+
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.RowHandler;
+import vip.ipav.poi.excel.reader.SheetInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 表目录和按表名、索引读取单个表的测试
+ */
+public class SheetDirectoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sheetsXlsx() throws Exception {
+        assertSheets(TestWorkbooks.write(folder.newFile("sheets.xlsx"), 3, 20));
+    }
+
+    @Test
+    public void sheetsXls() throws Exception {
+        assertSheets(TestWorkbooks.write(folder.newFile("sheets.xls"), 3, 20));
+    }
+
+    @Test
+    public void readSheetXlsx() throws Exception {
+        assertReadSheet(TestWorkbooks.write(folder.newFile("read.xlsx"), 3, 20));
+    }
+
+    @Test
+    public void readSheetXls() throws Exception {
+        assertReadSheet(TestWorkbooks.write(folder.newFile("read.xls"), 3, 20));
+    }
+
+    @Test
+    public void processOneSheetUsesWorkbookOrder() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("order.xlsx"), 3, 5);
+        try (Excel2007Reader reader = new Excel2007Reader(2, file)) {
+            reader.processOneSheet(1);
+            List<List<Object>> rows = reader.getAllValueList();
+            assertEquals(5, rows.size());
+            assertEquals(Arrays.<Object>asList("1", "s0r1", "10"), rows.get(0));
+        }
+    }
+
+    @Test
+    public void unknownSheet() throws Exception {
+        File xlsx = TestWorkbooks.write(folder.newFile("unknown.xlsx"), 2, 5);
+        File xls = TestWorkbooks.write(folder.newFile("unknown.xls"), 2, 5);
+        for (File file : new File[]{xlsx, xls}) {
+            try (ExcelReader reader = new ExcelReader(1, file)) {
+                try {
+                    reader.readSheet("sheet3", null);
+                    fail();
+                } catch (RuntimeException e) {
+                    assertEquals("找不到表: sheet3", e.getMessage());
+                }
+                try {
+                    reader.readSheet(2, null);
+                    fail();
+                } catch (RuntimeException e) {
+                    assertEquals("表索引超出范围: 2，共2个表", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dimensionAttributes() throws Exception {
+        String main = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+        String[] xmls = {
+                // ref不是第一个属性，其他属性名中含有ref
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?><worksheet xmlns=\"" + main + "\""
+                        + " xmlns:xr=\"http://schemas.microsoft.com/office/spreadsheetml/2014/revision\">"
+                        + "<dimension xr:ref=\"A1\" sqref=\"A1\" ref='B2:D5'/><sheetData/></worksheet>",
+                // 带命名空间前缀的元素
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?><x:worksheet xmlns:x=\"" + main + "\">"
+                        + "<x:dimension\n ref=\"B2:D5\"></x:dimension><x:sheetData/></x:worksheet>"
+        };
+        for (int i = 0; i < xmls.length; i++) {
+            File source = TestWorkbooks.write(folder.newFile("source" + i + ".xlsx"), 1, 1);
+            File file = TestWorkbooks.replaceSheet(source, folder.newFile("dim" + i + ".xlsx"),
+                    xmls[i].getBytes(StandardCharsets.UTF_8));
+            try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+                SheetInfo sheet = reader.getSheets().get(0);
+                assertEquals("B2:D5", sheet.getDimension());
+                assertEquals(2, sheet.getFirstRow());
+                assertEquals(5, sheet.getLastRow());
+            }
+        }
+    }
+
+    @Test
+    public void missingDimension() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                + "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>x</t></is></c></row>"
+                + "</sheetData></worksheet>";
+        File source = TestWorkbooks.write(folder.newFile("source.xlsx"), 1, 1);
+        File file = TestWorkbooks.replaceSheet(source, folder.newFile("nodim.xlsx"),
+                xml.getBytes(StandardCharsets.UTF_8));
+        try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+            SheetInfo sheet = reader.getSheets().get(0);
+            assertEquals("sheet1", sheet.getName());
+            assertFalse(sheet.hasDimension());
+            assertNull(sheet.getDimension());
+        }
+    }
+
+    @Test
+    public void encryptedXls() throws Exception {
+        File file = folder.newFile("encrypted.xls");
+        Biff8EncryptionKey.setCurrentUserPassword("secret");
+        try {
+            HSSFWorkbook wb = new HSSFWorkbook();
+            try {
+                wb.createSheet("first").createRow(0).createCell(0).setCellValue("a");
+                wb.createSheet("second").createRow(2).createCell(1).setCellValue("b");
+                try (OutputStream out = new FileOutputStream(file)) {
+                    wb.write(out);
+                }
+            } finally {
+                wb.close();
+            }
+            try (Excel2003Reader reader = new Excel2003Reader(1, file)) {
+                assertEquals(Arrays.asList("first", "second"), reader.getSheetNames());
+                SheetInfo second = reader.getSheets().get(1);
+                assertEquals(3, second.getLastRow());
+                assertEquals(1, second.getLastColumn());
+                reader.readSheet("second");
+                assertEquals(Arrays.<Object>asList(null, "b"), reader.getAllValueList().get(2));
+            }
+        } finally {
+            Biff8EncryptionKey.setCurrentUserPassword(null);
+        }
+    }
+
+    private void assertSheets(File file) throws Exception {
+        try (ExcelReader reader = new ExcelReader(1, file)) {
+            assertEquals(Arrays.asList("sheet1", "sheet2", "sheet3"), reader.getSheetNames());
+            List<SheetInfo> sheets = reader.getSheets();
+            assertEquals(3, sheets.size());
+            for (int i = 0; i < sheets.size(); i++) {
+                SheetInfo sheet = sheets.get(i);
+                assertEquals(i, sheet.getIndex());
+                assertEquals("sheet" + (i + 1), sheet.getName());
+                assertTrue(sheet.hasDimension());
+                assertEquals("A1:C21", sheet.getDimension());
+                assertEquals(1, sheet.getFirstRow());
+                assertEquals(21, sheet.getLastRow());
+                assertEquals(0, sheet.getFirstColumn());
+                assertEquals(2, sheet.getLastColumn());
+            }
+            // 读取目录不影响之后的读取
+            assertEquals(63, reader.readAll().size());
+        }
+    }
+
+    private void assertReadSheet(File file) throws Exception {
+        List<List<Object>> all;
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            all = reader.readAll();
+        }
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            assertEquals(all.subList(20, 40), readSheet(reader, "sheet2", -1));
+            assertEquals(all.subList(40, 60), readSheet(reader, null, 2));
+            assertEquals(all.subList(0, 20), readSheet(reader, null, 0));
+        }
+    }
+
+    private List<List<Object>> readSheet(ExcelReader reader, String name, int index) throws Exception {
+        final List<List<Object>> rows = new ArrayList<>();
+        RowHandler handler = new RowHandler() {
+            @Override
+            public void onRow(int sheetIndex, int rowNum, List<Object> row) {
+                rows.add(new ArrayList<>(row));
+            }
+        };
+        if (name != null) {
+            reader.readSheet(name, handler);
+        } else {
+            reader.readSheet(index, handler);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,104 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.SheetParserType;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 字节扫描器与SAX解析结果一致性的测试
+ */
+public class SheetScannerTest {
+
+    private static final String SHEET = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\r\n"
+            + "<!-- 注释中的<row r=\"9\"> -->"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>\r\n"
+            + "<row r=\"1\" spans=\"1:4\"><c r=\"A1\" t=\"inlineStr\"><is><t>a&amp;b &lt;&#x4E2D;&#25991;&gt;😀</t></is></c>"
+            + "<c r=\"B1\" t='s'><v>1</v></c><c r=\"D1\" s = \"0\"><v>1.5</v></c></row>\r\n"
+            + "<row r=\"3\"><c r=\"A3\" t=\"str\"><f>CONCAT(\"x\")</f><v><![CDATA[line1]]>\r\nline2</v></c>"
+            + "<c r=\"B3\"/><c r=\"C3\" t=\"b\"><v>1</v></c></row>\r\n"
+            + "</sheetData></worksheet>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameAsSax() throws Exception {
+        File rows = TestWorkbooks.write(folder.newFile("rows.xlsx"), 3, 300);
+        File typed = TestWorkbooks.writeTyped(folder.newFile("typed.xlsx"));
+        for (File file : new File[]{rows, typed}) {
+            for (CellValueMode mode : CellValueMode.values()) {
+                assertEquals(file.getName() + " " + mode, read(file, SheetParserType.SAX, mode),
+                        read(file, SheetParserType.SCANNER, mode));
+            }
+        }
+    }
+
+    @Test
+    public void markup() throws Exception {
+        File file = sheet("markup.xlsx", SHEET.getBytes(StandardCharsets.UTF_8));
+        List<List<Object>> rows = read(file, SheetParserType.SCANNER, CellValueMode.FORMATTED);
+        assertEquals(rows, read(file, SheetParserType.SAX, CellValueMode.FORMATTED));
+        assertEquals(Arrays.<Object>asList("a&b <中文>😀", "name", null, "1.5"), rows.get(0));
+        // 公式的字符串结果(FORMATTED模式带引号)，CDATA与文本相连，\r\n统一为\n
+        assertEquals(Arrays.<Object>asList("\"line1\nline2\"", "", "TRUE", null), rows.get(1));
+    }
+
+    @Test
+    public void namespacePrefix() throws Exception {
+        String prefixed = SHEET.replace("<worksheet xmlns=", "<x:worksheet xmlns:x=")
+                .replaceAll("<(/?)(sheetData|row|c|v|is|t|f)\\b", "<$1x:$2")
+                .replace("</worksheet>", "</x:worksheet>");
+        File plain = sheet("plain.xlsx", SHEET.getBytes(StandardCharsets.UTF_8));
+        File file = sheet("prefixed.xlsx", prefixed.getBytes(StandardCharsets.UTF_8));
+        assertEquals(read(plain, SheetParserType.SAX, CellValueMode.TYPED),
+                read(file, SheetParserType.SCANNER, CellValueMode.TYPED));
+    }
+
+    @Test
+    public void utf16FallsBackToSax() throws Exception {
+        String xml = SHEET.replace("encoding=\"UTF-8\"", "encoding=\"UTF-16\"");
+        File plain = sheet("plain.xlsx", SHEET.getBytes(StandardCharsets.UTF_8));
+        File file = sheet("utf16.xlsx", xml.getBytes(StandardCharsets.UTF_16));
+        assertEquals(read(plain, SheetParserType.SAX, CellValueMode.FORMATTED),
+                read(file, SheetParserType.SCANNER, CellValueMode.FORMATTED));
+    }
+
+    @Test
+    public void malformed() throws Exception {
+        String xml = SHEET.substring(0, SHEET.indexOf("<c r=\"C3\"") + 12);
+        File file = sheet("truncated.xlsx", xml.getBytes(StandardCharsets.UTF_8));
+        try {
+            read(file, SheetParserType.SCANNER, CellValueMode.FORMATTED);
+            fail();
+        } catch (SAXException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("表的xml格式错误"));
+        }
+    }
+
+    private File sheet(String name, byte[] xml) throws Exception {
+        File source = TestWorkbooks.write(folder.newFile("source-" + name), 1, 1);
+        return TestWorkbooks.replaceSheet(source, folder.newFile(name), xml);
+    }
+
+    private List<List<Object>> read(File file, SheetParserType type, CellValueMode mode) throws Exception {
+        try (Excel2007Reader reader = new Excel2007Reader(1, file)) {
+            reader.setSheetParserType(type);
+            reader.setValueMode(mode);
+            reader.processAllSheets();
+            return reader.getAllValueList();
+        }
+    }
+}
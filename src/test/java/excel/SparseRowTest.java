@@ -0,0 +1,178 @@
+package excel;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.SparseRow;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 稀疏行与普通行输出一致性的测试
+ */
+public class SparseRowTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameAsDense() throws Exception {
+        for (String name : new String[]{"pivot.xls", "pivot.xlsx"}) {
+            File file = writePivot(folder.newFile(name));
+            for (CellValueMode mode : CellValueMode.values()) {
+                List<List<Object>> dense = read(file, mode, false, false);
+                List<List<Object>> sparse = read(file, mode, true, false);
+                assertEquals(name + " " + mode, dense, sparse);
+                for (List<Object> row : sparse) {
+                    assertTrue(row instanceof SparseRow);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void onlyValuesStored() throws Exception {
+        File file = writePivot(folder.newFile("cells.xlsx"));
+        List<List<Object>> rows = read(file, CellValueMode.FORMATTED, true, false);
+        // 表头宽度为41列，第二行只有A、AO两个单元格
+        SparseRow row = (SparseRow) rows.get(1);
+        assertEquals(41, row.size());
+        assertEquals(2, row.getCellCount());
+        assertEquals(40, row.getColumnAt(1));
+        assertEquals("r2", row.getValueAt(0));
+        assertNull(row.get(20));
+        assertEquals("40", row.get(40));
+        try {
+            row.set(0, "x");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // 只读
+        }
+    }
+
+    @Test
+    public void blankAsNull() throws Exception {
+        for (String name : new String[]{"blank.xls", "blank.xlsx"}) {
+            File file = writePivot(folder.newFile(name));
+            assertEquals(name, read(file, CellValueMode.TYPED, false, true),
+                    read(file, CellValueMode.TYPED, true, true));
+            // 空字符串单元格不再保存
+            SparseRow row = (SparseRow) read(file, CellValueMode.TYPED, true, true).get(2);
+            assertEquals(2, row.getCellCount());
+        }
+    }
+
+    @Test
+    public void pipelineAndParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (String name : new String[]{"parallel.xls", "parallel.xlsx"}) {
+                File file = writePivot(folder.newFile(name));
+                List<List<Object>> dense = read(file, CellValueMode.FORMATTED, false, false);
+                try (ExcelReader reader = new ExcelReader(1, file)) {
+                    reader.setValueMode(CellValueMode.FORMATTED);
+                    reader.setSparseRows(true);
+                    reader.setExecutor(executor);
+                    if (reader.getFormat() == ExcelReader.Format.XLSX) {
+                        reader.setPipeline(executor, 2, 2);
+                    }
+                    assertEquals(name, dense, reader.readAll());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelXlsAllSparse() throws Exception {
+        File file = writePivot(folder.newFile("parallel-sparse.xls"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (ExcelReader reader = new ExcelReader(1, file)) {
+            reader.setValueMode(CellValueMode.FORMATTED);
+            reader.setSparseRows(true);
+            reader.setExecutor(executor);
+            List<List<Object>> rows = reader.readAll();
+            assertEquals(read(file, CellValueMode.FORMATTED, true, false), rows);
+            // 每个表的第一行也是稀疏行
+            for (List<Object> row : rows) {
+                assertTrue(row instanceof SparseRow);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void projectionStaysDense() throws Exception {
+        File file = writePivot(folder.newFile("projection.xlsx"));
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.setSparseRows(true);
+            reader.setColumnLetters("AO", "A");
+            List<List<Object>> rows = reader.readAll();
+            assertTrue(rows.get(0) instanceof ArrayList);
+            assertEquals(Arrays.<Object>asList(40.0, "r2"), rows.get(0));
+        }
+    }
+
+    private List<List<Object>> read(File file, CellValueMode mode, boolean sparse, boolean blankAsNull)
+            throws Exception {
+        try (ExcelReader reader = new ExcelReader(1, file)) {
+            reader.setValueMode(mode);
+            reader.setSparseRows(sparse);
+            reader.setBlankAsNull(blankAsNull);
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * 第一行表头41列(A到AO)，之后每行只有A列和一个按行号变化的列，第三行另有一个空字符串单元格
+     * 第二个表只有一行
+     */
+    private static File writePivot(File file) throws IOException {
+        Workbook wb = file.getName().endsWith(".xlsx") ? new XSSFWorkbook() : new HSSFWorkbook();
+        try {
+            Sheet sheet = wb.createSheet("pivot");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i <= 40; i++) {
+                header.createCell(i).setCellValue("h" + i);
+            }
+            for (int r = 1; r < 30; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("r" + (r + 1));
+                int column = (r * 40) % 41;
+                if (column > 0) {
+                    row.createCell(column).setCellValue(column);
+                }
+            }
+            sheet.getRow(2).createCell(45).setCellValue("");
+            wb.createSheet("other").createRow(3).createCell(2).setCellValue(true);
+            try (OutputStream out = new FileOutputStream(file)) {
+                wb.write(out);
+            }
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,67 @@
+package excel;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 按样式索引缓存的数据格式测试，自定义日期格式也应识别为日期
+ */
+public class StyleFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void customDateFormat() throws Exception {
+        File file = write(folder.newFile("style.xlsx"));
+        Excel2007Reader formatted = new Excel2007Reader(1, file.getPath());
+        formatted.processAllSheets();
+        assertEquals(Arrays.<Object>asList("2021/03/04 05:06", "1001", "2.5"), formatted.getAllValueList().get(0));
+
+        Excel2007Reader typed = new Excel2007Reader(1, file.getPath());
+        typed.setValueMode(CellValueMode.TYPED);
+        typed.processAllSheets();
+        assertEquals(Arrays.<Object>asList(LocalDateTime.of(2021, 3, 4, 5, 6), "1001", 2.5), typed.getAllValueList().get(0));
+    }
+
+    private static File write(File file) throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        try {
+            DataFormat format = wb.createDataFormat();
+            CellStyle dateTime = wb.createCellStyle();
+            dateTime.setDataFormat(format.getFormat("yyyy/mm/dd hh:mm"));
+            CellStyle text = wb.createCellStyle();
+            text.setDataFormat(format.getFormat("@"));
+            Row row = wb.createSheet().createRow(0);
+            row.createCell(0).setCellValue(LocalDateTime.of(2021, 3, 4, 5, 6));
+            row.getCell(0).setCellStyle(dateTime);
+            row.createCell(1).setCellValue(1001);
+            row.getCell(1).setCellStyle(text);
+            row.createCell(2).setCellValue(2.5);
+            OutputStream out = new FileOutputStream(file);
+            try {
+                wb.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+}
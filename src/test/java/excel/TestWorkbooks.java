@@ -0,0 +1,153 @@
+package excel;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 测试用的Excel文件生成工具，用POI usermodel写出xls/xlsx
+ */
+public class TestWorkbooks {
+
+    /**
+     * 生成多表测试文件，每个表第一行为表头(id,name,amount)，之后为数据行
+     *
+     * @param file   输出文件，后缀为xls或xlsx
+     * @param sheets 表数量
+     * @param rows   每个表的数据行数(不含表头)
+     * @return
+     * @throws IOException
+     */
+    public static File write(File file, int sheets, int rows) throws IOException {
+        Workbook wb = file.getName().endsWith(".xlsx") ? new XSSFWorkbook() : new HSSFWorkbook();
+        try {
+            for (int s = 0; s < sheets; s++) {
+                Sheet sheet = wb.createSheet("sheet" + (s + 1));
+                Row header = sheet.createRow(0);
+                header.createCell(0).setCellValue("id");
+                header.createCell(1).setCellValue("name");
+                header.createCell(2).setCellValue("amount");
+                for (int r = 1; r <= rows; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(r);
+                    row.createCell(1).setCellValue("s" + s + "r" + r);
+                    row.createCell(2).setCellValue(r * 10);
+                }
+            }
+            save(wb, file);
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+
+    /**
+     * 生成包含日期、布尔、空洞单元格的单表测试文件
+     * 第一行表头(text,number,date,bool)，第二行数据，第三行只有D列
+     *
+     * @param file 输出文件，后缀为xls或xlsx
+     * @return
+     * @throws IOException
+     */
+    public static File writeTyped(File file) throws IOException {
+        Workbook wb = file.getName().endsWith(".xlsx") ? new XSSFWorkbook() : new HSSFWorkbook();
+        try {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy/mm/dd"));
+            Sheet sheet = wb.createSheet("typed");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("text");
+            header.createCell(1).setCellValue("number");
+            header.createCell(2).setCellValue("date");
+            header.createCell(3).setCellValue("bool");
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("hello");
+            row.createCell(1).setCellValue(12.5);
+            Cell date = row.createCell(2);
+            date.setCellValue(LocalDate.of(2020, 1, 31));
+            date.setCellStyle(dateStyle);
+            row.createCell(3).setCellValue(true);
+            sheet.createRow(2).createCell(3).setCellValue(false);
+            save(wb, file);
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+
+    /**
+     * 复制xlsx文件并在第一个表的末尾追加一行
+     */
+    public static File appendRow(File source, File target, String rowXml) throws IOException {
+        return rewriteSheet(source, target, null, rowXml);
+    }
+
+    /**
+     * 复制xlsx文件并把第一个表的xml替换为指定内容
+     */
+    public static File replaceSheet(File source, File target, byte[] sheetXml) throws IOException {
+        return rewriteSheet(source, target, sheetXml, null);
+    }
+
+    private static File rewriteSheet(File source, File target, byte[] sheetXml, String rowXml) throws IOException {
+        ZipInputStream in = new ZipInputStream(new FileInputStream(source));
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(target));
+        try {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                byte[] data = readAll(in);
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    if (sheetXml != null) {
+                        data = sheetXml;
+                    } else {
+                        String xml = new String(data, StandardCharsets.UTF_8);
+                        data = xml.replace("</sheetData>", rowXml + "</sheetData>").getBytes(StandardCharsets.UTF_8);
+                    }
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(data);
+                out.closeEntry();
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+        return target;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            buffer.write(chunk, 0, n);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void save(Workbook wb, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            wb.write(out);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package excel;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TYPED模式测试，两种格式输出的类型应一致
+ */
+public class TypedValuesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void typedXlsx() throws Exception {
+        File file = TestWorkbooks.writeTyped(folder.newFile("typed.xlsx"));
+        assertTyped(new Excel2007Reader(2, file.getPath()));
+    }
+
+    @Test
+    public void typedXls() throws Exception {
+        File file = TestWorkbooks.writeTyped(folder.newFile("typed.xls"));
+        assertTyped(new Excel2003Reader(2, file.getPath()));
+    }
+
+    @Test
+    public void formattedXlsx() throws Exception {
+        File file = TestWorkbooks.writeTyped(folder.newFile("formatted.xlsx"));
+        Excel2007Reader reader = new Excel2007Reader(2, 1, file.getPath());
+        reader.processAllSheets();
+        assertEquals(Arrays.<Object>asList("hello", "12.5", "2020/01/31", "TRUE"), reader.getAllValueList().get(0));
+    }
+
+    @Test
+    public void timeKeptWithDateOnlyFormat() throws Exception {
+        File xlsx = writeDates(folder.newFile("dates.xlsx"));
+        File xls = writeDates(folder.newFile("dates.xls"));
+        assertDates(new Excel2007Reader(1, xlsx.getPath()));
+        assertDates(new Excel2003Reader(1, xls.getPath()));
+    }
+
+    private void assertDates(AbstractExcelReader reader) throws Exception {
+        reader.setValueMode(CellValueMode.TYPED);
+        reader.processAllSheets();
+        List<List<Object>> rows = reader.getAllValueList();
+        // 格式不显示时间，不是整天的数值仍输出LocalDateTime
+        assertEquals(Arrays.<Object>asList(LocalDateTime.of(2020, 1, 1, 0, 30), LocalDate.of(2020, 1, 2)),
+                rows.get(0));
+        reader.close();
+    }
+
+    /**
+     * 单表单行，A1为2020-01-01 00:30，B1为2020-01-02，格式均为yyyy-mm-dd
+     */
+    private static File writeDates(File file) throws Exception {
+        Workbook wb = file.getName().endsWith(".xlsx") ? new XSSFWorkbook() : new HSSFWorkbook();
+        try {
+            CellStyle style = wb.createCellStyle();
+            style.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+            Row row = wb.createSheet("dates").createRow(0);
+            Cell a = row.createCell(0);
+            a.setCellValue(LocalDateTime.of(2020, 1, 1, 0, 30));
+            a.setCellStyle(style);
+            Cell b = row.createCell(1);
+            b.setCellValue(LocalDateTime.of(2020, 1, 2, 0, 0));
+            b.setCellStyle(style);
+            try (OutputStream out = new FileOutputStream(file)) {
+                wb.write(out);
+            }
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+
+    private void assertTyped(AbstractExcelReader reader) throws Exception {
+        reader.setValueMode(CellValueMode.TYPED);
+        reader.processAllSheets();
+        List<List<Object>> rows = reader.getAllValueList();
+        assertEquals(Arrays.<Object>asList("hello", 12.5, LocalDate.of(2020, 1, 31), true), rows.get(0));
+        assertEquals(Arrays.<Object>asList(null, null, null, false), rows.get(1));
+    }
+}
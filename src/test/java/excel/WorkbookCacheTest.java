@@ -0,0 +1,145 @@
+package excel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import vip.ipav.poi.excel.reader.AbstractExcelReader;
+import vip.ipav.poi.excel.reader.CellValueMode;
+import vip.ipav.poi.excel.reader.Excel2003Reader;
+import vip.ipav.poi.excel.reader.Excel2007Reader;
+import vip.ipav.poi.excel.reader.ExcelReader;
+import vip.ipav.poi.excel.reader.SharedStringsType;
+import vip.ipav.poi.excel.reader.WorkbookCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 工作薄会话在同一读取器内和多个读取器之间复用的测试
+ */
+public class WorkbookCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void oneSheetAfterAnother() throws Exception {
+        File xlsx = TestWorkbooks.write(folder.newFile("sheets.xlsx"), 3, 20);
+        File xls = TestWorkbooks.write(folder.newFile("sheets.xls"), 3, 20);
+        assertOneSheetAfterAnother(new Excel2007Reader(2, xlsx), 2);
+        assertOneSheetAfterAnother(new Excel2003Reader(2, xls), 2);
+    }
+
+    @Test
+    public void sharedAcrossReaders() throws Exception {
+        File xlsx = TestWorkbooks.write(folder.newFile("shared.xlsx"), 2, 30);
+        File xls = TestWorkbooks.write(folder.newFile("shared.xls"), 2, 30);
+        for (File file : new File[]{xlsx, xls}) {
+            WorkbookCache cache = new WorkbookCache(4);
+            List<List<Object>> expected = read(file, null);
+            assertEquals(expected, read(file, cache));
+            assertEquals(expected, read(file, cache));
+            assertEquals(expected, read(file, cache));
+            assertEquals(1, cache.getMisses());
+            assertEquals(2, cache.getHits());
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void modifiedFileReloads() throws Exception {
+        File file = TestWorkbooks.write(folder.newFile("modified.xlsx"), 1, 10);
+        WorkbookCache cache = new WorkbookCache(4);
+        read(file, cache);
+        TestWorkbooks.write(file, 1, 12);
+        file.setLastModified(file.lastModified() + 2000);
+        List<List<Object>> rows = read(file, cache);
+        assertEquals(12, rows.size());
+        assertEquals(Arrays.<Object>asList(12.0, "s0r12", 120.0), rows.get(11));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() throws Exception {
+        WorkbookCache cache = new WorkbookCache(2);
+        File a = TestWorkbooks.write(folder.newFile("a.xlsx"), 1, 5);
+        File b = TestWorkbooks.write(folder.newFile("b.xls"), 1, 5);
+        File c = TestWorkbooks.write(folder.newFile("c.xlsx"), 1, 5);
+        read(a, cache);
+        read(b, cache);
+        read(a, cache);
+        read(c, cache);
+        assertEquals(2, cache.size());
+        // b最久未使用，已被淘汰
+        read(a, cache);
+        read(b, cache);
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void concurrentReaders() throws Exception {
+        final File file = TestWorkbooks.write(folder.newFile("concurrent.xlsx"), 3, 200);
+        final WorkbookCache cache = new WorkbookCache(2);
+        final List<List<Object>> expected = read(file, null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<List<Object>>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final SharedStringsType type = i % 2 == 0 ? SharedStringsType.COMPACT : SharedStringsType.MAPPED;
+                futures.add(executor.submit(new Callable<List<List<Object>>>() {
+                    @Override
+                    public List<List<Object>> call() throws Exception {
+                        try (Excel2007Reader reader = new Excel2007Reader(2, file)) {
+                            reader.setWorkbookCache(cache);
+                            reader.setSharedStringsType(type);
+                            reader.setValueMode(CellValueMode.TYPED);
+                            reader.processAllSheets();
+                            return reader.getAllValueList();
+                        }
+                    }
+                }));
+            }
+            for (Future<List<List<Object>>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        cache.clear();
+    }
+
+    private void assertOneSheetAfterAnother(AbstractExcelReader reader, int sheet) throws Exception {
+        try {
+            reader.processOneSheet(sheet);
+            reader.processOneSheet(sheet + 1);
+            List<List<Object>> rows = reader.getAllValueList();
+            assertEquals(40, rows.size());
+            assertEquals(Arrays.<Object>asList("1", "s1r1", "10"), rows.get(0));
+            assertEquals(Arrays.<Object>asList("20", "s2r20", "200"), rows.get(39));
+            // 之后仍可读取所有表
+            rows.clear();
+            reader.processAllSheets();
+            assertEquals(60, rows.size());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private List<List<Object>> read(File file, WorkbookCache cache) throws Exception {
+        try (ExcelReader reader = new ExcelReader(2, file)) {
+            reader.setWorkbookCache(cache);
+            return reader.readAll();
+        }
+    }
+}